@@ -1,11 +1,17 @@
 package com.pratham.livo.config;
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.RabbitConnectionFactoryBean;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.amqp.CachingConnectionFactoryConfigurer;
+import org.springframework.boot.autoconfigure.amqp.RabbitConnectionFactoryBeanConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 @Configuration
 public class RabbitMQConfig {
@@ -14,15 +20,33 @@ public class RabbitMQConfig {
     public static final String PAYMENT_QUEUE = "payment.msg.queue";
     public static final String REFUND_QUEUE = "refund.msq.queue";
     public static final String REFUND_UPDATE_QUEUE = "refund.update.msg.queue";
+    public static final String HOTEL_ACTIVATION_QUEUE = "hotel.activation.msg.queue";
+    public static final String BOOKING_EXPIRY_QUEUE = "booking.expiry.msg.queue";
+    //no consumers, messages wait for their ttl and are dead lettered to the expiry queue
+    public static final String BOOKING_EXPIRY_DELAY_QUEUE = "booking.expiry.delay.queue";
+    public static final String BOOKING_EXPIRY_RETRY_QUEUE = "booking.expiry.retry.queue";
+    public static final String INVENTORY_REPRICING_QUEUE = "inventory.repricing.msg.queue";
     public static final String DLQ_QUEUE = "msg.dlq";
 
     public static final String MAIN_EXCHANGE = "msg.exchange";
     public static final String DLQ_EXCHANGE = "msg.dlq.exchange";
+    //every instance binds its own anonymous queue to this exchange
+    public static final String INVENTORY_FANOUT_EXCHANGE = "inventory.fanout.exchange";
 
     public static final String EMAIL_ROUTING_KEY = "email.key";
     public static final String PAYMENT_ROUTING_KEY = "payment.key";
     public static final String REFUND_ROUTING_KEY = "refund.key";
     public static final String REFUND_UPDATE_ROUTING_KEY = "refund.update.key";
+    public static final String HOTEL_ACTIVATION_ROUTING_KEY = "hotel.activation.key";
+    public static final String BOOKING_EXPIRY_ROUTING_KEY = "booking.expiry.key";
+    public static final String BOOKING_EXPIRY_DELAY_ROUTING_KEY = "booking.expiry.delay.key";
+    public static final String BOOKING_EXPIRY_RETRY_ROUTING_KEY = "booking.expiry.retry.key";
+
+    //same as the booking session time limit (10 minutes)
+    public static final int BOOKING_EXPIRY_DELAY_MS = 600000;
+    //bookings touched during their session are checked again after this
+    public static final int BOOKING_EXPIRY_RETRY_MS = 30000;
+    public static final String INVENTORY_REPRICING_ROUTING_KEY = "inventory.repricing.key";
     public static final String DLQ_ROUTING_KEY = "dlq.key";
 
     @Bean
@@ -57,6 +81,48 @@ public class RabbitMQConfig {
                 .build();
     }
 
+    @Bean
+    public Queue hotelActivationQueue() {
+        return QueueBuilder.durable(HOTEL_ACTIVATION_QUEUE)
+                .withArgument("x-dead-letter-exchange", DLQ_EXCHANGE)
+                .withArgument("x-dead-letter-routing-key", DLQ_ROUTING_KEY)
+                .build();
+    }
+
+    @Bean
+    public Queue inventoryRepricingQueue() {
+        return QueueBuilder.durable(INVENTORY_REPRICING_QUEUE)
+                .withArgument("x-dead-letter-exchange", DLQ_EXCHANGE)
+                .withArgument("x-dead-letter-routing-key", DLQ_ROUTING_KEY)
+                .build();
+    }
+
+    @Bean
+    public Queue bookingExpiryQueue() {
+        return QueueBuilder.durable(BOOKING_EXPIRY_QUEUE)
+                .withArgument("x-dead-letter-exchange", DLQ_EXCHANGE)
+                .withArgument("x-dead-letter-routing-key", DLQ_ROUTING_KEY)
+                .build();
+    }
+
+    @Bean
+    public Queue bookingExpiryDelayQueue() {
+        return QueueBuilder.durable(BOOKING_EXPIRY_DELAY_QUEUE)
+                .withArgument("x-message-ttl", BOOKING_EXPIRY_DELAY_MS)
+                .withArgument("x-dead-letter-exchange", MAIN_EXCHANGE)
+                .withArgument("x-dead-letter-routing-key", BOOKING_EXPIRY_ROUTING_KEY)
+                .build();
+    }
+
+    @Bean
+    public Queue bookingExpiryRetryQueue() {
+        return QueueBuilder.durable(BOOKING_EXPIRY_RETRY_QUEUE)
+                .withArgument("x-message-ttl", BOOKING_EXPIRY_RETRY_MS)
+                .withArgument("x-dead-letter-exchange", MAIN_EXCHANGE)
+                .withArgument("x-dead-letter-routing-key", BOOKING_EXPIRY_ROUTING_KEY)
+                .build();
+    }
+
     @Bean
     public Queue dlqQueue() {
         return QueueBuilder.durable(DLQ_QUEUE)
@@ -74,6 +140,17 @@ public class RabbitMQConfig {
         return new DirectExchange(DLQ_EXCHANGE);
     }
 
+    @Bean
+    public FanoutExchange inventoryFanoutExchange() {
+        return new FanoutExchange(INVENTORY_FANOUT_EXCHANGE);
+    }
+
+    @Bean
+    public Queue availabilityIndexQueue() {
+        //exclusive, auto-delete queue private to this instance
+        return new AnonymousQueue();
+    }
+
     @Bean
     public Binding emailBinding() {
         return BindingBuilder
@@ -106,6 +183,52 @@ public class RabbitMQConfig {
                 .with(REFUND_UPDATE_ROUTING_KEY);
     }
 
+    @Bean
+    public Binding inventoryRepricingBinding() {
+        return BindingBuilder
+                .bind(inventoryRepricingQueue())
+                .to(mainExchange())
+                .with(INVENTORY_REPRICING_ROUTING_KEY);
+    }
+
+    @Bean
+    public Binding hotelActivationBinding() {
+        return BindingBuilder
+                .bind(hotelActivationQueue())
+                .to(mainExchange())
+                .with(HOTEL_ACTIVATION_ROUTING_KEY);
+    }
+
+    @Bean
+    public Binding bookingExpiryBinding() {
+        return BindingBuilder
+                .bind(bookingExpiryQueue())
+                .to(mainExchange())
+                .with(BOOKING_EXPIRY_ROUTING_KEY);
+    }
+
+    @Bean
+    public Binding bookingExpiryDelayBinding() {
+        return BindingBuilder
+                .bind(bookingExpiryDelayQueue())
+                .to(mainExchange())
+                .with(BOOKING_EXPIRY_DELAY_ROUTING_KEY);
+    }
+
+    @Bean
+    public Binding bookingExpiryRetryBinding() {
+        return BindingBuilder
+                .bind(bookingExpiryRetryQueue())
+                .to(mainExchange())
+                .with(BOOKING_EXPIRY_RETRY_ROUTING_KEY);
+    }
+
+    @Bean
+    public Binding availabilityIndexBinding() {
+        return BindingBuilder
+                .bind(availabilityIndexQueue())
+                .to(inventoryFanoutExchange());
+    }
 
     @Bean
     public Binding dlqBinding() {
@@ -120,10 +243,46 @@ public class RabbitMQConfig {
         return new Jackson2JsonMessageConverter();
     }
 
+    //declaring a connection factory turns off the one spring boot would create,
+    //so both are built here from the same spring.rabbitmq.* settings
+    @Bean
+    @Primary
+    public CachingConnectionFactory rabbitConnectionFactory(RabbitConnectionFactoryBeanConfigurer factoryBeanConfigurer,
+                                                            CachingConnectionFactoryConfigurer factoryConfigurer) throws Exception {
+        return connectionFactory(factoryBeanConfigurer, factoryConfigurer);
+    }
+
+    //only the outbox relay waits for broker confirms, its channels are the only ones put in confirm mode
+    @Bean
+    public CachingConnectionFactory outboxConnectionFactory(RabbitConnectionFactoryBeanConfigurer factoryBeanConfigurer,
+                                                            CachingConnectionFactoryConfigurer factoryConfigurer) throws Exception {
+        CachingConnectionFactory connectionFactory = connectionFactory(factoryBeanConfigurer, factoryConfigurer);
+        connectionFactory.setPublisherConfirmType(CachingConnectionFactory.ConfirmType.SIMPLE);
+        return connectionFactory;
+    }
+
     @Bean
+    @Primary
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
         template.setMessageConverter(jacksonMessageConverter());
         return template;
     }
+
+    @Bean
+    public RabbitTemplate outboxRabbitTemplate(@Qualifier("outboxConnectionFactory") ConnectionFactory connectionFactory) {
+        RabbitTemplate template = new RabbitTemplate(connectionFactory);
+        template.setMessageConverter(jacksonMessageConverter());
+        return template;
+    }
+
+    private CachingConnectionFactory connectionFactory(RabbitConnectionFactoryBeanConfigurer factoryBeanConfigurer,
+                                                       CachingConnectionFactoryConfigurer factoryConfigurer) throws Exception {
+        RabbitConnectionFactoryBean factoryBean = new RabbitConnectionFactoryBean();
+        factoryBeanConfigurer.configure(factoryBean);
+        factoryBean.afterPropertiesSet();
+        CachingConnectionFactory connectionFactory = new CachingConnectionFactory(factoryBean.getObject());
+        factoryConfigurer.configure(connectionFactory);
+        return connectionFactory;
+    }
 }
@@ -0,0 +1,34 @@
+package com.pratham.livo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+public class SchedulingConfig {
+
+    //for @Scheduled(scheduler = ...) of the loops that run every few seconds or faster
+    public static final String POLLING_SCHEDULER = "pollingScheduler";
+
+    @Value("${livo.scheduling.polling.pool-size}")
+    private int pollingPoolSize;
+
+    //declaring a scheduler turns off the one spring boot would create, so the default one is built here
+    //from spring.task.scheduling.*, it runs the crons and the long jobs
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+
+    //outbox relay, write-behind, ledger compaction, coalesced repricing and the retry loops
+    //a pricing run or an expiry sweep on the default scheduler never holds them up
+    @Bean(POLLING_SCHEDULER)
+    public ThreadPoolTaskScheduler pollingScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(pollingPoolSize);
+        scheduler.setThreadNamePrefix("polling-");
+        return scheduler;
+    }
+}
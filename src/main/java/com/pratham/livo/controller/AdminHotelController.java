@@ -1,5 +1,6 @@
 package com.pratham.livo.controller;
 
+import com.pratham.livo.dto.hotel.HotelActivationStatusDto;
 import com.pratham.livo.dto.hotel.HotelRequestDto;
 import com.pratham.livo.dto.hotel.HotelResponseDto;
 import com.pratham.livo.service.HotelService;
@@ -46,10 +47,15 @@ public class AdminHotelController {
     }
 
     @PatchMapping("/{hotelId}")
-    public ResponseEntity<Void> activateHotelById(@PathVariable Long hotelId){
+    public ResponseEntity<HotelActivationStatusDto> activateHotelById(@PathVariable Long hotelId){
         log.info("Attempting to activate hotel with id: {}",hotelId);
-        hotelService.activateHotelById(hotelId);
-        return ResponseEntity.noContent().build();
+        HotelActivationStatusDto status = hotelService.activateHotelById(hotelId);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(status);
+    }
+
+    @GetMapping("/{hotelId}/activation")
+    public ResponseEntity<HotelActivationStatusDto> getActivationStatus(@PathVariable Long hotelId){
+        return ResponseEntity.ok(hotelService.getHotelActivationStatus(hotelId));
     }
 
     @GetMapping
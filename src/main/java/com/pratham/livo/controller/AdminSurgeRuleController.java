@@ -0,0 +1,42 @@
+package com.pratham.livo.controller;
+
+import com.pratham.livo.dto.surge.SurgeRuleRequestDto;
+import com.pratham.livo.dto.surge.SurgeRuleResponseDto;
+import com.pratham.livo.service.SurgeRuleService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/admin/hotels/{hotelId}/surge-rules")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminSurgeRuleController {
+
+    private final SurgeRuleService surgeRuleService;
+
+    @PostMapping
+    public ResponseEntity<SurgeRuleResponseDto> createSurgeRule(@PathVariable Long hotelId,
+                                                                @RequestBody SurgeRuleRequestDto surgeRuleRequestDto){
+        log.info("Attempting to create surge rule in hotel(id={})", hotelId);
+        SurgeRuleResponseDto surgeRuleResponseDto = surgeRuleService.createRule(hotelId, surgeRuleRequestDto);
+        return ResponseEntity.status(HttpStatus.CREATED).body(surgeRuleResponseDto);
+    }
+
+    @GetMapping
+    public ResponseEntity<List<SurgeRuleResponseDto>> getSurgeRules(@PathVariable Long hotelId){
+        log.info("Attempting to fetch surge rules for hotelId={}", hotelId);
+        return ResponseEntity.ok(surgeRuleService.getRulesForHotel(hotelId));
+    }
+
+    @DeleteMapping("/{ruleId}")
+    public ResponseEntity<Void> deleteSurgeRule(@PathVariable Long hotelId, @PathVariable Long ruleId){
+        log.info("Attempting to delete surge rule with id: {}", ruleId);
+        surgeRuleService.deleteRule(hotelId, ruleId);
+        return ResponseEntity.noContent().build();
+    }
+}
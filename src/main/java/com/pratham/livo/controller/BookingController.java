@@ -4,6 +4,7 @@ import com.pratham.livo.dto.booking.AddGuestDto;
 import com.pratham.livo.dto.booking.BookingRequestDto;
 import com.pratham.livo.dto.booking.BookingResponseDto;
 import com.pratham.livo.dto.booking.BookingWrapperDto;
+import com.pratham.livo.dto.booking.CartBookingRequestDto;
 import com.pratham.livo.service.BookingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -27,6 +28,12 @@ public class BookingController {
         return ResponseEntity.ok(bookingService.initBooking(bookingRequestDto));
     }
 
+    @PostMapping("/cart/init")
+    public ResponseEntity<BookingResponseDto> initCartBooking(@RequestBody CartBookingRequestDto cartBookingRequestDto){
+        log.info("Attempting to create cart booking with: {}", cartBookingRequestDto);
+        return ResponseEntity.ok(bookingService.initCartBooking(cartBookingRequestDto));
+    }
+
     @PostMapping("/{bookingId}/addGuests")
     public ResponseEntity<BookingResponseDto> addGuests(@PathVariable Long bookingId, @RequestBody List<AddGuestDto> guestDtoList){
         log.info("Attempting to add guests to booking with id: {}",bookingId);
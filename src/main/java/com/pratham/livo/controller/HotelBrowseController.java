@@ -37,6 +37,23 @@ public class HotelBrowseController {
         ));
     }
 
+    //cursor based variant of search for infinite scrolling clients
+    //pass back nextCursor from the previous response to get the next page
+    @PostMapping("/search/scroll")
+    public ResponseEntity<HotelSearchScrollDto> scrollHotels(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(defaultValue = "false") Boolean withTotal,
+            @RequestBody HotelSearchRequestDto hotelSearchRequestDto){
+
+        log.info("Attempting to scroll hotels with request: {}",hotelSearchRequestDto);
+        //limit the page size to 100 to prevent attacks, a page holds at least one hotel
+        //so that the cursor always has a last row to point at
+        return ResponseEntity.ok(hotelService.scrollHotels(
+                hotelSearchRequestDto,cursor,Math.max(1,Math.min(size,100)),withTotal
+        ));
+    }
+
     @GetMapping("/{hotelId}")
     public ResponseEntity<HotelInfoDto> getHotelInfo(
             @PathVariable Long hotelId,
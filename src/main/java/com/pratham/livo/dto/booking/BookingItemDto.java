@@ -0,0 +1,19 @@
+package com.pratham.livo.dto.booking;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BookingItemDto {
+    private Long roomId;
+    private String roomType;
+    private Integer roomsCount;
+    private BigDecimal amount;
+}
@@ -10,6 +10,7 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Set;
 
 @Data
@@ -33,4 +34,5 @@ public class BookingResponseDto {
     private LocalDateTime updatedAt;
     private BookingStatus bookingStatus;
     private Set<GetGuestDto> guests;
+    private List<BookingItemDto> items; //only for cart bookings
 }
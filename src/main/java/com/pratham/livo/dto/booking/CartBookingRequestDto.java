@@ -0,0 +1,20 @@
+package com.pratham.livo.dto.booking;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+//several room types of one hotel for the same stay, booked and paid together
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CartBookingRequestDto {
+    private UUID idempotencyKey;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private List<CartItemDto> items;
+}
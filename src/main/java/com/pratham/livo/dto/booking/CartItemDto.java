@@ -0,0 +1,13 @@
+package com.pratham.livo.dto.booking;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CartItemDto {
+    private Long roomId;
+    private Integer roomsCount;
+}
@@ -0,0 +1,25 @@
+package com.pratham.livo.dto.hotel;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.pratham.livo.enums.HotelActivationStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class HotelActivationStatusDto {
+    private Long hotelId;
+    private HotelActivationStatus status;
+    private Integer totalRooms;
+    private Integer roomsDone;
+    private Long rowsWritten;
+    private String error; //only when failed
+    private LocalDateTime updatedAt;
+}
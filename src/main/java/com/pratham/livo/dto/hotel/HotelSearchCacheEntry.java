@@ -0,0 +1,19 @@
+package com.pratham.livo.dto.hotel;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+//one cached search page, valid only while the generations still match
+public class HotelSearchCacheEntry {
+    private List<String> generations;
+    private List<HotelSearchResponseDto> content;
+    private long totalElements;
+}
@@ -0,0 +1,20 @@
+package com.pratham.livo.dto.hotel;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class HotelSearchScrollDto {
+    private List<HotelSearchResponseDto> hotels;
+    private Long nextCursor; //null when there are no more hotels
+    private Long totalElements; //only when asked for
+}
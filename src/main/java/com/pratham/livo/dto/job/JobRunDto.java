@@ -0,0 +1,25 @@
+package com.pratham.livo.dto.job;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JobRunDto {
+    private String jobName;
+    private Integer partition; //only for partitioned jobs
+    private String instance;
+    private Long fencingToken;
+    private LocalDateTime startedAt;
+    private Long durationMs;
+    private String status; //SUCCEEDED, FAILED or FENCED
+    private String error; //only when failed
+}
@@ -0,0 +1,15 @@
+package com.pratham.livo.dto.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+//parked in a delay queue until the booking session ends
+public class BookingExpiryMessage {
+    private Long bookingId;
+}
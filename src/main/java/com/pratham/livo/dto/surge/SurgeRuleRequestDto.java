@@ -0,0 +1,18 @@
+package com.pratham.livo.dto.surge;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SurgeRuleRequestDto {
+    private Long roomId; //null applies the rule to every room of the hotel
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private BigDecimal factor;
+}
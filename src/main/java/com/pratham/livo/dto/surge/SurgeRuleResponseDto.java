@@ -0,0 +1,22 @@
+package com.pratham.livo.dto.surge;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SurgeRuleResponseDto {
+    private Long id;
+    private Long hotelId;
+    private Long roomId;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private BigDecimal factor;
+}
@@ -10,6 +10,7 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Set;
 
 @Entity
@@ -38,6 +39,7 @@ public class Booking {
     @ToString.Exclude
     private Hotel hotel;
 
+    //the first room of a cart booking, the cart itself lives in items
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "room_id",nullable = false)
     @ToString.Exclude
@@ -48,6 +50,7 @@ public class Booking {
     @ToString.Exclude
     private User user;
 
+    //all rooms of a cart booking together
     @Column(nullable = false)
     private Integer roomsCount;
 
@@ -76,6 +79,12 @@ public class Booking {
     @ToString.Exclude
     private Set<Guest> guests;
 
+    //empty unless the booking came from a cart, in ascending room id order
+    @OneToMany(mappedBy = "booking", cascade = CascadeType.ALL)
+    @OrderBy("id")
+    @ToString.Exclude
+    private List<BookingItem> items;
+
     @Version //optimistic concurrency control b/w booking cleanup job and booking by user
     @Column(nullable = false)
     private Long version;
@@ -0,0 +1,43 @@
+package com.pratham.livo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+//one room type of a cart booking, a single room booking has none
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(
+        indexes = {
+                @Index(name = "idx_booking_item_booking", columnList = "booking_id"),
+                //for finding the carts of a deleted room
+                @Index(name = "idx_booking_item_room", columnList = "room_id")
+        }
+)
+public class BookingItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "booking_id", nullable = false)
+    @ToString.Exclude
+    private Booking booking;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "room_id", nullable = false)
+    @ToString.Exclude
+    private Room room;
+
+    @Column(nullable = false)
+    private Integer roomsCount;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal amount;
+}
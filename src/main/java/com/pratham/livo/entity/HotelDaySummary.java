@@ -0,0 +1,52 @@
+package com.pratham.livo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+//derived from inventory, one row per hotel per date
+//refreshed right after the inventory writes commit, rebuilt daily
+//keyed by (hotel_id, date), the refresh upserts on that key
+//prefilters the db search path, per room availability and prices still come from inventory
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@IdClass(HotelDaySummaryId.class)
+@Table(
+        indexes = {
+                //for searching hotels in a city b/w dates
+                @Index(name = "idx_summary_city_date",
+                        columnList = "city, date, max_free_count")
+        }
+)
+public class HotelDaySummary {
+    @Id
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "hotel_id",nullable = false)
+    @ToString.Exclude
+    private Hotel hotel;
+
+    @Column(nullable = false)
+    private String city;
+
+    @Id
+    @Column(nullable = false)
+    private LocalDate date;
+
+    //free rooms of the emptiest room type, 0 if every room type is closed
+    @Column(nullable = false)
+    private Integer maxFreeCount;
+
+    //cheapest open room type, null if every room type is closed
+    @Column(precision = 10,scale = 2)
+    private BigDecimal minPrice;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,19 @@
+package com.pratham.livo.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+//primary key of HotelDaySummary
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class HotelDaySummaryId implements Serializable {
+    private Long hotel;
+    private LocalDate date;
+}
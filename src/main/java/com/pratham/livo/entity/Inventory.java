@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.PartitionKey;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -54,6 +55,9 @@ public class Inventory {
     @ToString.Exclude
     private Room room;
 
+    //the table is partitioned by month on date, hibernate adds it to update and delete predicates
+    //so an entity update touches one partition instead of probing every one of them by id
+    @PartitionKey
     @Column(nullable = false)
     private LocalDate date;
 
@@ -78,6 +82,15 @@ public class Inventory {
     @Column(nullable = false)
     private Boolean closed;
 
+    @Column(nullable = false,columnDefinition = "BOOLEAN DEFAULT FALSE")
+    private Boolean priceDirty; //an input of the price changed, the incremental repricer picks the row up
+
+    //bumped by every write to the counters or availability, native ones included
+    //price writes leave it alone so the pricing job never conflicts with a booking
+    @Version //optimistic concurrency control for livo.booking.reservation-mode=optimistic
+    @Column(nullable = false,columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
     @CreationTimestamp
     @Column(updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,59 @@
+package com.pratham.livo.entity;
+
+import com.pratham.livo.enums.LedgerEntryType;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+//append only counter changes of one room night, written instead of updating the inventory row
+//the free count of a night is total - booked - reserved of the inventory row minus the deltas still here
+//compaction adds the deltas into inventory and deletes the rows in the same statement
+//plain ids and no foreign keys, an append must not lock the room or booking row
+@Entity
+@Immutable
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(
+        indexes = {
+                //for summing the uncompacted deltas of a stay
+                @Index(name = "idx_ledger_room_date",
+                        columnList = "room_id, date")
+        }
+)
+public class InventoryLedger {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long roomId;
+
+    @Column(nullable = false)
+    private LocalDate date;
+
+    //idempotency key of the booking request, holds are written before the booking exists
+    private String holdId;
+
+    private Long bookingId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private LedgerEntryType entryType;
+
+    @Column(nullable = false)
+    private Integer reservedDelta;
+
+    @Column(nullable = false)
+    private Integer bookedDelta;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,51 @@
+package com.pratham.livo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+//a rabbitmq message written in the transaction that produced it, sent by OutboxRelay after the commit
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(
+        indexes = {
+                //for the relay picking the oldest due messages
+                @Index(name = "idx_outbox_available", columnList = "availableAt, id")
+        }
+)
+public class OutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String exchange;
+
+    @Column(nullable = false)
+    private String routingKey;
+
+    //the type id header of the json converter, consumers map the body back with it
+    @Column(nullable = false)
+    private String payloadType;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    //pushed back after a failed send
+    @Column(nullable = false)
+    private LocalDateTime availableAt;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,68 @@
+package com.pratham.livo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+//surge multiplier for a city, a hotel or a room over a date range
+//applied on top of the stored inventory price when prices are read, so no inventory row is rewritten
+//the scope is the most specific one set: room, then hotel, then city
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(
+        indexes = {
+                //for listing the rules of a hotel
+                @Index(name = "idx_surge_rule_hotel",
+                        columnList = "hotel_id, start_date")
+        }
+)
+public class SurgeRule {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    //city of the hotel for hotel and room rules, so a change can invalidate the city's search pages
+    @Column(nullable = false)
+    private String city;
+
+    //null for a city wide rule
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "hotel_id")
+    @ToString.Exclude
+    private Hotel hotel;
+
+    //null for a hotel or city wide rule
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "room_id")
+    @ToString.Exclude
+    private Room room;
+
+    @Column(nullable = false)
+    private LocalDate startDate;
+
+    @Column(nullable = false)
+    private LocalDate endDate; //inclusive
+
+    @Column(nullable = false,precision = 5,scale = 2)
+    private BigDecimal factor;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Boolean active = true;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
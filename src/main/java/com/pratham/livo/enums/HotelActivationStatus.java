@@ -0,0 +1,8 @@
+package com.pratham.livo.enums;
+
+public enum HotelActivationStatus {
+    QUEUED,
+    IN_PROGRESS,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,16 @@
+package com.pratham.livo.enums;
+
+public enum InventoryChangeType {
+    CREATED,
+    RESERVED,
+    RELEASED,
+    CONFIRMED,
+    CANCELLED,
+    REPRICED,
+    REMOVED;
+
+    //true if the free count (total - booked - reserved) of the rows can change
+    public boolean affectsAvailability() {
+        return this != CONFIRMED && this != REPRICED;
+    }
+}
@@ -0,0 +1,9 @@
+package com.pratham.livo.enums;
+
+//what a row of inventory_ledger does to the counters of its night
+public enum LedgerEntryType {
+    HOLD,    //reserved +rooms
+    RELEASE, //reserved -rooms
+    COMMIT,  //reserved -rooms, booked +rooms
+    CANCEL   //booked -rooms
+}
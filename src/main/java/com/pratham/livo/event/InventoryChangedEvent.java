@@ -0,0 +1,49 @@
+package com.pratham.livo.event;
+
+import com.pratham.livo.entity.Booking;
+import com.pratham.livo.entity.Room;
+import com.pratham.livo.enums.InventoryChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+//published in-process whenever inventory rows are written
+//also travels over rabbitmq so that every instance sees the change
+public class InventoryChangedEvent {
+    private Long hotelId;
+    private Long roomId; //null when the change covers every room of the hotel
+    private String city;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private InventoryChangeType changeType;
+
+    public static InventoryChangedEvent forBooking(Booking booking, InventoryChangeType changeType) {
+        return InventoryChangedEvent.builder()
+                .hotelId(booking.getHotel().getId())
+                .roomId(booking.getRoom().getId())
+                .city(booking.getHotel().getCity())
+                .startDate(booking.getStartDate())
+                .endDate(booking.getEndDate())
+                .changeType(changeType)
+                .build();
+    }
+
+    public static InventoryChangedEvent forRoom(Room room, LocalDate startDate, LocalDate endDate,
+                                                InventoryChangeType changeType) {
+        return InventoryChangedEvent.builder()
+                .hotelId(room.getHotel().getId())
+                .roomId(room.getId())
+                .city(room.getHotel().getCity())
+                .startDate(startDate)
+                .endDate(endDate)
+                .changeType(changeType)
+                .build();
+    }
+}
@@ -0,0 +1,43 @@
+package com.pratham.livo.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CompactedLedgerWrapper {
+    private Long hotelId;
+    private Long roomId;
+    private String city;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private boolean held;
+    private boolean released;
+    private boolean committed;
+    private boolean cancelled;
+
+    //maps one row of InventoryLedgerRepository.compactLedger
+    public static CompactedLedgerWrapper fromRow(Object[] row) {
+        return new CompactedLedgerWrapper(
+                ((Number) row[0]).longValue(),
+                ((Number) row[1]).longValue(),
+                (String) row[2],
+                toLocalDate(row[3]),
+                toLocalDate(row[4]),
+                (Boolean) row[5],
+                (Boolean) row[6],
+                (Boolean) row[7],
+                (Boolean) row[8]
+        );
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof Date date) return date.toLocalDate();
+        return (LocalDate) value;
+    }
+}
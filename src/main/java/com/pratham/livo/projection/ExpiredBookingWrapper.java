@@ -0,0 +1,37 @@
+package com.pratham.livo.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExpiredBookingWrapper {
+    private Long bookingId;
+    private Long hotelId;
+    private String city;
+    private Long roomId;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    //maps one row of BookingRepository.expireUnpaidBookings
+    public static ExpiredBookingWrapper fromRow(Object[] row) {
+        return new ExpiredBookingWrapper(
+                ((Number) row[0]).longValue(),
+                ((Number) row[1]).longValue(),
+                (String) row[2],
+                ((Number) row[3]).longValue(),
+                toLocalDate(row[4]),
+                toLocalDate(row[5])
+        );
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof Date date) return date.toLocalDate();
+        return (LocalDate) value;
+    }
+}
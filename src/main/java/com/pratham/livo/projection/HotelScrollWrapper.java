@@ -0,0 +1,49 @@
+package com.pratham.livo.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HotelScrollWrapper {
+    private Long id;
+    private String name;
+    private String city;
+    private List<String> photos;
+    private BigDecimal minPrice;
+    private Long totalCount;
+
+    //maps one row of InventoryRepository.scrollAvailableHotels
+    public static HotelScrollWrapper fromRow(Object[] row) {
+        return new HotelScrollWrapper(
+                ((Number) row[0]).longValue(),
+                (String) row[1],
+                (String) row[2],
+                toList(row[3]),
+                (BigDecimal) row[4],
+                row[5] == null ? null : ((Number) row[5]).longValue()
+        );
+    }
+
+    //TEXT[] comes back either as a java array or as a jdbc array depending on the driver path
+    private static List<String> toList(Object photos) {
+        try {
+            if (photos == null) return List.of();
+            if (photos instanceof Array sqlArray) photos = sqlArray.getArray();
+            if (photos instanceof Object[] array) {
+                return Arrays.stream(array).map(String::valueOf).toList();
+            }
+            return List.of();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read hotel photos", e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.pratham.livo.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InventoryAvailabilityWrapper {
+    private Long id;
+    private Long hotelId;
+    private Long roomId;
+    private String city;
+    private LocalDate date;
+    private Integer freeCount;
+    private Boolean closed;
+    private Long version; //of the inventory row, orders two reads of the same night
+}
@@ -0,0 +1,35 @@
+package com.pratham.livo.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InventoryExtensionWrapper {
+    private Long hotelId;
+    private String city;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private Long createdCount;
+
+    //maps one row of InventoryRepository.extendInventoryForRooms
+    public static InventoryExtensionWrapper fromRow(Object[] row) {
+        return new InventoryExtensionWrapper(
+                ((Number) row[0]).longValue(),
+                (String) row[1],
+                toLocalDate(row[2]),
+                toLocalDate(row[3]),
+                ((Number) row[4]).longValue()
+        );
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof Date date) return date.toLocalDate();
+        return (LocalDate) value;
+    }
+}
@@ -0,0 +1,45 @@
+package com.pratham.livo.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InventoryPricingWrapper {
+    private Long id;
+    private LocalDate date;
+    private Long hotelId;
+    private Long roomId;
+    private String city;
+    private Integer totalCount;
+    private Integer bookedCount;
+    private Integer surgeBasisPoints;
+    private Long pricePaise;
+    private Long basePricePaise;
+
+    //maps one row of InventoryRepository.findInventoriesForPricingAfter
+    public static InventoryPricingWrapper fromRow(Object[] row) {
+        return new InventoryPricingWrapper(
+                ((Number) row[0]).longValue(),
+                toLocalDate(row[1]),
+                ((Number) row[2]).longValue(),
+                ((Number) row[3]).longValue(),
+                (String) row[4],
+                ((Number) row[5]).intValue(),
+                ((Number) row[6]).intValue(),
+                ((Number) row[7]).intValue(),
+                ((Number) row[8]).longValue(),
+                ((Number) row[9]).longValue()
+        );
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof Date date) return date.toLocalDate();
+        return (LocalDate) value;
+    }
+}
@@ -0,0 +1,36 @@
+package com.pratham.livo.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InventoryVersionWrapper {
+    private Long id;
+    private LocalDate date;
+    private int freeCount;
+    private BigDecimal price;
+    private long version;
+
+    //maps one row of InventoryRepository.findInventoryVersionsForRoom
+    public static InventoryVersionWrapper fromRow(Object[] row) {
+        return new InventoryVersionWrapper(
+                ((Number) row[0]).longValue(),
+                toLocalDate(row[1]),
+                ((Number) row[2]).intValue(),
+                (BigDecimal) row[3],
+                ((Number) row[4]).longValue()
+        );
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof Date date) return date.toLocalDate();
+        return (LocalDate) value;
+    }
+}
@@ -0,0 +1,29 @@
+package com.pratham.livo.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboxBacklogWrapper {
+    private long pending;
+    private LocalDateTime oldestCreatedAt; //null when the outbox is empty
+
+    //maps the row of OutboxMessageRepository.findBacklog
+    public static OutboxBacklogWrapper fromRow(Object[] row) {
+        return new OutboxBacklogWrapper(
+                ((Number) row[0]).longValue(),
+                toLocalDateTime(row[1])
+        );
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) return timestamp.toLocalDateTime();
+        return (LocalDateTime) value;
+    }
+}
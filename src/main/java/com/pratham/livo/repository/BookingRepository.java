@@ -22,6 +22,17 @@ public interface BookingRepository extends JpaRepository<Booking,Long> {
 
     List<Booking> findByBookingStatusInAndUpdatedAtBefore(List<BookingStatus> statusList, LocalDateTime threshold, Pageable limit);
 
+    long countByBookingStatusInAndUpdatedAtBefore(List<BookingStatus> statusList, LocalDateTime threshold);
+
+    @Query("""
+            select min(b.updatedAt) from Booking b
+            where b.bookingStatus in :statusList and b.updatedAt < :threshold
+            """)
+    Optional<LocalDateTime> findOldestUpdatedAt(
+            @Param("statusList") List<BookingStatus> statusList,
+            @Param("threshold") LocalDateTime threshold
+    );
+
 
     @Modifying(clearAutomatically = true, flushAutomatically = true)
     @Query("""
@@ -43,6 +54,14 @@ public interface BookingRepository extends JpaRepository<Booking,Long> {
             """)
     void expireBookingsForRoom(@Param("room") Room room);
 
+    //unpaid cart bookings holding this room, their other rooms still have reserved counts to give back
+    @Query("""
+            select distinct b from Booking b join b.items i
+            where i.room = :room
+            AND b.bookingStatus IN ('RESERVED', 'GUESTS_ADDED', 'PAYMENT_PENDING')
+            """)
+    List<Booking> findUnpaidCartsWithRoom(@Param("room") Room room);
+
 
     @Query("""
             select new com.pratham.livo.projection.BookingWrapper(
@@ -61,4 +80,54 @@ public interface BookingRepository extends JpaRepository<Booking,Long> {
     JOIN FETCH b.hotel JOIN FETCH b.room
     WHERE b.id = :bookingId""")
     Optional<Booking> findByIdWithGuests(@Param("bookingId") Long bookingId);
+
+    //expires a batch of unpaid bookings and gives their reserved rooms back in one statement
+    //bookings locked by a user request (payment, guests) are skipped, the next run picks them up
+    //overlapping stays of the same room are summed into one delta per inventory row
+    //a cart booking releases each of its items, a single room booking its own room
+    //inventory rows are locked in (room, date) order like the reservation path, so the two never deadlock
+    @Query(value = """
+            WITH expired AS (
+                SELECT b.id FROM booking b
+                WHERE b.booking_status IN ('RESERVED', 'GUESTS_ADDED', 'PAYMENT_PENDING')
+                AND b.updated_at < :threshold
+                ORDER BY b.updated_at
+                LIMIT :batch_size
+                FOR UPDATE SKIP LOCKED
+            ), flipped AS (
+                UPDATE booking b
+                SET booking_status = 'EXPIRED', version = b.version + 1, updated_at = NOW()
+                FROM expired e
+                WHERE b.id = e.id
+                RETURNING b.id, b.hotel_id, b.room_id, b.start_date, b.end_date, b.rooms_count
+            ), rooms AS (
+                SELECT f.id, f.hotel_id, COALESCE(bi.room_id, f.room_id) AS room_id, f.start_date, f.end_date,
+                    COALESCE(bi.rooms_count, f.rooms_count) AS rooms_count
+                FROM flipped f
+                LEFT JOIN booking_item bi ON bi.booking_id = f.id
+            ), deltas AS (
+                SELECT r.room_id, d.day::date AS date, SUM(r.rooms_count) AS delta
+                FROM rooms r
+                CROSS JOIN LATERAL generate_series(r.start_date, r.end_date, interval '1 day') AS d(day)
+                GROUP BY r.room_id, d.day::date
+            ), locked AS (
+                SELECT i.id, i.date, d.delta FROM inventory i
+                JOIN deltas d ON d.room_id = i.room_id AND d.date = i.date
+                ORDER BY i.room_id, i.date
+                FOR UPDATE OF i
+            ), released AS (
+                UPDATE inventory i
+                SET reserved_count = GREATEST(i.reserved_count - l.delta, 0), version = i.version + 1, updated_at = NOW()
+                FROM locked l
+                WHERE i.id = l.id AND i.date = l.date
+                RETURNING i.id
+            )
+            SELECT r.id, r.hotel_id, h.city, r.room_id, r.start_date, r.end_date
+            FROM rooms r JOIN hotel h ON h.id = r.hotel_id
+            """, nativeQuery = true)
+    //one row per released room, a cart booking returns several
+    List<Object[]> expireUnpaidBookings(
+            @Param("threshold") LocalDateTime threshold,
+            @Param("batch_size") Integer batchSize
+    );
 }
@@ -0,0 +1,67 @@
+package com.pratham.livo.repository;
+
+import com.pratham.livo.entity.HotelDaySummary;
+import com.pratham.livo.entity.HotelDaySummaryId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface HotelDaySummaryRepository extends JpaRepository<HotelDaySummary,HotelDaySummaryId> {
+
+    long countByDateGreaterThanEqual(LocalDate date);
+
+    //serializes summary refreshes of one hotel until commit
+    //so that a refresh never overwrites a newer one computed from an older snapshot
+    //class 1 keeps hotel locks apart from the other advisory locks, the bigint id is hashed
+    //into the int4 key instead of cast, two hotels sharing a hash only wait on each other
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(1, hashint8(:hotel_id))", nativeQuery = true)
+    Integer lockHotel(@Param("hotel_id") Long hotelId);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            INSERT INTO hotel_day_summary (hotel_id, city, date, max_free_count, min_price, updated_at)
+            SELECT i.hotel_id, i.city, i.date,
+                MAX(CASE WHEN i.closed THEN 0 ELSE i.total_count - i.booked_count - i.reserved_count END),
+                MIN(CASE WHEN i.closed THEN NULL ELSE i.price END),
+                NOW()
+            FROM inventory i
+            WHERE i.hotel_id = :hotel_id
+            AND i.date BETWEEN :start_date AND :end_date
+            GROUP BY i.hotel_id, i.city, i.date
+            ORDER BY i.date
+            ON CONFLICT (hotel_id, date) DO UPDATE SET
+                max_free_count = EXCLUDED.max_free_count,
+                min_price = EXCLUDED.min_price,
+                updated_at = EXCLUDED.updated_at
+            """, nativeQuery = true)
+    int refreshForHotel(@Param("hotel_id") Long hotelId,
+                        @Param("start_date") LocalDate startDate,
+                        @Param("end_date") LocalDate endDate);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            DELETE FROM hotel_day_summary
+            WHERE hotel_id = :hotel_id
+            AND date BETWEEN :start_date AND :end_date
+            """, nativeQuery = true)
+    int deleteForHotel(@Param("hotel_id") Long hotelId,
+                       @Param("start_date") LocalDate startDate,
+                       @Param("end_date") LocalDate endDate);
+
+    //drops past days and days whose inventory no longer exists
+    @Modifying
+    @Query(value = """
+            DELETE FROM hotel_day_summary s
+            WHERE s.date < :from_date
+            OR NOT EXISTS (
+                SELECT 1 FROM inventory i
+                WHERE i.hotel_id = s.hotel_id AND i.date = s.date
+            )
+            """, nativeQuery = true)
+    int deleteStale(@Param("from_date") LocalDate fromDate);
+}
@@ -41,6 +41,9 @@ public interface HotelRepository extends JpaRepository<Hotel,Long> {
     List<BestHotelWrapper> findBestHotels(Pageable pageable);
 
 
+    @Query("select h.id from Hotel h where h.active = true and h.deleted = false order by h.id")
+    List<Long> findActiveHotelIds();
+
     @Query("""
             select new com.pratham.livo.projection.ManagersHotelWrapper(
             h.id, h.name, h.city, h.photos, h.active) from Hotel h
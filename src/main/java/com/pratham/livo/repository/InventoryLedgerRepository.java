@@ -0,0 +1,127 @@
+package com.pratham.livo.repository;
+
+import com.pratham.livo.entity.InventoryLedger;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface InventoryLedgerRepository extends JpaRepository<InventoryLedger,Long> {
+
+    @Query(value = "SELECT current_setting('lock_timeout')", nativeQuery = true)
+    String getLockTimeout();
+
+    //local to the transaction, every later lock wait of the transaction uses it until it is set again
+    @Query(value = "SELECT set_config('lock_timeout', :lock_timeout, true)", nativeQuery = true)
+    String setLockTimeout(@Param("lock_timeout") String lockTimeout);
+
+    //admission control for one room until the booking transaction ends, class 2 of the advisory locks
+    //only holds take it, releases and cancellations give rooms back and never wait
+    //the bigint id is hashed into the int4 key instead of cast, two rooms sharing a hash only wait on each other
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(2, hashint8(:room_id))", nativeQuery = true)
+    Integer lockRoom(@Param("room_id") Long roomId);
+
+    //appends a hold for every night of the stay if every night still has enough free rooms, else nothing
+    //must run under lockRoom so two holds of the same room never count the same free rooms
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            WITH nights AS (
+                SELECT i.date,
+                    i.total_count - i.booked_count - i.reserved_count
+                        - COALESCE(SUM(l.reserved_delta + l.booked_delta), 0) AS free_count
+                FROM inventory i
+                JOIN room r ON r.id = i.room_id
+                LEFT JOIN inventory_ledger l ON l.room_id = i.room_id AND l.date = i.date
+                WHERE i.room_id = :room_id
+                AND r.active = true AND r.deleted = false
+                AND i.date BETWEEN :start_date AND :end_date
+                AND i.closed = false
+                GROUP BY i.date, i.total_count, i.booked_count, i.reserved_count
+            ), admitted AS (
+                SELECT n.date FROM nights n WHERE n.free_count >= :rooms_count
+            )
+            INSERT INTO inventory_ledger (room_id, date, hold_id, entry_type, reserved_delta, booked_delta, created_at)
+            SELECT :room_id, a.date, :hold_id, 'HOLD', :rooms_count, 0, NOW()
+            FROM admitted a
+            WHERE (SELECT COUNT(*) FROM admitted) = :nights
+            """, nativeQuery = true)
+    int holdInventory(
+            @Param("room_id") Long roomId,
+            @Param("start_date") LocalDate startDate,
+            @Param("end_date") LocalDate endDate,
+            @Param("rooms_count") Integer roomsCount,
+            @Param("nights") Long nights,
+            @Param("hold_id") String holdId
+    );
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            INSERT INTO inventory_ledger (room_id, date, booking_id, entry_type, reserved_delta, booked_delta, created_at)
+            SELECT :room_id, CAST(d.day AS DATE), :booking_id, :entry_type, :reserved_delta, :booked_delta, NOW()
+            FROM generate_series(CAST(:start_date AS DATE), CAST(:end_date AS DATE), INTERVAL '1 day') AS d(day)
+            """, nativeQuery = true)
+    int appendEntries(
+            @Param("room_id") Long roomId,
+            @Param("booking_id") Long bookingId,
+            @Param("start_date") LocalDate startDate,
+            @Param("end_date") LocalDate endDate,
+            @Param("entry_type") String entryType,
+            @Param("reserved_delta") Integer reservedDelta,
+            @Param("booked_delta") Integer bookedDelta
+    );
+
+    //one compactor at a time across every instance, class 4 of the advisory locks, held until commit.
+    //batches have to be folded in id order: a batch holding a release folded before the batch holding
+    //its hold would clamp the counter at 0 and the hold would later leave the rooms reserved for good
+    @Query(value = "SELECT pg_try_advisory_xact_lock(4, 0)", nativeQuery = true)
+    boolean tryLockCompaction();
+
+    //moves the oldest entries into the inventory counters and deletes them in one statement
+    //readers see either the entries or the counters, never both or neither
+    //must run under tryLockCompaction, rows are locked in id order like everywhere else
+    //returns the compacted range per room and which kinds of entries it held, for the change events
+    @Query(value = """
+            WITH batch AS (
+                DELETE FROM inventory_ledger
+                WHERE id IN (
+                    SELECT id FROM inventory_ledger
+                    ORDER BY id
+                    LIMIT :batch_size
+                    FOR UPDATE
+                )
+                RETURNING room_id, date, entry_type, reserved_delta, booked_delta
+            ), sums AS (
+                SELECT b.room_id, b.date,
+                    SUM(b.reserved_delta) AS reserved_delta, SUM(b.booked_delta) AS booked_delta
+                FROM batch b
+                GROUP BY b.room_id, b.date
+            ), locked AS (
+                SELECT i.id, i.date FROM inventory i
+                JOIN sums s ON s.room_id = i.room_id AND s.date = i.date
+                ORDER BY i.id
+                FOR UPDATE OF i
+            ), compacted AS (
+                UPDATE inventory i
+                SET reserved_count = GREATEST(i.reserved_count + s.reserved_delta, 0),
+                    booked_count = GREATEST(i.booked_count + s.booked_delta, 0),
+                    version = i.version + 1,
+                    updated_at = NOW()
+                FROM locked l, sums s
+                WHERE i.id = l.id AND i.date = l.date
+                AND s.room_id = i.room_id AND s.date = i.date
+                RETURNING i.hotel_id, i.room_id, i.city
+            )
+            SELECT c.hotel_id, c.room_id, c.city, MIN(b.date), MAX(b.date),
+                BOOL_OR(b.entry_type = 'HOLD'), BOOL_OR(b.entry_type = 'RELEASE'),
+                BOOL_OR(b.entry_type = 'COMMIT'), BOOL_OR(b.entry_type = 'CANCEL')
+            FROM (SELECT DISTINCT hotel_id, room_id, city FROM compacted) c
+            JOIN batch b ON b.room_id = c.room_id
+            GROUP BY c.hotel_id, c.room_id, c.city
+            """, nativeQuery = true)
+    List<Object[]> compactLedger(@Param("batch_size") int batchSize);
+}
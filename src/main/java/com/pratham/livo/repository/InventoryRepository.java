@@ -3,6 +3,7 @@ package com.pratham.livo.repository;
 import com.pratham.livo.entity.Hotel;
 import com.pratham.livo.entity.Inventory;
 import com.pratham.livo.entity.Room;
+import com.pratham.livo.projection.InventoryAvailabilityWrapper;
 import com.pratham.livo.projection.PriceCheckWrapper;
 import com.pratham.livo.projection.RoomAvailabilityWrapper;
 import jakarta.persistence.LockModeType;
@@ -12,7 +13,10 @@ import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -63,6 +67,134 @@ public interface InventoryRepository extends JpaRepository<Inventory,Long> {
             Pageable pageable
     );
 
+    //same result as findAvailableHotels, but only hotels whose day summary shows enough free rooms
+    //on every night are expanded into per-room rows
+    @Query("""
+            SELECT DISTINCT i.hotel FROM Inventory i
+            WHERE
+            i.hotel.active = true AND i.hotel.deleted = false AND
+            i.hotel.id IN (
+                SELECT s.hotel.id FROM HotelDaySummary s
+                WHERE s.city = :city AND
+                s.date BETWEEN :start_date AND :end_date AND
+                s.maxFreeCount >= :rooms_count
+                GROUP BY s.hotel.id HAVING COUNT(s.date) = :date_count
+            ) AND
+            i.city = :city AND
+            i.date BETWEEN :start_date AND :end_date AND
+            i.closed = false AND
+            (i.totalCount-i.bookedCount-i.reservedCount) >= :rooms_count
+            GROUP BY i.hotel, i.room HAVING COUNT(i.date) = :date_count
+    """)
+    Page<Hotel> findAvailableHotelsFromSummary(
+            @Param("city") String city,
+            @Param("start_date") LocalDate startDate,
+            @Param("end_date") LocalDate endDate,
+            @Param("rooms_count") Integer roomsCount,
+            @Param("date_count") Long dateCount,
+            Pageable pageable
+    );
+
+    //bulk inventory creation for the given rooms and dates, the rows are generated inside postgres
+    //so nothing goes through the persistence context, existing rows are skipped
+    //returns the created range per hotel like extendInventoryForRooms
+    @Query(value = """
+            WITH inserted AS (
+                INSERT INTO inventory (id, hotel_id, room_id, date, total_count, booked_count, reserved_count,
+                    surge_factor, price, city, closed, price_dirty, created_at, updated_at)
+                SELECT nextval('inventory_seq'), h.id, r.id, CAST(d.day AS DATE), r.total_count, 0, 0,
+                    1, r.base_price, h.city, false, true, NOW(), NOW()
+                FROM room r
+                JOIN hotel h ON h.id = r.hotel_id
+                CROSS JOIN generate_series(CAST(:start_date AS DATE), CAST(:end_date AS DATE), INTERVAL '1 day') AS d(day)
+                WHERE r.id IN :room_ids
+                ORDER BY r.id, d.day
+                ON CONFLICT (hotel_id, room_id, date) DO NOTHING
+                RETURNING hotel_id, city, date
+            )
+            SELECT hotel_id, city, MIN(date), MAX(date), COUNT(*)
+            FROM inserted
+            GROUP BY hotel_id, city
+            """, nativeQuery = true)
+    List<Object[]> insertInventoryForRooms(
+            @Param("room_ids") List<Long> roomIds,
+            @Param("start_date") LocalDate startDate,
+            @Param("end_date") LocalDate endDate
+    );
+
+    //appends the days after each room's last inventory day up to the horizon in one statement
+    //rows that already exist are skipped by uniq_hotel_room_date so reruns are harmless
+    //returns the created range per hotel so caches and summaries can be refreshed
+    @Query(value = """
+            WITH inserted AS (
+                INSERT INTO inventory (id, hotel_id, room_id, date, total_count, booked_count, reserved_count,
+                    surge_factor, price, city, closed, price_dirty, created_at, updated_at)
+                SELECT nextval('inventory_seq'), h.id, r.id, CAST(d.day AS DATE), r.total_count, 0, 0,
+                    1, r.base_price, h.city, false, true, NOW(), NOW()
+                FROM room r
+                JOIN hotel h ON h.id = r.hotel_id
+                CROSS JOIN LATERAL generate_series(
+                    GREATEST(
+                        CAST(:from_date AS DATE),
+                        COALESCE((SELECT MAX(i.date) FROM inventory i WHERE i.room_id = r.id) + 1, CAST(:from_date AS DATE))
+                    ),
+                    CAST(:horizon_date AS DATE),
+                    INTERVAL '1 day'
+                ) AS d(day)
+                WHERE r.id IN :room_ids
+                ORDER BY r.id, d.day
+                ON CONFLICT (hotel_id, room_id, date) DO NOTHING
+                RETURNING hotel_id, city, date
+            )
+            SELECT hotel_id, city, MIN(date), MAX(date), COUNT(*)
+            FROM inserted
+            GROUP BY hotel_id, city
+            """, nativeQuery = true)
+    List<Object[]> extendInventoryForRooms(
+            @Param("room_ids") List<Long> roomIds,
+            @Param("from_date") LocalDate fromDate,
+            @Param("horizon_date") LocalDate horizonDate
+    );
+
+    //single round trip search page: availability, cheapest room price and hotel card fields
+    //keyset pagination on hotel id, the total is only computed when asked for
+    @Query(value = """
+            WITH qualifying AS (
+                SELECT i.hotel_id, ROUND(AVG(i.price), 2) AS avg_price
+                FROM inventory i
+                WHERE i.city = :city
+                AND i.date BETWEEN :start_date AND :end_date
+                AND i.closed = false
+                AND (i.total_count - i.booked_count - i.reserved_count) >= :rooms_count
+                GROUP BY i.hotel_id, i.room_id
+                HAVING COUNT(i.date) = :date_count
+            ), priced AS (
+                SELECT q.hotel_id, MIN(q.avg_price) AS min_price
+                FROM qualifying q
+                GROUP BY q.hotel_id
+            )
+            SELECT h.id, h.name, h.city, h.photos, p.min_price,
+                CASE WHEN :with_total THEN (
+                    SELECT COUNT(*) FROM priced p2 JOIN hotel h2 ON h2.id = p2.hotel_id
+                    WHERE h2.active = true AND h2.deleted = false
+                ) END AS total_count
+            FROM priced p JOIN hotel h ON h.id = p.hotel_id
+            WHERE h.active = true AND h.deleted = false
+            AND h.id > :after_id
+            ORDER BY h.id ASC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Object[]> scrollAvailableHotels(
+            @Param("city") String city,
+            @Param("start_date") LocalDate startDate,
+            @Param("end_date") LocalDate endDate,
+            @Param("rooms_count") Integer roomsCount,
+            @Param("date_count") Long dateCount,
+            @Param("after_id") Long afterId,
+            @Param("limit") Integer limit,
+            @Param("with_total") Boolean withTotal
+    );
+
     @Query("""
             SELECT new com.pratham.livo.projection.RoomAvailabilityWrapper(
                 r,
@@ -119,14 +251,122 @@ public interface InventoryRepository extends JpaRepository<Inventory,Long> {
                                               @Param("endDate") LocalDate endDate);
 
 
-    @Query("""
-            SELECT i FROM Inventory i JOIN FETCH i.room WHERE
-            i.closed = false AND i.date >= :today
-            AND (i.totalCount - i.bookedCount - i.reservedCount) > 0
-            """)
-    Page<Inventory> findInventoriesForDynamicPricing(
+    //a pricing input of these rows changed (booked count, surge), repriced by the next incremental run
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            UPDATE inventory
+            SET price_dirty = true
+            WHERE hotel_id = :hotel_id
+            AND (CAST(:room_id AS BIGINT) IS NULL OR room_id = :room_id)
+            AND date BETWEEN :start_date AND :end_date
+            AND price_dirty = false
+            """, nativeQuery = true)
+    int markPriceDirty(
+            @Param("hotel_id") Long hotelId,
+            @Param("room_id") Long roomId,
+            @Param("start_date") LocalDate startDate,
+            @Param("end_date") LocalDate endDate
+    );
+
+    //days whose price changes only because time passed (urgency thresholds)
+    @Modifying
+    @Query(value = """
+            UPDATE inventory
+            SET price_dirty = true
+            WHERE date IN :dates
+            AND closed = false
+            AND price_dirty = false
+            """, nativeQuery = true)
+    int markPriceDirtyOnDates(@Param("dates") List<LocalDate> dates);
+
+    //past days are never priced again, keeps the partial index small
+    @Modifying
+    @Query(value = """
+            UPDATE inventory
+            SET price_dirty = false
+            WHERE date < :today
+            AND price_dirty = true
+            """, nativeQuery = true)
+    int clearPriceDirtyBefore(@Param("today") LocalDate today);
+
+    //claims a batch of dirty rows and clears their flag in one statement, in the same columns as
+    //findInventoriesForPricingAfter, rows locked by a booking are skipped and stay dirty
+    @Query(value = """
+            WITH dirty AS (
+                SELECT i.id, i.date FROM inventory i
+                WHERE i.price_dirty = true
+                AND i.date >= :today
+                ORDER BY i.id
+                LIMIT :batch_size
+                FOR UPDATE SKIP LOCKED
+            )
+            UPDATE inventory i
+            SET price_dirty = false
+            FROM dirty d, room r
+            WHERE i.id = d.id AND i.date = d.date AND r.id = i.room_id
+            RETURNING i.id, i.date, i.hotel_id, i.room_id, i.city, i.total_count, i.booked_count,
+                      CAST(ROUND(i.surge_factor * 10000) AS INTEGER),
+                      CAST(ROUND(i.price * 100) AS BIGINT), CAST(ROUND(r.base_price * 100) AS BIGINT)
+            """, nativeQuery = true)
+    List<Object[]> claimDirtyInventoriesForPricing(
             @Param("today") LocalDate today,
-            Pageable pageable
+            @Param("batch_size") Integer batchSize
+    );
+
+    //the nights of one room whose occupancy just changed, in the columns of findInventoriesForPricingAfter
+    @Query(value = """
+            SELECT i.id, i.date, i.hotel_id, i.room_id, i.city, i.total_count, i.booked_count,
+                   CAST(ROUND(i.surge_factor * 10000) AS INTEGER),
+                   CAST(ROUND(i.price * 100) AS BIGINT), CAST(ROUND(r.base_price * 100) AS BIGINT)
+            FROM inventory i JOIN room r ON r.id = i.room_id
+            WHERE i.room_id = :room_id
+            AND i.date BETWEEN :start_date AND :end_date
+            AND i.date >= :today
+            """, nativeQuery = true)
+    List<Object[]> findInventoriesForRoomPricing(
+            @Param("room_id") Long roomId,
+            @Param("start_date") LocalDate startDate,
+            @Param("end_date") LocalDate endDate,
+            @Param("today") LocalDate today
+    );
+
+    //the event driven repricer handles these rows, the incremental run does not need to
+    @Modifying
+    @Query(value = """
+            UPDATE inventory
+            SET price_dirty = false
+            WHERE room_id = :room_id
+            AND date BETWEEN :start_date AND :end_date
+            AND price_dirty = true
+            """, nativeQuery = true)
+    int clearPriceDirty(
+            @Param("room_id") Long roomId,
+            @Param("start_date") LocalDate startDate,
+            @Param("end_date") LocalDate endDate
+    );
+
+    //next keyset page of rows to price, only the columns the pricing strategies read
+    //money comes back in paise and the surge factor in basis points for the fixed point engine
+    //the date bound prunes past partitions, each remaining partition is read in id order
+    @Query(value = """
+            SELECT i.id, i.date, i.hotel_id, i.room_id, i.city, i.total_count, i.booked_count,
+                   CAST(ROUND(i.surge_factor * 10000) AS INTEGER),
+                   CAST(ROUND(i.price * 100) AS BIGINT), CAST(ROUND(r.base_price * 100) AS BIGINT)
+            FROM inventory i JOIN room r ON r.id = i.room_id
+            WHERE i.id > :after_id
+            AND i.date >= :today
+            AND i.closed = false
+            AND (i.total_count - i.booked_count - i.reserved_count) > 0
+            AND MOD(i.hotel_id, :partitions) = :partition
+            ORDER BY i.id
+            LIMIT :batch_size
+            """, nativeQuery = true)
+    List<Object[]> findInventoriesForPricingAfter(
+            @Param("after_id") Long afterId,
+            @Param("today") LocalDate today,
+            @Param("partitions") Integer partitions,
+            @Param("partition") Integer partition,
+            @Param("batch_size") Integer batchSize
     );
 
     @Lock(LockModeType.PESSIMISTIC_WRITE)
@@ -139,4 +379,226 @@ public interface InventoryRepository extends JpaRepository<Inventory,Long> {
     List<Inventory> findInventoriesForBooking(@Param("roomId") Long roomId,
                                               @Param("startDate") LocalDate startDate,
                                               @Param("endDate") LocalDate endDate);
-}
\ No newline at end of file
+
+    //plain read of the stay for the optimistic mode, nothing is locked
+    //the versions are checked again by the update that reserves the rooms
+    @Query(value = """
+            SELECT i.id, i.date, i.total_count - i.booked_count - i.reserved_count, i.price, i.version
+            FROM inventory i
+            JOIN room r ON r.id = i.room_id
+            WHERE i.room_id = :room_id
+            AND r.active = true AND r.deleted = false
+            AND i.date BETWEEN :start_date AND :end_date
+            AND i.closed = false
+            ORDER BY i.date
+            """, nativeQuery = true)
+    List<Object[]> findInventoryVersionsForRoom(
+            @Param("room_id") Long roomId,
+            @Param("start_date") LocalDate startDate,
+            @Param("end_date") LocalDate endDate
+    );
+
+    //atomic reservation: locks the stay in date order and reserves every night that still has
+    //enough free rooms in one statement, returns the price of each reserved night
+    //fewer prices than nights means the stay is not available and the caller must roll back
+    @Query(value = """
+            WITH locked AS (
+                SELECT i.id, i.date FROM inventory i
+                JOIN room r ON r.id = i.room_id
+                WHERE i.room_id = :room_id
+                AND r.active = true AND r.deleted = false
+                AND i.date BETWEEN :start_date AND :end_date
+                ORDER BY i.date
+                FOR UPDATE OF i
+            ), reserved AS (
+                UPDATE inventory i
+                SET reserved_count = i.reserved_count + :rooms_count, version = i.version + 1, updated_at = NOW()
+                FROM locked l
+                WHERE i.id = l.id AND i.date = l.date
+                AND i.closed = false
+                AND (i.total_count - i.booked_count - i.reserved_count) >= :rooms_count
+                RETURNING i.price
+            )
+            SELECT price FROM reserved
+            """, nativeQuery = true)
+    List<BigDecimal> reserveInventory(
+            @Param("room_id") Long roomId,
+            @Param("start_date") LocalDate startDate,
+            @Param("end_date") LocalDate endDate,
+            @Param("rooms_count") Integer roomsCount
+    );
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            UPDATE inventory
+            SET reserved_count = GREATEST(reserved_count - :rooms_count, 0), version = version + 1, updated_at = NOW()
+            WHERE room_id = :room_id
+            AND date BETWEEN :start_date AND :end_date
+            """, nativeQuery = true)
+    int releaseReservedInventory(
+            @Param("room_id") Long roomId,
+            @Param("start_date") LocalDate startDate,
+            @Param("end_date") LocalDate endDate,
+            @Param("rooms_count") Integer roomsCount
+    );
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            UPDATE inventory
+            SET reserved_count = GREATEST(reserved_count - :rooms_count, 0),
+                booked_count = booked_count + :rooms_count,
+                version = version + 1,
+                updated_at = NOW()
+            WHERE room_id = :room_id
+            AND date BETWEEN :start_date AND :end_date
+            """, nativeQuery = true)
+    int confirmReservedInventory(
+            @Param("room_id") Long roomId,
+            @Param("start_date") LocalDate startDate,
+            @Param("end_date") LocalDate endDate,
+            @Param("rooms_count") Integer roomsCount
+    );
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            UPDATE inventory
+            SET booked_count = GREATEST(booked_count - :rooms_count, 0), version = version + 1, updated_at = NOW()
+            WHERE room_id = :room_id
+            AND date BETWEEN :start_date AND :end_date
+            """, nativeQuery = true)
+    int releaseBookedInventory(
+            @Param("room_id") Long roomId,
+            @Param("start_date") LocalDate startDate,
+            @Param("end_date") LocalDate endDate,
+            @Param("rooms_count") Integer roomsCount
+    );
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            UPDATE inventory
+            SET booked_count = booked_count + :rooms_count, version = version + 1, updated_at = NOW()
+            WHERE room_id = :room_id
+            AND date BETWEEN :start_date AND :end_date
+            """, nativeQuery = true)
+    int addBookedInventory(
+            @Param("room_id") Long roomId,
+            @Param("start_date") LocalDate startDate,
+            @Param("end_date") LocalDate endDate,
+            @Param("rooms_count") Integer roomsCount
+    );
+
+    //records a redis write-behind entry as applied, in the transaction that applies it
+    //returns 0 when the entry was applied before and is only being replayed
+    @Modifying
+    @Query(value = """
+            INSERT INTO inventory_write_behind_applied (booking_id, room_id, operation, applied_at)
+            VALUES (:booking_id, :room_id, :operation, NOW())
+            ON CONFLICT (booking_id, room_id, operation) DO NOTHING
+            """, nativeQuery = true)
+    int markWriteBehindApplied(
+            @Param("booking_id") Long bookingId,
+            @Param("room_id") Long roomId,
+            @Param("operation") String operation
+    );
+
+    //entries are only replayed until the flush that applied them trims the list
+    @Modifying
+    @Query(value = "DELETE FROM inventory_write_behind_applied WHERE applied_at < :applied_before", nativeQuery = true)
+    int deleteWriteBehindAppliedBefore(@Param("applied_before") LocalDateTime appliedBefore);
+
+    @Query("""
+            SELECT i.price FROM Inventory i
+            WHERE i.room.id = :room_id
+            AND i.date BETWEEN :start_date AND :end_date
+            AND i.closed = false
+            ORDER BY i.date ASC
+            """)
+    List<BigDecimal> findPricesForRoom(
+            @Param("room_id") Long roomId,
+            @Param("start_date") LocalDate startDate,
+            @Param("end_date") LocalDate endDate
+    );
+
+    //room id, date and stored price of every open night, for putting surge rules on top of them
+    @Query("""
+            SELECT i.room.id, i.date, i.price FROM Inventory i
+            WHERE i.room.id IN :room_ids
+            AND i.date BETWEEN :start_date AND :end_date
+            AND i.closed = false
+            """)
+    List<Object[]> findNightlyPricesForRooms(
+            @Param("room_ids") Collection<Long> roomIds,
+            @Param("start_date") LocalDate startDate,
+            @Param("end_date") LocalDate endDate
+    );
+
+    //free rooms per day as seen by the redis hold layer: unpaid bookings hold rooms
+    //there instead of in reserved_count, so they are subtracted here
+    @Query(value = """
+            SELECT i.date,
+                CASE WHEN i.closed OR r.active = false OR r.deleted = true THEN 0
+                ELSE GREATEST(i.total_count - i.booked_count - i.reserved_count - COALESCE((
+                    SELECT SUM(b.rooms_count) FROM booking b
+                    WHERE b.room_id = i.room_id
+                    AND b.booking_status IN ('RESERVED', 'GUESTS_ADDED', 'PAYMENT_PENDING')
+                    AND i.date BETWEEN b.start_date AND b.end_date
+                ), 0), 0) END AS free_count
+            FROM inventory i
+            JOIN room r ON r.id = i.room_id
+            WHERE i.room_id = :room_id
+            AND i.date >= :from_date
+            ORDER BY i.date
+            """, nativeQuery = true)
+    List<Object[]> findFreeCountsForHolds(
+            @Param("room_id") Long roomId,
+            @Param("from_date") LocalDate fromDate
+    );
+
+    //keyset paged scan used to (re)build the in-memory availability index
+    //the refresh queries below filter hotels the same way, an inactive hotel never enters the index
+    @Query("""
+            SELECT new com.pratham.livo.projection.InventoryAvailabilityWrapper(
+            i.id, i.hotel.id, i.room.id, i.city, i.date,
+            (i.totalCount - i.bookedCount - i.reservedCount), i.closed, i.version)
+            FROM Inventory i
+            WHERE i.hotel.active = true AND i.hotel.deleted = false
+            AND i.date >= :from_date
+            AND i.id > :last_id
+            ORDER BY i.id ASC
+            """)
+    List<InventoryAvailabilityWrapper> findAvailabilityForIndex(
+            @Param("from_date") LocalDate fromDate,
+            @Param("last_id") Long lastId,
+            Pageable pageable
+    );
+
+    @Query("""
+            SELECT new com.pratham.livo.projection.InventoryAvailabilityWrapper(
+            i.id, i.hotel.id, i.room.id, i.city, i.date,
+            (i.totalCount - i.bookedCount - i.reservedCount), i.closed, i.version)
+            FROM Inventory i
+            WHERE i.room.id = :room_id
+            AND i.hotel.active = true AND i.hotel.deleted = false
+            AND i.date BETWEEN :start_date AND :end_date
+            """)
+    List<InventoryAvailabilityWrapper> findAvailabilityForRoom(
+            @Param("room_id") Long roomId,
+            @Param("start_date") LocalDate startDate,
+            @Param("end_date") LocalDate endDate
+    );
+
+    @Query("""
+            SELECT new com.pratham.livo.projection.InventoryAvailabilityWrapper(
+            i.id, i.hotel.id, i.room.id, i.city, i.date,
+            (i.totalCount - i.bookedCount - i.reservedCount), i.closed, i.version)
+            FROM Inventory i
+            WHERE i.hotel.id = :hotel_id
+            AND i.hotel.active = true AND i.hotel.deleted = false
+            AND i.date BETWEEN :start_date AND :end_date
+            """)
+    List<InventoryAvailabilityWrapper> findAvailabilityForHotel(
+            @Param("hotel_id") Long hotelId,
+            @Param("start_date") LocalDate startDate,
+            @Param("end_date") LocalDate endDate
+    );
+}
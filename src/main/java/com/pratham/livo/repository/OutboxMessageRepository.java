@@ -0,0 +1,44 @@
+package com.pratham.livo.repository;
+
+import com.pratham.livo.entity.OutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage,Long> {
+
+    //oldest due messages first, locked until the relay commits
+    //skip locked lets the relay of another instance take the next batch instead of waiting
+    @Query(value = """
+            SELECT * FROM outbox_message
+            WHERE available_at <= NOW()
+            ORDER BY id
+            LIMIT :batch_size
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<OutboxMessage> claimBatch(@Param("batch_size") int batchSize);
+
+    //backs every message of a failed send off exponentially, capped at max_backoff_ms
+    @Modifying
+    @Query(value = """
+            UPDATE outbox_message
+            SET attempts = attempts + 1,
+                available_at = NOW() + make_interval(
+                    secs => LEAST(:max_backoff_ms, :base_backoff_ms * POWER(2, LEAST(attempts, 20))) / 1000.0)
+            WHERE id IN (:ids)
+            """, nativeQuery = true)
+    int deferMessages(
+            @Param("ids") Collection<Long> ids,
+            @Param("base_backoff_ms") long baseBackoffMs,
+            @Param("max_backoff_ms") long maxBackoffMs
+    );
+
+    @Query(value = "SELECT COUNT(*), MIN(created_at) FROM outbox_message", nativeQuery = true)
+    List<Object[]> findBacklog();
+}
@@ -2,6 +2,7 @@ package com.pratham.livo.repository;
 
 import com.pratham.livo.entity.Hotel;
 import com.pratham.livo.entity.Room;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -37,4 +38,14 @@ public interface RoomRepository extends JpaRepository<Room,Long> {
 
 
     long countByHotelIdAndDeletedFalse(Long hotelId);
+
+    //keyset scan over bookable rooms, used by the daily inventory extender
+    @Query("""
+    SELECT r.id FROM Room r
+    WHERE r.id > :after_id
+      AND r.active = true AND r.deleted = false
+      AND r.hotel.active = true AND r.hotel.deleted = false
+    ORDER BY r.id
+""")
+    List<Long> findBookableRoomIdsAfter(@Param("after_id") Long afterId, Pageable pageable);
 }
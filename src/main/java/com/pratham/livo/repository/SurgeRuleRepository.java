@@ -0,0 +1,20 @@
+package com.pratham.livo.repository;
+
+import com.pratham.livo.entity.SurgeRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SurgeRuleRepository extends JpaRepository<SurgeRule,Long> {
+
+    //every rule that can still apply, the whole table is small enough to hold in memory
+    @Query("SELECT s FROM SurgeRule s WHERE s.active = true AND s.endDate >= :today")
+    List<SurgeRule> findActiveRules(@Param("today") LocalDate today);
+
+    List<SurgeRule> findByHotelIdAndActiveTrueOrderByStartDateAsc(Long hotelId);
+}
@@ -0,0 +1,15 @@
+package com.pratham.livo.service;
+
+import com.pratham.livo.event.InventoryChangedEvent;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface AvailabilityIndexService {
+    boolean isReady();
+    void rebuild();
+    void refresh(InventoryChangedEvent event);
+    //for a refresh that failed, retried in the background instead of leaving the index stale
+    void markForReload(InventoryChangedEvent event);
+    List<Long> findAvailableHotelIds(String city, LocalDate startDate, LocalDate endDate, int roomsCount);
+}
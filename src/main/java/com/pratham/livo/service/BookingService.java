@@ -4,13 +4,16 @@ import com.pratham.livo.dto.booking.AddGuestDto;
 import com.pratham.livo.dto.booking.BookingResponseDto;
 import com.pratham.livo.dto.booking.BookingRequestDto;
 import com.pratham.livo.dto.booking.BookingWrapperDto;
+import com.pratham.livo.dto.booking.CartBookingRequestDto;
 import org.springframework.data.web.PagedModel;
 
 import java.util.List;
 
 public interface BookingService {
     BookingResponseDto initBooking(BookingRequestDto bookingRequestDto);
+    BookingResponseDto initCartBooking(CartBookingRequestDto cartBookingRequestDto);
     BookingResponseDto addGuests(Long bookingId, List<AddGuestDto> guestDtoList);
+    void expireBooking(Long bookingId);
     void cleanExpiredBookings();
     BookingResponseDto cancelBooking(Long bookingId);
     PagedModel<BookingWrapperDto> getMyBookings(Integer page, Integer size);
@@ -0,0 +1,11 @@
+package com.pratham.livo.service;
+
+import com.pratham.livo.dto.hotel.HotelActivationStatusDto;
+
+import java.util.Optional;
+
+public interface HotelActivationService {
+    HotelActivationStatusDto requestActivation(Long hotelId);
+    Optional<HotelActivationStatusDto> getActivationStatus(Long hotelId);
+    void processActivation(Long hotelId);
+}
@@ -0,0 +1,8 @@
+package com.pratham.livo.service;
+
+import com.pratham.livo.event.InventoryChangedEvent;
+
+public interface HotelDaySummaryService {
+    void onInventoryChanged(InventoryChangedEvent event);
+    void rebuildAll();
+}
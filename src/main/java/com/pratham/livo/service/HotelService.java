@@ -11,8 +11,10 @@ public interface HotelService {
     HotelResponseDto getHotelById(Long id);
     HotelResponseDto updateHotelById(Long id, HotelRequestDto hotelRequestDto);
     void deleteHotelById(Long id);
-    void activateHotelById(Long id);
+    HotelActivationStatusDto activateHotelById(Long id);
+    HotelActivationStatusDto getHotelActivationStatus(Long id);
     PagedModel<HotelSearchResponseDto> searchHotels(HotelSearchRequestDto hotelSearchRequestDto, Integer page, Integer size);
+    HotelSearchScrollDto scrollHotels(HotelSearchRequestDto hotelSearchRequestDto, Long cursor, Integer size, boolean withTotal);
     HotelInfoDto getHotelInfo(Long id, LocalDate startDate, LocalDate endDate, Integer roomsCount);
     void updatePopularityOfActiveHotels();
     List<HotelResponseDto> getBestHotels();
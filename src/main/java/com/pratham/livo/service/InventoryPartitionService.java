@@ -0,0 +1,5 @@
+package com.pratham.livo.service;
+
+public interface InventoryPartitionService {
+    void maintainPartitions();
+}
@@ -8,8 +8,9 @@ import java.util.List;
 
 public interface InventoryService {
     void initRoomFor1Year(Room room);
+    void initRoomsFor1Year(List<Room> rooms);
     BigDecimal calculateTotalAmount(List<Inventory> inventoryList);
     BigDecimal calculateAveragePrice(List<Inventory> inventoryList);
-
-    //TODO: implement cron job(daily) for removing old inventories and adding inventories for the next day
+    //old inventories are removed by dropping monthly partitions (InventoryPartitionService)
+    long extendInventoryHorizon();
 }
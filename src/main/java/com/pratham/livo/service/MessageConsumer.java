@@ -1,14 +1,21 @@
 package com.pratham.livo.service;
 
+import com.pratham.livo.dto.message.BookingExpiryMessage;
 import com.pratham.livo.dto.message.EmailMessage;
+import com.pratham.livo.dto.message.HotelActivationMessage;
 import com.pratham.livo.dto.message.PaymentMessage;
 import com.pratham.livo.dto.message.RefundMessage;
 import com.pratham.livo.dto.message.RefundUpdateMessage;
+import com.pratham.livo.event.InventoryChangedEvent;
 
 public interface MessageConsumer {
     void consumeEmail(EmailMessage emailMessage);
     void consumePaymentForWebhook(PaymentMessage paymentMessage);
     void consumeRefund(RefundMessage refundMessage);
     void consumeRefundUpdate(RefundUpdateMessage refundUpdateMessage);
+    void consumeInventoryChange(InventoryChangedEvent inventoryChangedEvent);
+    void consumeInventoryRepricing(InventoryChangedEvent inventoryChangedEvent);
+    void consumeHotelActivation(HotelActivationMessage hotelActivationMessage);
+    void consumeBookingExpiry(BookingExpiryMessage bookingExpiryMessage);
 }
 
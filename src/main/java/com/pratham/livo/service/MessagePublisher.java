@@ -1,13 +1,22 @@
 package com.pratham.livo.service;
 
+import com.pratham.livo.dto.message.BookingExpiryMessage;
 import com.pratham.livo.dto.message.EmailMessage;
+import com.pratham.livo.dto.message.HotelActivationMessage;
 import com.pratham.livo.dto.message.PaymentMessage;
 import com.pratham.livo.dto.message.RefundMessage;
 import com.pratham.livo.dto.message.RefundUpdateMessage;
+import com.pratham.livo.event.InventoryChangedEvent;
 
 public interface MessagePublisher {
     void publishEmail(EmailMessage emailMessage);
     void publishPaymentForWebhook(PaymentMessage paymentMessage);
     void publishRefund(RefundMessage refundMessage);
+    //survives a rollback of the calling transaction
+    void publishRefundDetached(RefundMessage refundMessage);
     void publishRefundUpdate(RefundUpdateMessage refundUpdateMessage);
+    void publishInventoryChange(InventoryChangedEvent inventoryChangedEvent);
+    void publishInventoryRepricing(InventoryChangedEvent inventoryChangedEvent);
+    void publishHotelActivation(HotelActivationMessage hotelActivationMessage);
+    void publishBookingExpiry(BookingExpiryMessage bookingExpiryMessage, boolean retry);
 }
@@ -1,10 +1,12 @@
 package com.pratham.livo.service;
 
 import com.pratham.livo.entity.Inventory;
+import com.pratham.livo.event.InventoryChangedEvent;
 
 import java.math.BigDecimal;
 
 public interface PricingService {
     BigDecimal calculateDynamicPrice(Inventory inventory);
     void updateInventoryPrices();
+    void queueRepricing(InventoryChangedEvent event);
 }
@@ -0,0 +1,23 @@
+package com.pratham.livo.service;
+
+import com.pratham.livo.dto.surge.SurgeRuleRequestDto;
+import com.pratham.livo.dto.surge.SurgeRuleResponseDto;
+import com.pratham.livo.entity.Room;
+import com.pratham.livo.projection.PriceCheckWrapper;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SurgeRuleService {
+    SurgeRuleResponseDto createRule(Long hotelId, SurgeRuleRequestDto surgeRuleRequestDto);
+    List<SurgeRuleResponseDto> getRulesForHotel(Long hotelId);
+    void deleteRule(Long hotelId, Long ruleId);
+    void refreshRules();
+    //stay amount with the surge rules applied to each night, amount is the sum of the stored prices
+    BigDecimal priceStay(Room room, LocalDate startDate, LocalDate endDate, BigDecimal amount);
+    //rewrites the average price of the rooms that a surge rule touches during the stay
+    void applyToAveragePrices(String city, List<PriceCheckWrapper> priceCheckWrappers,
+                              LocalDate startDate, LocalDate endDate);
+    boolean coversHotel(String city, Long hotelId, LocalDate startDate, LocalDate endDate);
+}
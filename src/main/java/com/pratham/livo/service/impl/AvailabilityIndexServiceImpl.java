@@ -0,0 +1,342 @@
+package com.pratham.livo.service.impl;
+
+import com.pratham.livo.config.SchedulingConfig;
+import com.pratham.livo.event.InventoryChangedEvent;
+import com.pratham.livo.enums.InventoryChangeType;
+import com.pratham.livo.projection.InventoryAvailabilityWrapper;
+import com.pratham.livo.repository.InventoryRepository;
+import com.pratham.livo.service.AvailabilityIndexService;
+import com.pratham.livo.service.MessagePublisher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.IntFunction;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AvailabilityIndexServiceImpl implements AvailabilityIndexService {
+
+    //inventory is created for 366 days, the rest is headroom for days appended between two rebuilds
+    private static final int HORIZON_DAYS = 400;
+    private static final int NOT_AVAILABLE = -1;
+
+    private final InventoryRepository inventoryRepository;
+    private final MessagePublisher messagePublisher;
+
+    @Value("${livo.search.index.enabled}")
+    private boolean enabled;
+
+    @Value("${livo.search.index.batch-size}")
+    private int batchSize;
+
+    //swapped as a whole on rebuild, null until the first rebuild completes
+    private volatile Snapshot snapshot;
+    private volatile boolean rebuilding = false;
+    //changes seen while a rebuild is running, replayed on the fresh snapshot
+    private final Queue<InventoryChangedEvent> pendingChanges = new ConcurrentLinkedQueue<>();
+    //refreshes that failed, one per room or hotel covering the union of their ranges, retried until the db answers
+    private final Map<String, InventoryChangedEvent> failedRefreshes = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean isReady() {
+        return enabled && snapshot != null;
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${livo.search.index.rebuild-cron}")
+    //not coordinated through JobCoordinator, every instance rebuilds its own in-memory copy
+    public synchronized void rebuild() {
+        if(!enabled) return;
+        log.info("Starting Availability Index Rebuild");
+        long start = System.currentTimeMillis();
+        rebuilding = true;
+        pendingChanges.clear();
+        try{
+            Snapshot fresh = new Snapshot(LocalDate.now());
+            long lastId = 0L;
+            int totalRows = 0;
+            //keyset pagination, every page is an index range scan on the primary key
+            while(true){
+                List<InventoryAvailabilityWrapper> rows = inventoryRepository.findAvailabilityForIndex(
+                        fresh.baseDate, lastId, PageRequest.of(0, batchSize));
+                if(rows.isEmpty()) break;
+                for(InventoryAvailabilityWrapper row : rows){
+                    fresh.put(row);
+                }
+                lastId = rows.getLast().getId();
+                totalRows += rows.size();
+            }
+            snapshot = fresh;
+            log.info("Availability Index Rebuilt. Indexed {} rows for {} rooms in {}ms",
+                    totalRows, fresh.roomsById.size(), System.currentTimeMillis() - start);
+        }catch (Exception e){
+            log.error("Availability Index Rebuild failed, keeping the previous snapshot", e);
+        }finally {
+            rebuilding = false;
+        }
+
+        //reload whatever changed while we were scanning
+        InventoryChangedEvent event;
+        while((event = pendingChanges.poll()) != null){
+            try{
+                refresh(event);
+            }catch (Exception e){
+                log.error("Failed to replay inventory change for room {}", event.getRoomId(), e);
+                markForReload(event);
+            }
+        }
+    }
+
+    //runs once the writing transaction has committed
+    //fan out to every instance (including this one) so that all indexes converge
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if(!enabled || !event.getChangeType().affectsAvailability()) return;
+        try{
+            messagePublisher.publishInventoryChange(event);
+        }catch (Exception e){
+            //the next rebuild will pick it up, apply it locally at least
+            log.error("Failed to broadcast inventory change for room {}. Applying locally.", event.getRoomId(), e);
+            try{
+                refresh(event);
+            }catch (Exception refreshFailure){
+                markForReload(event);
+            }
+        }
+    }
+
+    @Override
+    public void markForReload(InventoryChangedEvent event) {
+        if(!enabled || !event.getChangeType().affectsAvailability()) return;
+        String key = event.getRoomId() != null ? "room:" + event.getRoomId() : "hotel:" + event.getHotelId();
+        failedRefreshes.merge(key, event, AvailabilityIndexServiceImpl::widen);
+    }
+
+    //stops at the first failure, the db is most likely still unreachable
+    @Scheduled(fixedDelayString = "${livo.search.index.reload-retry-ms}", scheduler = SchedulingConfig.POLLING_SCHEDULER)
+    public void reloadFailedRefreshes() {
+        for(String key : List.copyOf(failedRefreshes.keySet())){
+            InventoryChangedEvent event = failedRefreshes.remove(key);
+            if(event == null) continue;
+            try{
+                refresh(event);
+            }catch (Exception e){
+                log.warn("Availability Index reload failed for {}, will retry", key, e);
+                markForReload(event);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void refresh(InventoryChangedEvent event) {
+        if(!enabled || !event.getChangeType().affectsAvailability()) return;
+        if(rebuilding){
+            pendingChanges.add(event);
+        }
+        Snapshot current = snapshot;
+        if(current == null) return;
+
+        if(event.getChangeType() == InventoryChangeType.REMOVED){
+            if(event.getRoomId() != null){
+                current.removeRoom(event.getRoomId());
+            }else{
+                current.removeHotel(event.getHotelId());
+            }
+            return;
+        }
+
+        //never read rows from before the snapshot base date
+        LocalDate from = event.getStartDate().isBefore(current.baseDate) ? current.baseDate : event.getStartDate();
+        LocalDate to = event.getEndDate();
+        if(from.isAfter(to)) return;
+
+        //reload the touched slice from the db, the db is the source of truth
+        if(event.getRoomId() != null){
+            List<InventoryAvailabilityWrapper> rows = inventoryRepository.findAvailabilityForRoom(
+                    event.getRoomId(), from, to);
+            current.replaceRange(event.getHotelId(), event.getRoomId(), event.getCity(), from, to, rows);
+        }else{
+            Map<Long, List<InventoryAvailabilityWrapper>> rowsByRoom = new HashMap<>();
+            for(InventoryAvailabilityWrapper row : inventoryRepository.findAvailabilityForHotel(
+                    event.getHotelId(), from, to)){
+                rowsByRoom.computeIfAbsent(row.getRoomId(), id -> new ArrayList<>()).add(row);
+            }
+            //indexed rooms without rows (hotel deactivated, room closed) are replaced too
+            Set<Long> roomIds = new HashSet<>(rowsByRoom.keySet());
+            roomIds.addAll(current.roomIdsOf(event.getHotelId()));
+            for(Long roomId : roomIds){
+                current.replaceRange(event.getHotelId(), roomId, event.getCity(), from, to,
+                        rowsByRoom.getOrDefault(roomId, List.of()));
+            }
+        }
+    }
+
+    @Override
+    public List<Long> findAvailableHotelIds(String city, LocalDate startDate, LocalDate endDate, int roomsCount) {
+        Snapshot current = snapshot;
+        if(current == null) return List.of();
+        Map<Long, RoomSlice> cityRooms = current.roomsByCity.get(city);
+        if(cityRooms == null) return List.of();
+
+        int from = current.offsetOf(startDate);
+        int to = current.offsetOf(endDate);
+        //nothing is indexed outside the horizon
+        if(from < 0 || to >= HORIZON_DAYS) return List.of();
+
+        //sorted by hotel id to keep pagination stable
+        TreeSet<Long> hotelIds = new TreeSet<>();
+        for(RoomSlice slice : cityRooms.values()){
+            if(!hotelIds.contains(slice.hotelId) && slice.hasAtLeast(from, to, roomsCount)){
+                hotelIds.add(slice.hotelId);
+            }
+        }
+        return new ArrayList<>(hotelIds);
+    }
+
+    //one pending reload that covers both changes
+    private static InventoryChangedEvent widen(InventoryChangedEvent older, InventoryChangedEvent newer) {
+        if(older.getChangeType() == InventoryChangeType.REMOVED) return older;
+        if(newer.getChangeType() == InventoryChangeType.REMOVED) return newer;
+        return InventoryChangedEvent.builder()
+                .hotelId(newer.getHotelId())
+                .roomId(newer.getRoomId())
+                .city(newer.getCity())
+                .startDate(older.getStartDate().isBefore(newer.getStartDate()) ? older.getStartDate() : newer.getStartDate())
+                .endDate(older.getEndDate().isAfter(newer.getEndDate()) ? older.getEndDate() : newer.getEndDate())
+                .changeType(newer.getChangeType())
+                .build();
+    }
+
+    private static final class Snapshot {
+        private final LocalDate baseDate;
+        private final Map<String, Map<Long, RoomSlice>> roomsByCity = new ConcurrentHashMap<>();
+        private final Map<Long, RoomSlice> roomsById = new ConcurrentHashMap<>();
+
+        private Snapshot(LocalDate baseDate) {
+            this.baseDate = baseDate;
+        }
+
+        private int offsetOf(LocalDate date) {
+            return (int) ChronoUnit.DAYS.between(baseDate, date);
+        }
+
+        private RoomSlice sliceFor(Long hotelId, Long roomId, String city) {
+            return roomsById.computeIfAbsent(roomId, id -> {
+                RoomSlice slice = new RoomSlice(hotelId, city);
+                roomsByCity.computeIfAbsent(city, c -> new ConcurrentHashMap<>()).put(id, slice);
+                return slice;
+            });
+        }
+
+        //only while a fresh snapshot is filled, before it is published
+        private void put(InventoryAvailabilityWrapper row) {
+            int offset = offsetOf(row.getDate());
+            if(offset < 0 || offset >= HORIZON_DAYS) return;
+            RoomSlice slice = sliceFor(row.getHotelId(), row.getRoomId(), row.getCity());
+            slice.load(offset, freeOf(row), versionOf(row));
+        }
+
+        private void replaceRange(Long hotelId, Long roomId, String city,
+                                  LocalDate from, LocalDate to, List<InventoryAvailabilityWrapper> rows) {
+            //rows missing from the db are not bookable
+            Map<LocalDate, InventoryAvailabilityWrapper> byDate = new HashMap<>();
+            for(InventoryAvailabilityWrapper row : rows){
+                byDate.put(row.getDate(), row);
+            }
+            if(byDate.isEmpty() && !roomsById.containsKey(roomId)) return;
+            RoomSlice slice = sliceFor(hotelId, roomId, city);
+            slice.apply(offsetOf(from), offsetOf(to), date -> byDate.get(baseDate.plusDays(date)));
+        }
+
+        private List<Long> roomIdsOf(Long hotelId) {
+            return roomsById.entrySet().stream()
+                    .filter(entry -> entry.getValue().hotelId.equals(hotelId))
+                    .map(Map.Entry::getKey)
+                    .toList();
+        }
+
+        private void removeRoom(Long roomId) {
+            RoomSlice slice = roomsById.remove(roomId);
+            if(slice == null) return;
+            Map<Long, RoomSlice> cityRooms = roomsByCity.get(slice.city);
+            if(cityRooms != null) cityRooms.remove(roomId);
+        }
+
+        private void removeHotel(Long hotelId) {
+            roomIdsOf(hotelId).forEach(this::removeRoom);
+        }
+    }
+
+    private static int freeOf(InventoryAvailabilityWrapper row) {
+        return Boolean.TRUE.equals(row.getClosed()) ? NOT_AVAILABLE : row.getFreeCount();
+    }
+
+    private static long versionOf(InventoryAvailabilityWrapper row) {
+        return row.getVersion() == null ? 0L : row.getVersion();
+    }
+
+    //free rooms per day for one room type, offset 0 is the snapshot base date
+    //readers take the current days once, a refresh copies them, applies its rows and swaps the copy in
+    private static final class RoomSlice {
+        private final Long hotelId;
+        private final String city;
+        private volatile Days days;
+
+        private RoomSlice(Long hotelId, String city) {
+            this.hotelId = hotelId;
+            this.city = city;
+            int[] free = new int[HORIZON_DAYS];
+            Arrays.fill(free, NOT_AVAILABLE);
+            this.days = new Days(free, new long[HORIZON_DAYS]);
+        }
+
+        private boolean hasAtLeast(int from, int to, int roomsCount) {
+            int[] free = days.free();
+            for(int d = from; d <= to; d++){
+                if(free[d] < roomsCount) return false;
+            }
+            return true;
+        }
+
+        private void load(int offset, int free, long version) {
+            days.free()[offset] = free;
+            days.versions()[offset] = version;
+        }
+
+        //a night read at an older row version than the one already applied is skipped,
+        //so two refreshes racing for the same room cannot roll it back. rows missing from the db are not bookable
+        private synchronized void apply(int from, int to, IntFunction<InventoryAvailabilityWrapper> rowAt) {
+            Days current = days;
+            int[] free = current.free().clone();
+            long[] versions = current.versions().clone();
+            for(int offset = Math.max(from, 0); offset <= Math.min(to, HORIZON_DAYS - 1); offset++){
+                InventoryAvailabilityWrapper row = rowAt.apply(offset);
+                if(row == null){
+                    free[offset] = NOT_AVAILABLE;
+                }else if(versionOf(row) >= versions[offset]){
+                    free[offset] = freeOf(row);
+                    versions[offset] = versionOf(row);
+                }
+            }
+            days = new Days(free, versions);
+        }
+    }
+
+    private record Days(int[] free, long[] versions) {
+    }
+}
@@ -2,9 +2,12 @@ package com.pratham.livo.service.impl;
 
 import com.pratham.livo.dto.auth.AuthenticatedUser;
 import com.pratham.livo.dto.booking.*;
+import com.pratham.livo.dto.message.BookingExpiryMessage;
 import com.pratham.livo.dto.message.RefundMessage;
 import com.pratham.livo.entity.*;
+import com.pratham.livo.event.InventoryChangedEvent;
 import com.pratham.livo.enums.BookingStatus;
+import com.pratham.livo.enums.InventoryChangeType;
 import com.pratham.livo.enums.PaymentStatus;
 import com.pratham.livo.exception.BadRequestException;
 import com.pratham.livo.exception.InventoryBusyException;
@@ -14,20 +17,29 @@ import com.pratham.livo.projection.BookingWrapper;
 import com.pratham.livo.repository.*;
 import com.pratham.livo.security.SecurityHelper;
 import com.pratham.livo.service.BookingService;
-import com.pratham.livo.service.InventoryService;
 import com.pratham.livo.service.MessagePublisher;
+import com.pratham.livo.service.SurgeRuleService;
+import com.pratham.livo.strategy.ReservationStrategy;
+import com.pratham.livo.utils.BookingExpirySweeper;
+import com.pratham.livo.utils.BookingInventory;
 import com.pratham.livo.utils.DateValidator;
 import com.pratham.livo.utils.IdempotencyUtil;
+import com.pratham.livo.utils.JobCoordinator;
+import com.pratham.livo.utils.RoomLockManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
-import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PagedModel;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
@@ -38,9 +50,13 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -49,35 +65,51 @@ public class BookingServiceImpl implements BookingService {
 
     private final BookingRepository bookingRepository;
     private final RoomRepository roomRepository;
-    private final InventoryRepository inventoryRepository;
     private final GuestRepository guestRepository;
     private final ModelMapper modelMapper;
     private final DateValidator dateValidator;
-    private final InventoryService inventoryService;
     private final TransactionTemplate transactionTemplate;
     private final EntityManager entityManager;
     private final SecurityHelper securityHelper;
 
     private final static long BOOKING_SESSION_TIME_LIMIT = 10L; //in minutes
     private final static String KEY_PREFIX = "booking:idempotency:";
+    private final static int MAX_CART_ITEMS = 10;
+    private final static List<BookingStatus> UNPAID_STATUSES = List.of(
+            BookingStatus.RESERVED,
+            BookingStatus.GUESTS_ADDED,
+            BookingStatus.PAYMENT_PENDING
+    );
     private final IdempotencyUtil idempotencyUtil;
     private final PaymentRepository paymentRepository;
     private final MessagePublisher messagePublisher;
-
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final ReservationStrategy reservationStrategy;
+    private final BookingExpirySweeper bookingExpirySweeper;
+    private final JobCoordinator jobCoordinator;
+    private final SurgeRuleService surgeRuleService;
+    private final MeterRegistry meterRegistry;
+    private final RoomLockManager roomLockManager;
+    private final BookingInventory bookingInventory;
+
+    @Value("${livo.booking.reservation-mode}")
+    private String reservationMode;
+
+    //the room permit is taken before the transaction so a request queued behind a hot room holds no connection
     @Override
-    @Transactional
     public BookingResponseDto initBooking(BookingRequestDto bookingRequestDto) {
+        if (bookingRequestDto.getRoomId() == null) {
+            throw new BadRequestException("Room id is missing");
+        }
+        return roomLockManager.withRoom(bookingRequestDto.getRoomId(),
+                () -> transactionTemplate.execute(status -> doInitBooking(bookingRequestDto)));
+    }
+
+    private BookingResponseDto doInitBooking(BookingRequestDto bookingRequestDto) {
         log.info("Starting booking initialization for room: {}", bookingRequestDto.getRoomId());
 
         //check if not repeat request using idempotency key
-        if (bookingRequestDto.getIdempotencyKey() == null) {
-            throw new BadRequestException("Idempotency key is missing");
-        }
-        String idempotencyKey = bookingRequestDto.getIdempotencyKey().toString();
-        String redisKey = KEY_PREFIX + idempotencyKey;
-        if(!idempotencyUtil.acquireLock(redisKey,BOOKING_SESSION_TIME_LIMIT)){
-            throw new BadRequestException("Booking is already initiated.");
-        }
+        String idempotencyKey = acquireIdempotencyKey(bookingRequestDto.getIdempotencyKey());
 
         //validate the dates
         long days = dateValidator.countDays(bookingRequestDto.getStartDate(),bookingRequestDto.getEndDate());
@@ -87,35 +119,9 @@ public class BookingServiceImpl implements BookingService {
                 ()->new ResourceNotFoundException("Room not found with id: "+ bookingRequestDto.getRoomId())
         );
 
-        //retrieve inventory for the room over the requested dates with pessimistic write lock
-        List<Inventory> inventoryList;
-        try{
-            inventoryList = inventoryRepository.findInventoriesForRoom(
-                    bookingRequestDto.getRoomId(),
-                    bookingRequestDto.getStartDate(),
-                    bookingRequestDto.getEndDate(),
-                    bookingRequestDto.getRoomsCount()
-            );
-        //if timeout while acquiring lock
-        }catch(PessimisticLockingFailureException e){
-            log.error("Failed to acquire lock for room {}", bookingRequestDto.getRoomId());
-            throw new InventoryBusyException("Room is currently being booked by another user. Please try again later.");
-        }
-
-        if(inventoryList.size()!=days){
-            throw new BadRequestException("Room is not available for all selected dates");
-        }
-
-        //calculate amount
-        BigDecimal amount = inventoryService.calculateTotalAmount(inventoryList);
-
-        //reserve rooms in the inventories
-        for(Inventory i : inventoryList){
-            i.setReservedCount(i.getReservedCount() + bookingRequestDto.getRoomsCount());
-        }
-
-        //save inventories
-        inventoryRepository.saveAll(inventoryList);
+        //reserve the rooms on every night and calculate the amount
+        BigDecimal amount = reserveRoom(room, bookingRequestDto.getStartDate(), bookingRequestDto.getEndDate(),
+                bookingRequestDto.getRoomsCount(), days, idempotencyKey);
 
         //attach the current user
         AuthenticatedUser authenticatedUser = currentUser();
@@ -136,6 +142,106 @@ public class BookingServiceImpl implements BookingService {
         Booking savedBooking = bookingRepository.save(booking);
         log.info("Booking initialized with ID: {}", savedBooking.getId());
 
+        //expire exactly this booking when its session ends
+        messagePublisher.publishBookingExpiry(
+                BookingExpiryMessage.builder().bookingId(savedBooking.getId()).build(), false);
+
+        return getBookingResponseDto(savedBooking);
+    }
+
+    //all rooms of the cart are admitted before the transaction, in the same order as their rows are locked
+    @Override
+    public BookingResponseDto initCartBooking(CartBookingRequestDto cartBookingRequestDto) {
+        List<CartItemDto> items = cartBookingRequestDto.getItems();
+        if(items == null || items.isEmpty()){
+            throw new BadRequestException("Cart is empty");
+        }
+        if(items.size() > MAX_CART_ITEMS){
+            throw new BadRequestException("A cart can hold at most " + MAX_CART_ITEMS + " room types");
+        }
+        Set<Long> roomIds = new HashSet<>();
+        for(CartItemDto item : items){
+            if(item.getRoomId() == null) throw new BadRequestException("Room id is missing");
+            if(item.getRoomsCount() == null || item.getRoomsCount() <= 0){
+                throw new BadRequestException("Rooms count must be positive for room: " + item.getRoomId());
+            }
+            if(!roomIds.add(item.getRoomId())){
+                throw new BadRequestException("Room " + item.getRoomId() + " is in the cart more than once");
+            }
+        }
+        return roomLockManager.withRooms(roomIds,
+                () -> transactionTemplate.execute(status -> doInitCartBooking(cartBookingRequestDto)));
+    }
+
+    private BookingResponseDto doInitCartBooking(CartBookingRequestDto cartBookingRequestDto) {
+        log.info("Starting cart booking initialization for {} rooms", cartBookingRequestDto.getItems().size());
+
+        String idempotencyKey = acquireIdempotencyKey(cartBookingRequestDto.getIdempotencyKey());
+        long days = dateValidator.countDays(cartBookingRequestDto.getStartDate(), cartBookingRequestDto.getEndDate());
+
+        //every strategy locks the nights of one room in date order,
+        //taking the rooms in ascending id order makes the whole cart lock in (room id, date) order
+        //so two carts sharing rooms wait on each other at most, they never deadlock
+        List<CartItemDto> items = cartBookingRequestDto.getItems().stream()
+                .sorted(Comparator.comparing(CartItemDto::getRoomId))
+                .toList();
+
+        Map<Long, Room> rooms = new HashMap<>();
+        for(Room room : roomRepository.findAllById(items.stream().map(CartItemDto::getRoomId).toList())){
+            rooms.put(room.getId(), room);
+        }
+        Hotel hotel = null;
+        for(CartItemDto item : items){
+            Room room = rooms.get(item.getRoomId());
+            if(room == null) throw new ResourceNotFoundException("Room not found with id: " + item.getRoomId());
+            if(hotel == null) hotel = room.getHotel();
+            else if(!hotel.getId().equals(room.getHotel().getId())){
+                throw new BadRequestException("All rooms of a cart must belong to the same hotel");
+            }
+        }
+
+        //one room that cannot be reserved rolls back the ones before it, the cart is all or nothing
+        List<BookingItem> bookingItems = new ArrayList<>();
+        BigDecimal amount = BigDecimal.ZERO;
+        int roomsCount = 0;
+        for(CartItemDto item : items){
+            Room room = rooms.get(item.getRoomId());
+            BigDecimal itemAmount = reserveRoom(room, cartBookingRequestDto.getStartDate(),
+                    cartBookingRequestDto.getEndDate(), item.getRoomsCount(), days, idempotencyKey);
+            bookingItems.add(BookingItem.builder()
+                    .room(room)
+                    .roomsCount(item.getRoomsCount())
+                    .amount(itemAmount)
+                    .build());
+            amount = amount.add(itemAmount);
+            roomsCount += item.getRoomsCount();
+        }
+        meterRegistry.summary("livo.booking.cart.rooms").record(items.size());
+
+        AuthenticatedUser authenticatedUser = currentUser();
+        User user = entityManager.getReference(User.class, authenticatedUser.getId());
+
+        //one booking and so one payment for the whole cart, the first room stands in for the cart
+        //where a single room is expected
+        Booking booking = Booking.builder()
+                .hotel(hotel)
+                .room(bookingItems.getFirst().getRoom())
+                .user(user)
+                .amount(amount)
+                .bookingStatus(BookingStatus.RESERVED)
+                .startDate(cartBookingRequestDto.getStartDate())
+                .endDate(cartBookingRequestDto.getEndDate())
+                .roomsCount(roomsCount)
+                .items(bookingItems)
+                .build();
+        bookingItems.forEach(item -> item.setBooking(booking));
+
+        Booking savedBooking = bookingRepository.save(booking);
+        log.info("Cart booking initialized with ID: {}", savedBooking.getId());
+
+        messagePublisher.publishBookingExpiry(
+                BookingExpiryMessage.builder().bookingId(savedBooking.getId()).build(), false);
+
         return getBookingResponseDto(savedBooking);
     }
 
@@ -159,8 +265,10 @@ public class BookingServiceImpl implements BookingService {
             throw new BadRequestException("Guests cannot be added. Booking is in status: " + booking.getBookingStatus());
         }
 
-        //max capacity = room capacity * number of rooms booked
-        int maxCapacity = booking.getRoom().getCapacity() * booking.getRoomsCount();
+        //max capacity = room capacity * number of rooms booked, summed over the rooms of a cart
+        int maxCapacity = bookingInventory.perRoom(booking).stream()
+                .mapToInt(part -> part.getRoom().getCapacity() * part.getRoomsCount())
+                .sum();
 
         if (guestDtoList.size() > maxCapacity) {
             throw new BadRequestException("Cannot add guests. Max capacity is: " + maxCapacity);
@@ -211,25 +319,65 @@ public class BookingServiceImpl implements BookingService {
     }
 
     @Override
-    @Scheduled(cron = "0 * * * * *") // Runs every minute
+    @Transactional
+    public void expireBooking(Long bookingId) {
+        Booking booking = bookingRepository.findById(bookingId).orElse(null);
+        //rolled back booking, or already paid, cancelled or expired
+        if(booking == null || !UNPAID_STATUSES.contains(booking.getBookingStatus())) return;
+
+        //adding guests or starting the payment extends the session
+        LocalDateTime expiresAt = booking.getUpdatedAt().plusMinutes(BOOKING_SESSION_TIME_LIMIT);
+        if(expiresAt.isAfter(LocalDateTime.now())){
+            messagePublisher.publishBookingExpiry(
+                    BookingExpiryMessage.builder().bookingId(bookingId).build(), true);
+            return;
+        }
+
+        try{
+            expire(booking);
+            bookingRepository.saveAndFlush(booking);
+            log.info("Booking expired with ID: {}", bookingId);
+        }catch (ObjectOptimisticLockingFailureException e){
+            //payment or the sweep changed the booking first, the listener retry re-reads it
+            log.info("Booking with ID: {} changed while expiring, skipping", bookingId);
+            throw new BadRequestException("Booking changed while expiring");
+        }
+    }
+
+    @Override
+    @Scheduled(cron = "${livo.booking.expiry.sweep-cron}")
     //no Transactional here
     //we manage it manually inside
+    //bookings are expired by their delayed message, this only sweeps up the ones whose message was lost
     public void cleanExpiredBookings() {
+        //workers of a sweep that lost its lease are harmless, SKIP LOCKED keeps two sweeps apart
+        jobCoordinator.runOnce("booking-expiry", lease -> sweepExpiredBookings());
+    }
+
+    private void sweepExpiredBookings() {
         long start = System.currentTimeMillis();
 
         //setup criteria
         LocalDateTime threshold = LocalDateTime.now().minusMinutes(BOOKING_SESSION_TIME_LIMIT);
-        List<BookingStatus> statusList = List.of(
-                BookingStatus.RESERVED,
-                BookingStatus.GUESTS_ADDED,
-                BookingStatus.PAYMENT_PENDING
-        );
 
+        log.info("Starting Booking Cleanup Job");
+
+        //parallel set based workers, bookings a user holds locked are skipped
+        long totalProcessed = reservationStrategy.supportsBulkRelease()
+                ? bookingExpirySweeper.sweep(threshold)
+                : cleanExpiredBookingsOneByOne(threshold);
+
+        if (totalProcessed > 0) {
+            log.info("Cleanup Job Finished. Total expired: {} (Time: {}ms)",
+                    totalProcessed, System.currentTimeMillis() - start);
+        }
+    }
+
+    //for strategies whose counters live outside the inventory table
+    private long cleanExpiredBookingsOneByOne(LocalDateTime threshold) {
         int totalProcessed = 0;
         boolean hasMore = true;
 
-        log.info("Starting Booking Cleanup Job");
-
         //Loop for batch processing
         while (hasMore) {
 
@@ -239,7 +387,7 @@ public class BookingServiceImpl implements BookingService {
 
                 Pageable limit = PageRequest.of(0, 50);
                 List<Booking> expiredBookings = bookingRepository.findByBookingStatusInAndUpdatedAtBefore(
-                        statusList, threshold, limit
+                        UNPAID_STATUSES, threshold, limit
                 );
 
                 if (expiredBookings.isEmpty()) {
@@ -251,21 +399,7 @@ public class BookingServiceImpl implements BookingService {
                 // process batch of expired bookings
                 for (Booking b : expiredBookings) {
                     try {
-                        //find inventory list corresponding to the booking with locks
-                        List<Inventory> inventoryList = inventoryRepository.findInventoriesForCleanup(
-                                b.getRoom(), b.getStartDate(), b.getEndDate());
-
-                        //reset the reserved count in inventories
-                        for (Inventory i : inventoryList) {
-                            int newReserved = i.getReservedCount() - b.getRoomsCount();
-                            i.setReservedCount(Math.max(0, newReserved));
-                        }
-
-                        //saving inventories
-                        inventoryRepository.saveAll(inventoryList);
-
-                        // if inventory save succeeds, then change the status
-                        b.setBookingStatus(BookingStatus.EXPIRED);
+                        expire(b);
                         modifiedBookings.add(b); // Add to the list of modified bookings
                     } catch (Exception e) {
                         log.error("Error expiring booking ID: {}", b.getId(), e);
@@ -299,10 +433,7 @@ public class BookingServiceImpl implements BookingService {
             }
         }
 
-        if (totalProcessed > 0) {
-            log.info("Cleanup Job Finished. Total expired: {} (Time: {}ms)",
-                    totalProcessed, System.currentTimeMillis() - start);
-        }
+        return totalProcessed;
     }
 
     @Override
@@ -339,24 +470,11 @@ public class BookingServiceImpl implements BookingService {
         //update booking
         booking.setBookingStatus(BookingStatus.CANCELLED);
 
-        //get inventory list to be updated
-        List<Inventory> inventoryList = inventoryRepository.findInventoriesForBooking(
-                booking.getRoom().getId(),
-                booking.getStartDate(),
-                booking.getEndDate()
-        );
-
-        for(Inventory i : inventoryList){
-            //remove rooms from booked count
-            int booked = i.getBookedCount()-booking.getRoomsCount();
-            i.setBookedCount(Math.max(0,booked));
-        }
-
         //save booking
         Booking savedBooking = bookingRepository.save(booking);
 
-        //save inventory list
-        inventoryRepository.saveAllAndFlush(inventoryList);
+        //remove rooms from booked count
+        bookingInventory.cancel(booking);
 
         //initiate refund
         RefundMessage refundMessage = RefundMessage.builder()
@@ -405,6 +523,42 @@ public class BookingServiceImpl implements BookingService {
         return getBookingResponseDto(booking);
     }
 
+    private String acquireIdempotencyKey(UUID key) {
+        if (key == null) {
+            throw new BadRequestException("Idempotency key is missing");
+        }
+        String idempotencyKey = key.toString();
+        if(!idempotencyUtil.acquireLock(KEY_PREFIX + idempotencyKey, BOOKING_SESSION_TIME_LIMIT)){
+            throw new BadRequestException("Booking is already initiated.");
+        }
+        return idempotencyKey;
+    }
+
+    //reserves one room over the stay and returns its amount with the surge rules applied
+    //timed per mode so that the reservation modes can be compared under the same load
+    private BigDecimal reserveRoom(Room room, LocalDate startDate, LocalDate endDate, Integer roomsCount,
+                                   long days, String idempotencyKey) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String result = "reserved";
+        BigDecimal amount;
+        try{
+            amount = reservationStrategy.reserve(room.getId(), startDate, endDate, roomsCount, days, idempotencyKey);
+        }catch (InventoryBusyException e){
+            result = "busy";
+            throw e;
+        }catch (BadRequestException e){
+            result = "unavailable";
+            throw e;
+        }finally {
+            sample.stop(meterRegistry.timer("livo.booking.reserve.duration",
+                    "mode", reservationMode, "result", result));
+        }
+        applicationEventPublisher.publishEvent(
+                InventoryChangedEvent.forRoom(room, startDate, endDate, InventoryChangeType.RESERVED));
+        //surge rules are not part of the stored prices, they are applied per night here
+        return surgeRuleService.priceStay(room, startDate, endDate, amount);
+    }
+
     private AuthenticatedUser currentUser() {
         return securityHelper.getCurrentAuthenticatedUser()
                 .orElseThrow(() -> new SessionNotFoundException("Cannot identify the authenticated user"));
@@ -418,10 +572,27 @@ public class BookingServiceImpl implements BookingService {
         bookingResponseDto.setHotelName(savedBooking.getHotel().getName());
         bookingResponseDto.setRoomType(savedBooking.getRoom().getType());
         bookingResponseDto.setHotelCity(savedBooking.getHotel().getCity());
+        List<BookingItem> items = savedBooking.getItems();
+        bookingResponseDto.setItems(items == null || items.isEmpty() ? null : items.stream()
+                .map(item -> BookingItemDto.builder()
+                        .roomId(item.getRoom().getId())
+                        .roomType(item.getRoom().getType())
+                        .roomsCount(item.getRoomsCount())
+                        .amount(item.getAmount())
+                        .build())
+                .toList());
         return bookingResponseDto;
 
     }
 
+    private void expire(Booking booking){
+        //give the reserved rooms back
+        bookingInventory.release(booking);
+
+        // if inventory save succeeds, then change the status
+        booking.setBookingStatus(BookingStatus.EXPIRED);
+    }
+
     private Boolean hasExpired(Booking booking){
         return booking.getBookingStatus() == BookingStatus.EXPIRED;
     }
@@ -0,0 +1,195 @@
+package com.pratham.livo.service.impl;
+
+import com.pratham.livo.dto.hotel.HotelActivationStatusDto;
+import com.pratham.livo.dto.message.HotelActivationMessage;
+import com.pratham.livo.entity.Hotel;
+import com.pratham.livo.entity.Room;
+import com.pratham.livo.enums.HotelActivationStatus;
+import com.pratham.livo.enums.InventoryChangeType;
+import com.pratham.livo.event.InventoryChangedEvent;
+import com.pratham.livo.repository.HotelRepository;
+import com.pratham.livo.repository.InventoryRepository;
+import com.pratham.livo.repository.RoomRepository;
+import com.pratham.livo.service.HotelActivationService;
+import com.pratham.livo.service.MessagePublisher;
+import com.pratham.livo.utils.BulkInventoryWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+//a hotel goes live only after the inventory of all its rooms is written
+//the inventory is written in chunked transactions by a queue consumer, progress is kept in redis
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HotelActivationServiceImpl implements HotelActivationService {
+
+    private static final String STATUS_KEY_PREFIX = "hotel:activation:";
+
+    private final HotelRepository hotelRepository;
+    private final RoomRepository roomRepository;
+    private final InventoryRepository inventoryRepository;
+    private final BulkInventoryWriter bulkInventoryWriter;
+    private final MessagePublisher messagePublisher;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    @Value("${livo.hotel.activation.rooms-per-chunk}")
+    private int roomsPerChunk;
+
+    @Value("${livo.hotel.activation.status-ttl-hours}")
+    private long statusTtlHours;
+
+    @Override
+    public HotelActivationStatusDto requestActivation(Long hotelId) {
+        Optional<HotelActivationStatusDto> current = getActivationStatus(hotelId);
+        if(current.isPresent() && (current.get().getStatus() == HotelActivationStatus.QUEUED
+                || current.get().getStatus() == HotelActivationStatus.IN_PROGRESS)){
+            log.info("Activation already running for hotel with id: {}",hotelId);
+            return current.get();
+        }
+        HotelActivationStatusDto queued = saveStatus(HotelActivationStatusDto.builder()
+                .hotelId(hotelId)
+                .status(HotelActivationStatus.QUEUED)
+                .roomsDone(0)
+                .rowsWritten(0L)
+                .build());
+        messagePublisher.publishHotelActivation(HotelActivationMessage.builder().hotelId(hotelId).build());
+        return queued;
+    }
+
+    @Override
+    public Optional<HotelActivationStatusDto> getActivationStatus(Long hotelId) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(STATUS_KEY_PREFIX + hotelId);
+        if(fields.isEmpty()) return Optional.empty();
+        return Optional.of(HotelActivationStatusDto.builder()
+                .hotelId(hotelId)
+                .status(HotelActivationStatus.valueOf((String) fields.get("status")))
+                .totalRooms(fields.get("totalRooms") == null ? null : ((Number) fields.get("totalRooms")).intValue())
+                .roomsDone(fields.get("roomsDone") == null ? null : ((Number) fields.get("roomsDone")).intValue())
+                .rowsWritten(fields.get("rowsWritten") == null ? null : ((Number) fields.get("rowsWritten")).longValue())
+                .error((String) fields.get("error"))
+                .updatedAt(fields.get("updatedAt") == null ? null : LocalDateTime.parse((String) fields.get("updatedAt")))
+                .build());
+    }
+
+    @Override
+    public void processActivation(Long hotelId) {
+        log.info("Processing activation for hotel with id: {}",hotelId);
+        Hotel hotel = hotelRepository.findById(hotelId).orElse(null);
+        if(hotel == null || hotel.getDeleted()){
+            saveFailed(hotelId, null, 0, 0, "Hotel not found or deleted");
+            return;
+        }
+        List<Long> roomIds = roomRepository.findByHotelAndDeletedFalse(hotel).stream().map(Room::getId).toList();
+        if(hotel.getActive()){
+            //redelivered message of an activation that already went live
+            saveStatus(HotelActivationStatusDto.builder().hotelId(hotelId).status(HotelActivationStatus.COMPLETED)
+                    .totalRooms(roomIds.size()).roomsDone(roomIds.size()).rowsWritten(0L).build());
+            return;
+        }
+
+        LocalDate startDate = LocalDate.now();
+        LocalDate endDate = startDate.plusYears(1);
+        int roomsDone = 0;
+        long rowsWritten = 0;
+        try{
+            saveProgress(hotelId, roomIds.size(), roomsDone, rowsWritten);
+            //short transactions so a big hotel never holds a connection for the whole build
+            for(int from = 0; from < roomIds.size(); from += roomsPerChunk){
+                List<Long> chunk = roomIds.subList(from, Math.min(from + roomsPerChunk, roomIds.size()));
+                Long created = transactionTemplate.execute(
+                        status -> bulkInventoryWriter.createInventory(chunk, startDate, endDate));
+                roomsDone += chunk.size();
+                rowsWritten += created == null ? 0 : created;
+                saveProgress(hotelId, roomIds.size(), roomsDone, rowsWritten);
+            }
+
+            Set<Long> builtRoomIds = new HashSet<>(roomIds);
+            Long lateRows = transactionTemplate.execute(status -> goLive(hotelId, builtRoomIds, startDate, endDate));
+            if(lateRows == null){
+                saveFailed(hotelId, roomIds.size(), roomsDone, rowsWritten, "Hotel was deleted during activation");
+                return;
+            }
+            rowsWritten += lateRows;
+            saveStatus(HotelActivationStatusDto.builder().hotelId(hotelId).status(HotelActivationStatus.COMPLETED)
+                    .totalRooms(roomIds.size()).roomsDone(roomIds.size()).rowsWritten(rowsWritten).build());
+            log.info("Hotel activated with id: {}, {} inventory rows written",hotelId,rowsWritten);
+        }catch (Exception e){
+            //inventory written so far stays, a retried activation skips the existing days
+            log.error("Activation failed for hotel with id: {}",hotelId,e);
+            saveFailed(hotelId, roomIds.size(), roomsDone, rowsWritten, e.getMessage());
+        }
+    }
+
+    //returns the rows written for rooms added during the build, null if the hotel was deleted meanwhile
+    private Long goLive(Long hotelId, Set<Long> builtRoomIds, LocalDate startDate, LocalDate endDate) {
+        //room creation and hotel deletion read the hotel row, lock it while flipping the flag
+        Hotel hotel = entityManager.find(Hotel.class, hotelId, LockModeType.PESSIMISTIC_WRITE);
+        if(hotel.getDeleted()){
+            inventoryRepository.deleteByHotel(hotel);
+            return null;
+        }
+        List<Long> lateRoomIds = roomRepository.findByHotelAndDeletedFalse(hotel).stream()
+                .map(Room::getId)
+                .filter(roomId -> !builtRoomIds.contains(roomId))
+                .toList();
+        long lateRows = lateRoomIds.isEmpty() ? 0 : bulkInventoryWriter.createInventory(lateRoomIds, startDate, endDate);
+
+        hotel.setActive(true);
+        hotelRepository.save(hotel);
+        roomRepository.activateNonDeleted(hotel);
+        //the chunks were written while the hotel was hidden, make search pick the whole hotel up now
+        applicationEventPublisher.publishEvent(InventoryChangedEvent.builder()
+                .hotelId(hotelId)
+                .city(hotel.getCity())
+                .startDate(startDate)
+                .endDate(endDate)
+                .changeType(InventoryChangeType.CREATED)
+                .build());
+        return lateRows;
+    }
+
+    private void saveProgress(Long hotelId, int totalRooms, int roomsDone, long rowsWritten) {
+        saveStatus(HotelActivationStatusDto.builder().hotelId(hotelId).status(HotelActivationStatus.IN_PROGRESS)
+                .totalRooms(totalRooms).roomsDone(roomsDone).rowsWritten(rowsWritten).build());
+    }
+
+    private void saveFailed(Long hotelId, Integer totalRooms, int roomsDone, long rowsWritten, String error) {
+        saveStatus(HotelActivationStatusDto.builder().hotelId(hotelId).status(HotelActivationStatus.FAILED)
+                .totalRooms(totalRooms).roomsDone(roomsDone).rowsWritten(rowsWritten)
+                .error(error == null ? "Activation failed" : error).build());
+    }
+
+    private HotelActivationStatusDto saveStatus(HotelActivationStatusDto status) {
+        status.setUpdatedAt(LocalDateTime.now());
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("status", status.getStatus().name());
+        fields.put("roomsDone", status.getRoomsDone());
+        fields.put("rowsWritten", status.getRowsWritten());
+        fields.put("updatedAt", status.getUpdatedAt().toString());
+        fields.put("totalRooms", status.getTotalRooms());
+        fields.put("error", status.getError());
+        String key = STATUS_KEY_PREFIX + status.getHotelId();
+        //fields left over from an earlier attempt must not survive
+        List<Object> absent = new ArrayList<>();
+        fields.entrySet().removeIf(field -> field.getValue() == null && absent.add(field.getKey()));
+        redisTemplate.opsForHash().putAll(key, fields);
+        if(!absent.isEmpty()) redisTemplate.opsForHash().delete(key, absent.toArray());
+        redisTemplate.expire(key, Duration.ofHours(statusTtlHours));
+        return status;
+    }
+}
@@ -0,0 +1,190 @@
+package com.pratham.livo.service.impl;
+
+import com.pratham.livo.config.SchedulingConfig;
+import com.pratham.livo.enums.InventoryChangeType;
+import com.pratham.livo.event.InventoryChangedEvent;
+import com.pratham.livo.exception.LeaseLostException;
+import com.pratham.livo.repository.HotelDaySummaryRepository;
+import com.pratham.livo.repository.HotelRepository;
+import com.pratham.livo.service.HotelDaySummaryService;
+import com.pratham.livo.utils.JobCoordinator;
+import com.pratham.livo.utils.JobLease;
+import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HotelDaySummaryServiceImpl implements HotelDaySummaryService {
+
+    //how far ahead a change without dates (room or hotel removal) can reach
+    private static final int MAX_HORIZON_DAYS = 400;
+
+    private final HotelDaySummaryRepository hotelDaySummaryRepository;
+    private final HotelRepository hotelRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final JobCoordinator jobCoordinator;
+
+    //refreshes that failed, one per hotel covering the union of their ranges, retried until the db answers
+    private final Map<Long, PendingRefresh> failedRefreshes = new ConcurrentHashMap<>();
+
+    //the writing transaction has already committed when the summary is refreshed
+    private TransactionTemplate refreshTemplate;
+
+    @PostConstruct
+    void init() {
+        refreshTemplate = new TransactionTemplate(transactionManager);
+        refreshTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    //collected in the thread that wrote the inventory, applied once that transaction has committed
+    //so bookings never hold their inventory row locks while the summary is recomputed
+    @Override
+    @EventListener
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        //a confirmation moves rooms from reserved to booked, free count and price stay the same
+        if(event.getChangeType() == InventoryChangeType.CONFIRMED) return;
+
+        if(!TransactionSynchronizationManager.isSynchronizationActive()){
+            refresh(List.of(event));
+            return;
+        }
+
+        //coalesce every change of this transaction into one refresh per hotel
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if(pending == null){
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.events.add(event);
+    }
+
+    @Override
+    @Scheduled(cron = "${livo.search.summary.rebuild-cron}")
+    public void rebuildAll() {
+        jobCoordinator.runOnce("hotel-day-summary-rebuild", this::rebuildAllHotels);
+    }
+
+    private void rebuildAllHotels(JobLease lease) {
+        log.info("Starting Hotel Day Summary Rebuild");
+        long start = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        List<Long> hotelIds = hotelRepository.findActiveHotelIds();
+
+        //one short transaction per hotel so bookings are never blocked for long
+        int failed = 0;
+        for(Long hotelId : hotelIds){
+            //another instance took over the job
+            if(!lease.isCurrent()) return;
+            try{
+                transactionTemplate.executeWithoutResult(status -> {
+                    lease.fence();
+                    hotelDaySummaryRepository.lockHotel(hotelId);
+                    hotelDaySummaryRepository.refreshForHotel(hotelId, today, today.plusDays(MAX_HORIZON_DAYS));
+                });
+            }catch (LeaseLostException e){
+                throw e;
+            }catch (Exception e){
+                failed++;
+                log.error("Hotel Day Summary Rebuild failed for hotel {}", hotelId, e);
+            }
+        }
+
+        Integer deleted = transactionTemplate.execute(status -> {
+            lease.fence();
+            return hotelDaySummaryRepository.deleteStale(today);
+        });
+        log.info("Hotel Day Summary Rebuilt for {} hotels ({} failed), removed {} stale rows in {}ms",
+                hotelIds.size(), failed, deleted, System.currentTimeMillis() - start);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if(hotelDaySummaryRepository.countByDateGreaterThanEqual(LocalDate.now()) == 0){
+            rebuildAll();
+        }
+    }
+
+    //stops at the first failure, the db is most likely still unreachable
+    @Scheduled(fixedDelayString = "${livo.search.summary.retry-ms}", scheduler = SchedulingConfig.POLLING_SCHEDULER)
+    public void retryFailedRefreshes() {
+        for(Long hotelId : List.copyOf(failedRefreshes.keySet())){
+            PendingRefresh refresh = failedRefreshes.remove(hotelId);
+            if(refresh == null) continue;
+            if(!refresh(hotelId, refresh)) return;
+        }
+    }
+
+    private void refresh(List<InventoryChangedEvent> events) {
+        LocalDate today = LocalDate.now();
+        //one date range per hotel
+        Map<Long, PendingRefresh> refreshes = new TreeMap<>();
+        for(InventoryChangedEvent event : events){
+            LocalDate startDate = event.getStartDate() == null ? today : event.getStartDate();
+            LocalDate endDate = event.getEndDate() == null ? today.plusDays(MAX_HORIZON_DAYS) : event.getEndDate();
+            refreshes.merge(event.getHotelId(),
+                    new PendingRefresh(startDate, endDate, event.getChangeType() == InventoryChangeType.REMOVED),
+                    PendingRefresh::widen);
+        }
+        refreshes.forEach(this::refresh);
+    }
+
+    //one short transaction per hotel. the hotel lock only orders summary refreshes of that hotel,
+    //the upsert reads inventory committed before the lock was granted so the last refresh is never older
+    private boolean refresh(Long hotelId, PendingRefresh refresh) {
+        try{
+            refreshTemplate.executeWithoutResult(status -> {
+                hotelDaySummaryRepository.lockHotel(hotelId);
+                //days whose inventory is gone would never be overwritten by the upsert
+                if(refresh.removal()){
+                    hotelDaySummaryRepository.deleteForHotel(hotelId, refresh.startDate(), refresh.endDate());
+                }
+                hotelDaySummaryRepository.refreshForHotel(hotelId, refresh.startDate(), refresh.endDate());
+            });
+            return true;
+        }catch (Exception e){
+            log.error("Hotel Day Summary refresh failed for hotel {}, will retry", hotelId, e);
+            failedRefreshes.merge(hotelId, refresh, PendingRefresh::widen);
+            return false;
+        }
+    }
+
+    private record PendingRefresh(LocalDate startDate, LocalDate endDate, boolean removal) {
+        private PendingRefresh widen(PendingRefresh other) {
+            return new PendingRefresh(
+                    other.startDate.isBefore(startDate) ? other.startDate : startDate,
+                    other.endDate.isAfter(endDate) ? other.endDate : endDate,
+                    removal || other.removal);
+        }
+    }
+
+    private final class PendingChanges implements TransactionSynchronization {
+        private final List<InventoryChangedEvent> events = new ArrayList<>();
+
+        @Override
+        public void afterCommit() {
+            refresh(events);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(HotelDaySummaryServiceImpl.this);
+        }
+    }
+}
@@ -7,10 +7,14 @@ import com.pratham.livo.entity.Hotel;
 import com.pratham.livo.entity.Room;
 import com.pratham.livo.entity.User;
 import com.pratham.livo.enums.BookingStatus;
+import com.pratham.livo.enums.HotelActivationStatus;
+import com.pratham.livo.enums.InventoryChangeType;
+import com.pratham.livo.event.InventoryChangedEvent;
 import com.pratham.livo.exception.BadRequestException;
 import com.pratham.livo.exception.ResourceNotFoundException;
 import com.pratham.livo.exception.SessionNotFoundException;
 import com.pratham.livo.projection.BestHotelWrapper;
+import com.pratham.livo.projection.HotelScrollWrapper;
 import com.pratham.livo.projection.ManagersHotelWrapper;
 import com.pratham.livo.projection.PriceCheckWrapper;
 import com.pratham.livo.projection.RoomAvailabilityWrapper;
@@ -19,15 +23,22 @@ import com.pratham.livo.repository.HotelRepository;
 import com.pratham.livo.repository.InventoryRepository;
 import com.pratham.livo.repository.RoomRepository;
 import com.pratham.livo.security.SecurityHelper;
+import com.pratham.livo.service.AvailabilityIndexService;
+import com.pratham.livo.service.HotelActivationService;
 import com.pratham.livo.service.HotelService;
 import com.pratham.livo.service.InventoryService;
+import com.pratham.livo.service.SurgeRuleService;
 import com.pratham.livo.utils.DateValidator;
+import com.pratham.livo.utils.JobCoordinator;
+import com.pratham.livo.utils.SearchResultCache;
 import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -36,13 +47,17 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -58,6 +73,13 @@ public class HotelServiceImpl implements HotelService {
     private final DateValidator dateValidator;
     private final SecurityHelper securityHelper;
     private final EntityManager entityManager;
+    private final AvailabilityIndexService availabilityIndexService;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final SearchResultCache searchResultCache;
+    private final HotelActivationService hotelActivationService;
+    private final JobCoordinator jobCoordinator;
+    private final TransactionTemplate transactionTemplate;
+    private final SurgeRuleService surgeRuleService;
     public static final int MAX_HOTELS_PER_OWNER = 10;
 
     @Value("${count.best.hotels}")
@@ -139,6 +161,9 @@ public class HotelServiceImpl implements HotelService {
 
         //hard delete inventory (remove from search)
         inventoryRepository.deleteByHotel(hotel);
+        applicationEventPublisher.publishEvent(InventoryChangedEvent.builder()
+                .hotelId(hotel.getId()).city(hotel.getCity())
+                .changeType(InventoryChangeType.REMOVED).build());
         log.info("Hard Deleted inventory for hotel with id: {}",id);
 
         //soft delete hotel
@@ -149,8 +174,8 @@ public class HotelServiceImpl implements HotelService {
     }
 
     @Override
-    @Transactional
-    public void activateHotelById(Long id) {
+    @Transactional(readOnly = true)
+    public HotelActivationStatusDto activateHotelById(Long id) {
         log.info("Activating hotel with id: {}",id);
         Hotel hotel = hotelRepository.findById(id).orElseThrow(
                 ()->new ResourceNotFoundException("Hotel Not Found with id: "+id)
@@ -164,25 +189,31 @@ public class HotelServiceImpl implements HotelService {
         }
 
         //if already active then return
-        if(hotel.getActive()) return;
-
-        hotel.setActive(true);
-        Hotel savedHotel = hotelRepository.save(hotel);
-
-        //activate non deleted rooms for this hotel
-        roomRepository.activateNonDeleted(savedHotel);
+        if(hotel.getActive()) return completedActivation(id);
 
-        List<Room> rooms = roomRepository.findByHotelAndDeletedFalse(savedHotel);
-        //Create inventory for all the non deleted rooms of this hotel
-        for(Room room: rooms){
-            inventoryService.initRoomFor1Year(room);
-        }
-
-        log.info("Hotel activated with id: {}",id);
+        //inventory is built asynchronously, the hotel goes live once all of it is written
+        HotelActivationStatusDto status = hotelActivationService.requestActivation(id);
+        log.info("Hotel activation queued with id: {}",id);
+        return status;
     }
 
     @Override
     @Transactional(readOnly = true)
+    public HotelActivationStatusDto getHotelActivationStatus(Long id) {
+        Hotel hotel = hotelRepository.findById(id).orElseThrow(
+                ()->new ResourceNotFoundException("Hotel Not Found with id: "+id)
+        );
+        verifyHotelOwner(hotel);
+        return hotelActivationService.getActivationStatus(id).orElseGet(() -> {
+            //status expired or hotel activated before async activation existed
+            if(hotel.getActive()) return completedActivation(id);
+            throw new ResourceNotFoundException("No activation found for hotel with id: "+id);
+        });
+    }
+
+    @Override
+    //no Transactional here
+    //a cache hit should not take a db connection, each query below runs in its own read only transaction
     public PagedModel<HotelSearchResponseDto> searchHotels(
             HotelSearchRequestDto hotelSearchRequestDto,
             Integer page,
@@ -198,16 +229,19 @@ public class HotelServiceImpl implements HotelService {
         //date validation
         long days = dateValidator.countDays(hotelSearchRequestDto.getStartDate(),hotelSearchRequestDto.getEndDate());
 
+        return searchResultCache.getOrLoad(hotelSearchRequestDto, page, size,
+                () -> loadSearchPage(hotelSearchRequestDto, days, page, size));
+    }
+
+    private PagedModel<HotelSearchResponseDto> loadSearchPage(
+            HotelSearchRequestDto hotelSearchRequestDto,
+            long days,
+            Integer page,
+            Integer size) {
+
         //get the page for available hotels
         Pageable pageable = PageRequest.of(page,size);
-        Page<Hotel> hotelPage = inventoryRepository.findAvailableHotels(
-                hotelSearchRequestDto.getCity(),
-                hotelSearchRequestDto.getStartDate(),
-                hotelSearchRequestDto.getEndDate(),
-                hotelSearchRequestDto.getRoomsCount(),
-                days,
-                pageable
-        );
+        Page<Hotel> hotelPage = findAvailableHotels(hotelSearchRequestDto, days, pageable);
 
         //if no hotel, then return an empty page
         if(hotelPage.isEmpty()){
@@ -227,6 +261,8 @@ public class HotelServiceImpl implements HotelService {
                 hotelSearchRequestDto.getRoomsCount(),
                 days
         );
+        surgeRuleService.applyToAveragePrices(hotelSearchRequestDto.getCity(), priceCheckWrappers,
+                hotelSearchRequestDto.getStartDate(), hotelSearchRequestDto.getEndDate());
 
         //map the hotel ids with their least prices
         Map<Long, BigDecimal> priceMap = new HashMap<>();
@@ -254,6 +290,88 @@ public class HotelServiceImpl implements HotelService {
         return new PagedModel<>(responseDtoPage);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public HotelSearchScrollDto scrollHotels(
+            HotelSearchRequestDto hotelSearchRequestDto,
+            Long cursor,
+            Integer size,
+            boolean withTotal) {
+        log.info("Scrolling hotels with request: {} after cursor: {}",hotelSearchRequestDto,cursor);
+
+        //date validation
+        long days = dateValidator.countDays(hotelSearchRequestDto.getStartDate(),hotelSearchRequestDto.getEndDate());
+
+        //fetch one extra row to know if there is a next page
+        List<HotelScrollWrapper> rows = inventoryRepository.scrollAvailableHotels(
+                        hotelSearchRequestDto.getCity(),
+                        hotelSearchRequestDto.getStartDate(),
+                        hotelSearchRequestDto.getEndDate(),
+                        hotelSearchRequestDto.getRoomsCount(),
+                        days,
+                        cursor == null ? 0L : cursor,
+                        size + 1,
+                        withTotal
+                ).stream()
+                .map(HotelScrollWrapper::fromRow)
+                .toList();
+
+        boolean hasMore = rows.size() > size;
+        List<HotelScrollWrapper> pageRows = hasMore ? rows.subList(0, size) : rows;
+        Map<Long, BigDecimal> surgedPrices = findSurgedMinPrices(hotelSearchRequestDto, days, pageRows);
+
+        List<HotelSearchResponseDto> hotels = pageRows.stream()
+                .map(row -> {
+                    HotelSearchResponseDto dto = new HotelSearchResponseDto();
+                    dto.setId(row.getId());
+                    dto.setName(row.getName());
+                    dto.setCity(row.getCity());
+                    dto.setPhotos(row.getPhotos());
+                    dto.setPricePerDay(surgedPrices.getOrDefault(row.getId(), row.getMinPrice()));
+                    return dto;
+                }).toList();
+
+        //the total rides along on every row, an empty page past the end has nothing to carry it
+        Long totalElements = null;
+        if(withTotal){
+            totalElements = rows.isEmpty() ? (cursor == null ? Long.valueOf(0L) : null) : rows.getFirst().getTotalCount();
+        }
+
+        log.info("Hotels scrolled successfully");
+        return HotelSearchScrollDto.builder()
+                .hotels(hotels)
+                .nextCursor(hasMore ? pageRows.getLast().getId() : null)
+                .totalElements(totalElements)
+                .build();
+    }
+
+    //the scroll query only sees stored prices, hotels touched by a surge rule get their cheapest room recomputed
+    private Map<Long, BigDecimal> findSurgedMinPrices(HotelSearchRequestDto hotelSearchRequestDto, long days,
+                                                      List<HotelScrollWrapper> rows) {
+        List<Long> surgedHotelIds = rows.stream()
+                .map(HotelScrollWrapper::getId)
+                .filter(hotelId -> surgeRuleService.coversHotel(hotelSearchRequestDto.getCity(), hotelId,
+                        hotelSearchRequestDto.getStartDate(), hotelSearchRequestDto.getEndDate()))
+                .toList();
+        if(surgedHotelIds.isEmpty()) return Map.of();
+
+        List<PriceCheckWrapper> priceCheckWrappers = inventoryRepository.findRoomAveragePrices(
+                surgedHotelIds,
+                hotelSearchRequestDto.getStartDate(),
+                hotelSearchRequestDto.getEndDate(),
+                hotelSearchRequestDto.getRoomsCount(),
+                days
+        );
+        surgeRuleService.applyToAveragePrices(hotelSearchRequestDto.getCity(), priceCheckWrappers,
+                hotelSearchRequestDto.getStartDate(), hotelSearchRequestDto.getEndDate());
+
+        Map<Long, BigDecimal> priceMap = new HashMap<>();
+        for (PriceCheckWrapper wrapper : priceCheckWrappers) {
+            priceMap.merge(wrapper.getHotelId(), wrapper.getAvgPrice(), BigDecimal::min);
+        }
+        return priceMap;
+    }
+
     @Override
     @Transactional(readOnly = true)
     public HotelInfoDto getHotelInfo(Long id, LocalDate startDate, LocalDate endDate, Integer roomsCount) {
@@ -279,6 +397,7 @@ public class HotelServiceImpl implements HotelService {
             //find the list of room prices for this hotel
             List<PriceCheckWrapper> priceCheckWrappers = inventoryRepository.findRoomAveragePrices(
                     List.of(id), startDate, endDate, targetRoomsCount, days);
+            surgeRuleService.applyToAveragePrices(hotel.getCity(), priceCheckWrappers, startDate, endDate);
 
             //map the room ids with their avg prices
             Map<Long, BigDecimal> priceMap = new HashMap<>();
@@ -319,15 +438,15 @@ public class HotelServiceImpl implements HotelService {
 
     @Override
     @Scheduled(cron = "0 0 4 * * *")
-    @Transactional
     public void updatePopularityOfActiveHotels() {
-        log.info("CRON JOB START: Updating Hotel Popularity Scores");
-        try {
-            hotelRepository.updatePopularityOfActiveHotels(BookingStatus.CONFIRMED.name());
+        jobCoordinator.runOnce("hotel-popularity", lease -> {
+            log.info("CRON JOB START: Updating Hotel Popularity Scores");
+            transactionTemplate.executeWithoutResult(status -> {
+                lease.fence();
+                hotelRepository.updatePopularityOfActiveHotels(BookingStatus.CONFIRMED.name());
+            });
             log.info("CRON JOB SUCCESS: Popularity Scores Updated");
-        } catch (Exception e) {
-            log.error("CRON JOB FAILED: error updating popularity scores", e);
-        }
+        });
     }
 
     @Override
@@ -355,6 +474,64 @@ public class HotelServiceImpl implements HotelService {
         return new PagedModel<>(hotels);
     }
 
+    private Page<Hotel> findAvailableHotels(HotelSearchRequestDto hotelSearchRequestDto, long days, Pageable pageable){
+        //fall back to the db until the in-memory index has been built
+        if(!availabilityIndexService.isReady() || hotelSearchRequestDto.getRoomsCount() == null){
+            return inventoryRepository.findAvailableHotelsFromSummary(
+                    hotelSearchRequestDto.getCity(),
+                    hotelSearchRequestDto.getStartDate(),
+                    hotelSearchRequestDto.getEndDate(),
+                    hotelSearchRequestDto.getRoomsCount(),
+                    days,
+                    pageable
+            );
+        }
+
+        List<Long> availableHotelIds = availabilityIndexService.findAvailableHotelIds(
+                hotelSearchRequestDto.getCity(),
+                hotelSearchRequestDto.getStartDate(),
+                hotelSearchRequestDto.getEndDate(),
+                hotelSearchRequestDto.getRoomsCount()
+        );
+        //the index only holds active hotels, a hotel deleted a moment ago stays in it until its removal
+        //has been broadcast. such a hotel is dropped from the index here, left out of the total and
+        //replaced by the next ids so the page stays full
+        List<Hotel> hotels = new ArrayList<>();
+        int staleHotels = 0;
+        int next = (int) Math.min(pageable.getOffset(), availableHotelIds.size());
+        while(hotels.size() < pageable.getPageSize() && next < availableHotelIds.size()){
+            int to = Math.min(next + pageable.getPageSize() - hotels.size(), availableHotelIds.size());
+            List<Long> pageIds = availableHotelIds.subList(next, to);
+            next = to;
+
+            //load only the hotels of this page, keep the index order
+            Map<Long, Hotel> hotelMap = hotelRepository.findAllById(pageIds).stream()
+                    .collect(Collectors.toMap(Hotel::getId, Function.identity()));
+            for(Long hotelId : pageIds){
+                Hotel hotel = hotelMap.get(hotelId);
+                if(hotel != null && hotel.getActive() && !hotel.getDeleted()){
+                    hotels.add(hotel);
+                }else{
+                    staleHotels++;
+                    availabilityIndexService.refresh(InventoryChangedEvent.builder()
+                            .hotelId(hotelId).city(hotelSearchRequestDto.getCity())
+                            .changeType(InventoryChangeType.REMOVED).build());
+                }
+            }
+        }
+        if(hotels.isEmpty()){
+            return Page.empty(pageable);
+        }
+        return new PageImpl<>(hotels, pageable, availableHotelIds.size() - staleHotels);
+    }
+
+    private HotelActivationStatusDto completedActivation(Long hotelId) {
+        return HotelActivationStatusDto.builder()
+                .hotelId(hotelId)
+                .status(HotelActivationStatus.COMPLETED)
+                .build();
+    }
+
     private void verifyHotelOwner(Hotel hotel){
         //check if hotel belongs to the authenticated user
         AuthenticatedUser authenticatedUser = currentUser();
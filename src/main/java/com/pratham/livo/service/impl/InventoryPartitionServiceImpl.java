@@ -0,0 +1,135 @@
+package com.pratham.livo.service.impl;
+
+import com.pratham.livo.service.InventoryPartitionService;
+import com.pratham.livo.utils.JobCoordinator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+//inventory is range partitioned by month on date (see db/inventory_partitioning.sql)
+//this keeps partitions created ahead of the inventory horizon and drops months past retention
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryPartitionServiceImpl implements InventoryPartitionService {
+
+    private static final String PARENT_TABLE = "inventory";
+    private static final String PARTITION_PREFIX = "inventory_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JobCoordinator jobCoordinator;
+
+    @Value("${livo.inventory.partition.months-ahead}")
+    private int monthsAhead;
+
+    @Value("${livo.inventory.partition.retention-months}")
+    private int retentionMonths;
+
+    @Value("${livo.inventory.partition.lock-timeout}")
+    private String lockTimeout;
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${livo.inventory.partition.cron}")
+    public void maintainPartitions() {
+        jobCoordinator.runOnce("inventory-partitions", lease -> maintain());
+    }
+
+    private void maintain() {
+        if(!isPartitioned()){
+            log.warn("Inventory table is not partitioned, skipping partition maintenance");
+            return;
+        }
+        log.info("Starting Inventory Partition Maintenance");
+        Set<YearMonth> existing = findPartitions();
+        YearMonth current = YearMonth.now();
+
+        int created = 0;
+        for(int i = 0; i <= monthsAhead; i++){
+            YearMonth month = current.plusMonths(i);
+            if(existing.contains(month)) continue;
+            if(runLocked(createSql(month), partitionName(month))) created++;
+        }
+
+        //dropping a month is a catalog operation, no rows are deleted one by one
+        int dropped = 0;
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        for(YearMonth month : existing){
+            if(!month.isBefore(oldestKept)) continue;
+            String name = partitionName(month);
+            if(runLocked(List.of(
+                    "ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + name,
+                    "DROP TABLE " + name), name)) dropped++;
+        }
+        log.info("Inventory Partition Maintenance finished, created {} and dropped {} partitions", created, dropped);
+    }
+
+    private List<String> createSql(YearMonth month) {
+        return List.of("CREATE TABLE IF NOT EXISTS " + partitionName(month)
+                + " PARTITION OF " + PARENT_TABLE
+                + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+    }
+
+    //every change runs in its own short transaction so a busy parent table only delays that one partition
+    //the advisory lock keeps two instances from racing on the same ddl
+    private boolean runLocked(List<String> statements, String partition) {
+        try{
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.queryForObject("SELECT 1 FROM pg_advisory_xact_lock(3, 0)", Integer.class);
+                //ddl on the parent waits behind open transactions, and everything else queues behind the ddl
+                jdbcTemplate.queryForObject("SELECT set_config('lock_timeout', ?, true)", String.class, lockTimeout);
+                statements.forEach(jdbcTemplate::execute);
+            });
+            log.info("Inventory partition {} maintained", partition);
+            return true;
+        }catch (Exception e){
+            log.error("Failed to maintain inventory partition {}, will retry on next run", partition, e);
+            return false;
+        }
+    }
+
+    private boolean isPartitioned() {
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT COALESCE((SELECT relkind = 'p' FROM pg_class WHERE oid = to_regclass(?)), false)",
+                Boolean.class, PARENT_TABLE);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    private Set<YearMonth> findPartitions() {
+        List<String> names = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = to_regclass(?)
+                """, String.class, PARENT_TABLE);
+        Set<YearMonth> months = new HashSet<>();
+        for(String name : names){
+            //partitions not following the naming scheme are left alone
+            if(!name.startsWith(PARTITION_PREFIX)) continue;
+            try{
+                months.add(YearMonth.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX));
+            }catch (DateTimeParseException e){
+                log.warn("Ignoring inventory partition with unexpected name {}", name);
+            }
+        }
+        return months;
+    }
+
+    private String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+}
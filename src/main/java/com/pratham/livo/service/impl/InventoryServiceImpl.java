@@ -2,18 +2,33 @@ package com.pratham.livo.service.impl;
 
 import com.pratham.livo.entity.Inventory;
 import com.pratham.livo.entity.Room;
+import com.pratham.livo.enums.InventoryChangeType;
+import com.pratham.livo.event.InventoryChangedEvent;
+import com.pratham.livo.exception.LeaseLostException;
 import com.pratham.livo.repository.InventoryRepository;
+import com.pratham.livo.repository.RoomRepository;
 import com.pratham.livo.service.InventoryService;
+import com.pratham.livo.utils.BulkInventoryWriter;
+import com.pratham.livo.utils.JobCoordinator;
+import com.pratham.livo.utils.JobLease;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @RequiredArgsConstructor
@@ -21,14 +36,52 @@ import java.util.List;
 public class InventoryServiceImpl implements InventoryService {
 
     private final InventoryRepository inventoryRepository;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final RoomRepository roomRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final BulkInventoryWriter bulkInventoryWriter;
+    private final JobCoordinator jobCoordinator;
+
+    @Value("${livo.inventory.bulk.enabled}")
+    private boolean bulkWriterEnabled;
+
+    @Value("${livo.inventory.extender.batch-size}")
+    private int extenderBatchSize;
 
     @Override
     @Transactional
     public void initRoomFor1Year(Room room) {
-        LocalDate today = LocalDate.now();
-        LocalDate endDate = today.plusYears(1);
+        initRoomsFor1Year(List.of(room));
+    }
+
+    @Override
+    @Transactional
+    public void initRoomsFor1Year(List<Room> rooms) {
+        if(rooms.isEmpty()) return;
+        LocalDate startDate = LocalDate.now();
+        LocalDate endDate = startDate.plusYears(1);
+        //both writers stay available so their latency can be compared on the same timer
+        String writer = bulkWriterEnabled ? "bulk" : "entity";
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long created;
+        if(bulkWriterEnabled){
+            created = bulkInventoryWriter.createInventory(
+                    rooms.stream().map(Room::getId).toList(), startDate, endDate);
+        }else{
+            created = 0;
+            for(Room room : rooms){
+                created += initRoomWithEntities(room, startDate, endDate);
+            }
+        }
+        long elapsed = sample.stop(meterRegistry.timer("livo.inventory.init.duration", "writer", writer));
+        log.info("Created {} inventory rows for {} rooms with the {} writer in {}ms",
+                created, rooms.size(), writer, elapsed / 1_000_000);
+    }
+
+    private int initRoomWithEntities(Room room, LocalDate startDate, LocalDate endDate) {
         List<Inventory> inventoryList = new ArrayList<>();
-        for(;!today.isAfter(endDate);today=today.plusDays(1)){
+        for(LocalDate today = startDate;!today.isAfter(endDate);today=today.plusDays(1)){
             inventoryList.add(Inventory.builder()
                     .date(today)
                     .city(room.getHotel().getCity())
@@ -40,9 +93,65 @@ public class InventoryServiceImpl implements InventoryService {
                     .reservedCount(0)
                     .totalCount(room.getTotalCount())
                     .closed(false)
+                    .priceDirty(true)
                     .build());
         }
         inventoryRepository.saveAll(inventoryList);
+        applicationEventPublisher.publishEvent(
+                InventoryChangedEvent.forRoom(room, startDate, endDate, InventoryChangeType.CREATED));
+        return inventoryList.size();
+    }
+
+    //inventory is created one year ahead once, this appends the days that have come into the horizon since
+    @Override
+    @Scheduled(cron = "${livo.inventory.extender.cron}")
+    public long extendInventoryHorizon() {
+        AtomicLong created = new AtomicLong();
+        jobCoordinator.runOnce("inventory-extender", lease -> created.set(extendInventoryHorizon(lease)));
+        return created.get();
+    }
+
+    private long extendInventoryHorizon(JobLease lease) {
+        log.info("Starting Daily Inventory Extender Cron Job");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        LocalDate today = LocalDate.now();
+        LocalDate horizon = today.plusYears(1);
+
+        long totalCreated = 0;
+        int totalRooms = 0;
+        Long lastRoomId = 0L;
+        while(true){
+            List<Long> roomIds = roomRepository.findBookableRoomIdsAfter(
+                    lastRoomId, PageRequest.of(0, extenderBatchSize));
+            if(roomIds.isEmpty()) break;
+            //another instance took over the job, it starts again from the first room
+            if(!lease.isCurrent()) break;
+
+            try{
+                //one transaction per batch, the events are published on its commit
+                Long created = transactionTemplate.execute(status -> {
+                    lease.fence();
+                    return bulkInventoryWriter.extendInventory(roomIds, today, horizon);
+                });
+                totalCreated += created == null ? 0 : created;
+                meterRegistry.counter("livo.inventory.extender.rows").increment(created == null ? 0 : created);
+            }catch (LeaseLostException e){
+                //the new holder starts again from the first room
+                throw e;
+            }catch (Exception e){
+                //the rooms of this batch are picked up again by the next run
+                meterRegistry.counter("livo.inventory.extender.failures").increment();
+                log.error("Inventory Extender failed for rooms {} to {}", roomIds.getFirst(), roomIds.getLast(), e);
+            }
+            totalRooms += roomIds.size();
+            lastRoomId = roomIds.getLast();
+        }
+
+        meterRegistry.counter("livo.inventory.extender.rooms").increment(totalRooms);
+        long elapsed = sample.stop(meterRegistry.timer("livo.inventory.extender.duration"));
+        log.info("Inventory Extender finished, created {} rows for {} rooms in {}ms",
+                totalCreated, totalRooms, elapsed / 1_000_000);
+        return totalCreated;
     }
 
     @Override
@@ -6,18 +6,25 @@ import brevoModel.SendSmtpEmail;
 import brevoModel.SendSmtpEmailSender;
 import brevoModel.SendSmtpEmailTo;
 import com.pratham.livo.config.RabbitMQConfig;
+import com.pratham.livo.dto.message.BookingExpiryMessage;
 import com.pratham.livo.dto.message.EmailMessage;
+import com.pratham.livo.dto.message.HotelActivationMessage;
 import com.pratham.livo.dto.message.PaymentMessage;
 import com.pratham.livo.dto.message.RefundMessage;
 import com.pratham.livo.dto.message.RefundUpdateMessage;
 import com.pratham.livo.entity.Payment;
+import com.pratham.livo.event.InventoryChangedEvent;
 import com.pratham.livo.enums.PaymentStatus;
 import com.pratham.livo.exception.BadRequestException;
 import com.pratham.livo.exception.ResourceNotFoundException;
 import com.pratham.livo.repository.PaymentRepository;
 import com.pratham.livo.repository.RefundRepository;
+import com.pratham.livo.service.AvailabilityIndexService;
+import com.pratham.livo.service.BookingService;
+import com.pratham.livo.service.HotelActivationService;
 import com.pratham.livo.service.MessageConsumer;
 import com.pratham.livo.service.PaymentService;
+import com.pratham.livo.service.PricingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
@@ -37,6 +44,10 @@ public class MessageConsumerImpl implements MessageConsumer {
     private final PaymentRepository paymentRepository;
     private final PaymentService paymentService;
     private final RefundRepository refundRepository;
+    private final AvailabilityIndexService availabilityIndexService;
+    private final HotelActivationService hotelActivationService;
+    private final BookingService bookingService;
+    private final PricingService pricingService;
 
     @Value("${livo.email.from.email}")
     private String fromEmail;
@@ -115,6 +126,52 @@ public class MessageConsumerImpl implements MessageConsumer {
         }
     }
 
+    //every instance receives every change through its own anonymous queue
+    @Override
+    @RabbitListener(queues = "#{availabilityIndexQueue.name}")
+    public void consumeInventoryChange(InventoryChangedEvent inventoryChangedEvent) {
+        try {
+            availabilityIndexService.refresh(inventoryChangedEvent);
+        }catch (Exception e){
+            //anonymous queue without a dlq, a rethrow would drop the change after the retries
+            log.error("Failed to refresh availability for room {}, marked for reload",
+                    inventoryChangedEvent.getRoomId(), e);
+            availabilityIndexService.markForReload(inventoryChangedEvent);
+        }
+    }
+
+    //bursts for the same room are coalesced and repriced together by PricingService
+    @Override
+    @RabbitListener(queues = RabbitMQConfig.INVENTORY_REPRICING_QUEUE)
+    public void consumeInventoryRepricing(InventoryChangedEvent inventoryChangedEvent) {
+        try {
+            pricingService.queueRepricing(inventoryChangedEvent);
+        }catch (Exception e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    //inventory is built in chunked transactions here, off the http thread
+    @Override
+    @RabbitListener(queues = RabbitMQConfig.HOTEL_ACTIVATION_QUEUE)
+    public void consumeHotelActivation(HotelActivationMessage hotelActivationMessage) {
+        try {
+            hotelActivationService.processActivation(hotelActivationMessage.getHotelId());
+        }catch (Exception e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    @RabbitListener(queues = RabbitMQConfig.BOOKING_EXPIRY_QUEUE)
+    public void consumeBookingExpiry(BookingExpiryMessage bookingExpiryMessage) {
+        try {
+            bookingService.expireBooking(bookingExpiryMessage.getBookingId());
+        }catch (Exception e){
+            throw new RuntimeException(e);
+        }
+    }
+
     private void sendEmailWithBrevo(EmailMessage emailMessage) throws ApiException {
         SendSmtpEmail email = new SendSmtpEmail();
 
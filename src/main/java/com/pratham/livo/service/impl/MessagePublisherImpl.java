@@ -1,15 +1,21 @@
 package com.pratham.livo.service.impl;
 
 import com.pratham.livo.config.RabbitMQConfig;
+import com.pratham.livo.dto.message.BookingExpiryMessage;
 import com.pratham.livo.dto.message.EmailMessage;
+import com.pratham.livo.dto.message.HotelActivationMessage;
 import com.pratham.livo.dto.message.PaymentMessage;
 import com.pratham.livo.dto.message.RefundMessage;
 import com.pratham.livo.dto.message.RefundUpdateMessage;
+import com.pratham.livo.event.InventoryChangedEvent;
 import com.pratham.livo.service.MessagePublisher;
+import com.pratham.livo.utils.OutboxWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 @RequiredArgsConstructor
@@ -17,11 +23,15 @@ import org.springframework.stereotype.Service;
 public class MessagePublisherImpl implements MessagePublisher {
 
     private final RabbitTemplate rabbitTemplate;
+    private final OutboxWriter outboxWriter;
+
+    @Value("${livo.messaging.outbox.enabled}")
+    private boolean outboxEnabled;
 
     @Override
     public void publishEmail(EmailMessage emailMessage) {
         log.info("Queuing email for {}",emailMessage.getTo());
-        rabbitTemplate.convertAndSend(
+        send(
                 RabbitMQConfig.MAIN_EXCHANGE,
                 RabbitMQConfig.EMAIL_ROUTING_KEY,
                 emailMessage
@@ -31,7 +41,7 @@ public class MessagePublisherImpl implements MessagePublisher {
     @Override
     public void publishPaymentForWebhook(PaymentMessage paymentMessage) {
         log.info("Queuing payment for razorpayOrderId: {}",paymentMessage.getRazorpayOrderId());
-        rabbitTemplate.convertAndSend(
+        send(
                 RabbitMQConfig.MAIN_EXCHANGE,
                 RabbitMQConfig.PAYMENT_ROUTING_KEY,
                 paymentMessage
@@ -41,7 +51,21 @@ public class MessagePublisherImpl implements MessagePublisher {
     @Override
     public void publishRefund(RefundMessage refundMessage) {
         log.info("Queuing refund for razorpayPaymentId: {}",refundMessage.getRazorpayPaymentId());
-        rabbitTemplate.convertAndSend(
+        send(
+                RabbitMQConfig.MAIN_EXCHANGE,
+                RabbitMQConfig.REFUND_ROUTING_KEY,
+                refundMessage
+        );
+    }
+
+    @Override
+    public void publishRefundDetached(RefundMessage refundMessage) {
+        log.info("Queuing refund outside the transaction for razorpayPaymentId: {}",refundMessage.getRazorpayPaymentId());
+        if(!outboxEnabled){
+            publishRefund(refundMessage);
+            return;
+        }
+        outboxWriter.appendDetached(
                 RabbitMQConfig.MAIN_EXCHANGE,
                 RabbitMQConfig.REFUND_ROUTING_KEY,
                 refundMessage
@@ -51,12 +75,65 @@ public class MessagePublisherImpl implements MessagePublisher {
     @Override
     public void publishRefundUpdate(RefundUpdateMessage refundUpdateMessage) {
         log.info("Queuing refund update for razorpayRefundId: {}",refundUpdateMessage.getRazorpayRefundId());
-        rabbitTemplate.convertAndSend(
+        send(
                 RabbitMQConfig.MAIN_EXCHANGE,
                 RabbitMQConfig.REFUND_UPDATE_ROUTING_KEY,
                 refundUpdateMessage
         );
     }
 
+    //inventory broadcasts go out directly, they are sent after the commit and a lost one only delays a refresh
+    @Override
+    public void publishInventoryChange(InventoryChangedEvent inventoryChangedEvent) {
+        log.debug("Broadcasting inventory change for room: {}",inventoryChangedEvent.getRoomId());
+        //routing key is ignored by a fanout exchange
+        rabbitTemplate.convertAndSend(
+                RabbitMQConfig.INVENTORY_FANOUT_EXCHANGE,
+                "",
+                inventoryChangedEvent
+        );
+    }
 
+    @Override
+    public void publishInventoryRepricing(InventoryChangedEvent inventoryChangedEvent) {
+        log.debug("Queuing repricing for room: {}",inventoryChangedEvent.getRoomId());
+        //one shared queue, every change is repriced by exactly one instance
+        rabbitTemplate.convertAndSend(
+                RabbitMQConfig.MAIN_EXCHANGE,
+                RabbitMQConfig.INVENTORY_REPRICING_ROUTING_KEY,
+                inventoryChangedEvent
+        );
+    }
+
+    @Override
+    public void publishHotelActivation(HotelActivationMessage hotelActivationMessage) {
+        log.info("Queuing activation for hotel with id: {}",hotelActivationMessage.getHotelId());
+        send(
+                RabbitMQConfig.MAIN_EXCHANGE,
+                RabbitMQConfig.HOTEL_ACTIVATION_ROUTING_KEY,
+                hotelActivationMessage
+        );
+    }
+
+    @Override
+    public void publishBookingExpiry(BookingExpiryMessage bookingExpiryMessage, boolean retry) {
+        log.info("Scheduling expiry for booking with id: {}",bookingExpiryMessage.getBookingId());
+        //lands in a delay queue, dead lettered to the expiry queue once its ttl passes
+        send(
+                RabbitMQConfig.MAIN_EXCHANGE,
+                retry ? RabbitMQConfig.BOOKING_EXPIRY_RETRY_ROUTING_KEY : RabbitMQConfig.BOOKING_EXPIRY_DELAY_ROUTING_KEY,
+                bookingExpiryMessage
+        );
+    }
+
+    //inside a writing transaction the message goes to the outbox and leaves only if the transaction commits,
+    //the broker round trip is paid by the relay instead of the transaction. outside of one it is sent right away
+    private void send(String exchange, String routingKey, Object payload) {
+        if(outboxEnabled && TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()){
+            outboxWriter.append(exchange, routingKey, payload);
+            return;
+        }
+        rabbitTemplate.convertAndSend(exchange, routingKey, payload);
+    }
 }
@@ -8,7 +8,6 @@ import com.pratham.livo.dto.message.RefundUpdateMessage;
 import com.pratham.livo.dto.payment.PaymentInitResponseDto;
 import com.pratham.livo.dto.payment.PaymentVerifyRequestDto;
 import com.pratham.livo.entity.Booking;
-import com.pratham.livo.entity.Inventory;
 import com.pratham.livo.entity.Payment;
 import com.pratham.livo.enums.BookingStatus;
 import com.pratham.livo.enums.PaymentStatus;
@@ -19,6 +18,7 @@ import com.pratham.livo.repository.*;
 import com.pratham.livo.security.SecurityHelper;
 import com.pratham.livo.service.MessagePublisher;
 import com.pratham.livo.service.PaymentService;
+import com.pratham.livo.utils.BookingInventory;
 import com.pratham.livo.utils.IdempotencyUtil;
 import com.razorpay.*;
 import lombok.RequiredArgsConstructor;
@@ -31,7 +31,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -45,11 +44,11 @@ public class PaymentServiceImpl implements PaymentService {
     private final PaymentRepository paymentRepository;
     private final RazorpayConfig razorpayConfig;
     private final RazorpayClient razorpayClient;
-    private final InventoryRepository inventoryRepository;
     private final RazorpayEventRepository razorpayEventRepository;
     private final MessagePublisher messagePublisher;
     private final RefundRepository refundRepository;
     private final SecurityHelper securityHelper;
+    private final BookingInventory bookingInventory;
 
     @Override
     @Transactional
@@ -208,7 +207,8 @@ public class PaymentServiceImpl implements PaymentService {
                     .razorpayOrderId(payment.getRazorpayOrderId())
                     .razorpayPaymentId(razorpayPaymentId).reason("Booking Expired")
                     .percentage(100).build();
-            messagePublisher.publishRefund(refundMessage);
+            //the exception below rolls the caller back, the refund must not go with it
+            messagePublisher.publishRefundDetached(refundMessage);
             log.info("Late payment received for Expired Booking ID: {}", booking.getId());
             throw new BadRequestException("Booking has expired. Payment will be refunded.");
         }
@@ -223,23 +223,8 @@ public class PaymentServiceImpl implements PaymentService {
             booking.setBookingStatus(BookingStatus.CONFIRMED);
             bookingRepository.save(booking);
 
-            //get inventory list to be updated
-            List<Inventory> inventoryList = inventoryRepository.findInventoriesForBooking(
-                    booking.getRoom().getId(),
-                    booking.getStartDate(),
-                    booking.getEndDate()
-            );
-
-            for(Inventory i : inventoryList){
-                //move room from reserved to booked
-                int reserved = i.getReservedCount() - booking.getRoomsCount();
-                int booked = i.getBookedCount() + booking.getRoomsCount();
-                i.setReservedCount(Math.max(0,reserved));
-                i.setBookedCount(booked);
-            }
-
-            //save inventory list
-            inventoryRepository.saveAll(inventoryList);
+            //move rooms from reserved to booked
+            bookingInventory.confirm(booking);
             log.info("Payment confirmed and Inventory updated for Booking ID: {}", booking.getId());
         }catch (ObjectOptimisticLockingFailureException e){
             //handle async refund
@@ -247,7 +232,7 @@ public class PaymentServiceImpl implements PaymentService {
                     .razorpayOrderId(payment.getRazorpayOrderId())
                     .razorpayPaymentId(razorpayPaymentId).reason("Room Unavailable (Race Condition)")
                     .percentage(100).build();
-            messagePublisher.publishRefund(refundMessage);
+            messagePublisher.publishRefundDetached(refundMessage);
             log.info("Race condition detected for Booking ID: {}", booking.getId());
             throw new BadRequestException("Booking was not completed. Payment will be refunded.");
         }
@@ -1,34 +1,97 @@
 package com.pratham.livo.service.impl;
 
+import com.pratham.livo.config.SchedulingConfig;
 import com.pratham.livo.entity.Inventory;
+import com.pratham.livo.enums.InventoryChangeType;
+import com.pratham.livo.event.InventoryChangedEvent;
+import com.pratham.livo.projection.InventoryPricingWrapper;
 import com.pratham.livo.repository.InventoryRepository;
+import com.pratham.livo.service.MessagePublisher;
 import com.pratham.livo.service.PricingService;
+import com.pratham.livo.strategy.PricingContext;
+import com.pratham.livo.strategy.PricingBatch;
 import com.pratham.livo.strategy.PricingStrategy;
-import jakarta.persistence.EntityManager;
+import com.pratham.livo.utils.JobCoordinator;
+import com.pratham.livo.utils.JobLease;
+import com.pratham.livo.utils.Paise;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.sql.Date;
 import java.time.LocalDate;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PricingServiceImpl implements PricingService {
 
+    //partition pruning needs the date next to the id
+    private static final String UPDATE_PRICE_SQL =
+            "UPDATE inventory SET price = ?, updated_at = NOW() WHERE id = ? AND date = ?";
+
     private final TransactionTemplate transactionTemplate;
     private final InventoryRepository inventoryRepository;
-    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
     // spring automatically injects all beans implementing PricingStrategy, sorted by @Order
     private final List<PricingStrategy> pricingStrategies;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final JobCoordinator jobCoordinator;
+    private final MeterRegistry meterRegistry;
+    private final MessagePublisher messagePublisher;
+
+    @Value("${livo.jobs.pricing.partitions}")
+    private int pricingPartitions;
+
+    @Value("${livo.pricing.workers}")
+    private int workers;
+
+    @Value("${livo.pricing.batch-size}")
+    private int batchSize;
+
+    //full: every open future row is priced on the full cron
+    //incremental: only rows whose inputs changed are priced, the full cron becomes a safety sweep
+    @Value("${livo.pricing.mode}")
+    private String mode;
+
+    private final AtomicLong rowsPerSecond = new AtomicLong();
+    private final Map<Long, InventoryChangedEvent> pendingRepricing = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "pricing-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        meterRegistry.gauge("livo.pricing.rows.per.second", rowsPerSecond);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
 
     //decorator pattern for pricing strategy
     @Override
@@ -41,66 +104,239 @@ public class PricingServiceImpl implements PricingService {
     }
 
     @Override
-    @Scheduled(cron = "0 0 * * * *")
+    @Scheduled(cron = "${livo.pricing.full-cron}")
     public void updateInventoryPrices() {
-        log.info("Starting Hourly Dynamic Pricing Cron Job");
-        long start = System.currentTimeMillis();
-
-        //setup
-        boolean hasMore = true;
-        int batchSize = 365;
-        int pageNumber = 0;
-        int totalProcessed = 0;
-        LocalDate today = LocalDate.now();
-
-        //while loop for processing batches
-        while(hasMore){
-            final int num = pageNumber; //page number
-            //start transaction in batches
-            Integer count = transactionTemplate.execute(status -> {
-
-                //get page of inventories which are available and not closed for today and after
-                Pageable limit = PageRequest.of(num,batchSize, Sort.by("id").ascending());
-                Page<Inventory> inventoryPage = inventoryRepository.findInventoriesForDynamicPricing(today,limit);
-
-                // if no inventory then return 0
-                if(inventoryPage.isEmpty()){
-                    return 0;
-                }
-
-                List<Inventory> inventoryList = inventoryPage.getContent();
-
-                //for each inventory
-                for(Inventory i : inventoryList){
-                    //calculate the new price
-                    BigDecimal newPrice = calculateDynamicPrice(i);
-                    if(newPrice.compareTo(i.getRoom().getBasePrice()) < 0){
-                        newPrice = i.getRoom().getBasePrice();
-                    }
-                    //set the new price if changed
-                    if(newPrice.compareTo(i.getPrice()) != 0){
-                        i.setPrice(newPrice);
-                    }
-                }
-
-                //save the inventories
-                inventoryRepository.saveAll(inventoryList);
-
-                //clear objects from memory
-                entityManager.flush();
-                entityManager.clear();
-                return inventoryList.size();
+        log.info("Starting Dynamic Pricing Cron Job");
+        long start = System.nanoTime();
+        AtomicLong scanned = new AtomicLong();
+
+        //hotels are split into partitions, the workers of every replica take the free ones
+        jobCoordinator.runPartitioned("inventory-pricing", pricingPartitions, executor,
+                (lease, partition) -> scanned.addAndGet(updateInventoryPrices(lease, partition)));
+
+        long elapsedNanos = System.nanoTime() - start;
+        rowsPerSecond.set(scanned.get() * 1_000_000_000L / Math.max(elapsedNanos, 1));
+        log.info("Dynamic Pricing Job Finished. Priced {} rows in {}ms ({} rows/sec)",
+                scanned.get(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rowsPerSecond.get());
+    }
+
+    //streams one partition by id and writes the changed prices, one short transaction per batch
+    private long updateInventoryPrices(JobLease lease, int partition) {
+        PricingContext context = PricingContext.of(LocalDate.now());
+        long lastId = 0;
+        long scanned = 0;
+        long updated = 0;
+
+        while(lease.isCurrent()){
+            long afterId = lastId;
+            BatchResult result = transactionTemplate.execute(status -> {
+                lease.fence();
+                return priceBatch(afterId, context, partition);
             });
+            if(result == null || result.scanned() == 0) break;
+
+            scanned += result.scanned();
+            updated += result.updated();
+            lastId = result.lastId();
+            meterRegistry.counter("livo.pricing.rows.scanned").increment(result.scanned());
+            meterRegistry.counter("livo.pricing.rows.updated").increment(result.updated());
+        }
+        log.debug("Pricing partition {} done, {} rows scanned and {} updated", partition, scanned, updated);
+        return scanned;
+    }
+
+    private BatchResult priceBatch(long afterId, PricingContext context, int partition) {
+        List<Object[]> rows = inventoryRepository.findInventoriesForPricingAfter(
+                afterId, context.getToday(), pricingPartitions, partition, batchSize);
+        if(rows.isEmpty()) return new BatchResult(0, 0, afterId);
+        return priceRows(rows, afterId, context);
+    }
+
+    //booked count changes are the occupancy input, marked in the transaction that changed them
+    @EventListener
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if(!isIncremental() || !affectsOccupancy(event)) return;
+
+        if(TransactionSynchronizationManager.isActualTransactionActive()){
+            markDirty(event);
+        }else{
+            transactionTemplate.executeWithoutResult(status -> markDirty(event));
+        }
+    }
+
+    //after the booking or cancellation committed, hand the stay to whichever instance takes the message
+    //a lost message is not lost work, the rows are dirty and the incremental run reprices them
+    @TransactionalEventListener(fallbackExecution = true)
+    public void publishRepricing(InventoryChangedEvent event) {
+        if(!affectsOccupancy(event) || event.getRoomId() == null) return;
+        try{
+            messagePublisher.publishInventoryRepricing(event);
+        }catch (Exception e){
+            log.error("Failed to queue repricing for room {}", event.getRoomId(), e);
+        }
+    }
+
+    //called by the consumer, a burst of changes for the same room becomes one date range
+    @Override
+    public void queueRepricing(InventoryChangedEvent event) {
+        pendingRepricing.merge(event.getRoomId(), event, PricingServiceImpl::widen);
+    }
+
+    //every queued room is repriced in one transaction and one jdbc batch
+    @Scheduled(fixedDelayString = "${livo.pricing.event.coalesce-ms}", scheduler = SchedulingConfig.POLLING_SCHEDULER)
+    public void repriceQueuedRooms() {
+        if(pendingRepricing.isEmpty()) return;
+        List<InventoryChangedEvent> events = new ArrayList<>();
+        for(Long roomId : pendingRepricing.keySet()){
+            InventoryChangedEvent event = pendingRepricing.remove(roomId);
+            if(event != null) events.add(event);
+        }
 
-            //if no update then stop loop
-            if(count==null || count == 0){
-                hasMore = false;
-            }else{
-                pageNumber++;
-                totalProcessed += count;
+        PricingContext context = PricingContext.of(LocalDate.now());
+        BatchResult result = transactionTemplate.execute(status -> {
+            List<Object[]> rows = new ArrayList<>();
+            for(InventoryChangedEvent event : events){
+                //cleared first, a change committed after this point marks the row dirty again
+                inventoryRepository.clearPriceDirty(event.getRoomId(), event.getStartDate(), event.getEndDate());
+                rows.addAll(inventoryRepository.findInventoriesForRoomPricing(
+                        event.getRoomId(), event.getStartDate(), event.getEndDate(), context.getToday()));
             }
+            return rows.isEmpty() ? null : priceRows(rows, 0, context);
+        });
+        if(result != null){
+            meterRegistry.counter("livo.pricing.event.rows.updated").increment(result.updated());
+            log.debug("Repriced {} rooms after occupancy changes, {} of {} rows changed",
+                    events.size(), result.updated(), result.scanned());
         }
-        log.info("Dynamic Pricing Job Finished. Updated {} records in {}ms",
-                totalProcessed, System.currentTimeMillis() - start);
     }
+
+    @Scheduled(fixedDelayString = "${livo.pricing.incremental.interval-ms}")
+    public void repriceDirtyInventories() {
+        if(!isIncremental()) return;
+        jobCoordinator.runOnce("inventory-repricing", lease -> {
+            long start = System.nanoTime();
+            PricingContext context = PricingContext.of(LocalDate.now());
+            long scanned = 0;
+            long updated = 0;
+            while(lease.isCurrent()){
+                BatchResult result = transactionTemplate.execute(status -> {
+                    lease.fence();
+                    List<Object[]> rows = inventoryRepository.claimDirtyInventoriesForPricing(
+                            context.getToday(), batchSize);
+                    return rows.isEmpty() ? null : priceRows(rows, 0, context);
+                });
+                if(result == null) break;
+                scanned += result.scanned();
+                updated += result.updated();
+            }
+            meterRegistry.counter("livo.pricing.incremental.rows.scanned").increment(scanned);
+            meterRegistry.counter("livo.pricing.incremental.rows.updated").increment(updated);
+            if(scanned > 0){
+                log.info("Incremental Pricing repriced {} dirty rows ({} changed) in {}ms",
+                        scanned, updated, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        });
+    }
+
+    //rows whose urgency band changed overnight become dirty, past rows stop being dirty
+    @Scheduled(cron = "${livo.pricing.incremental.threshold-cron}")
+    public void markThresholdCrossings() {
+        if(!isIncremental()) return;
+        jobCoordinator.runOnce("inventory-pricing-thresholds", lease -> {
+            LocalDate today = LocalDate.now();
+            List<LocalDate> dates = pricingStrategies.stream()
+                    .flatMap(pricingStrategy -> pricingStrategy.thresholdDates(today).stream())
+                    .distinct()
+                    .toList();
+            Integer marked = dates.isEmpty() ? 0 : transactionTemplate.execute(status -> {
+                lease.fence();
+                return inventoryRepository.markPriceDirtyOnDates(dates);
+            });
+            Integer cleared = transactionTemplate.execute(status -> {
+                lease.fence();
+                return inventoryRepository.clearPriceDirtyBefore(today);
+            });
+            log.info("Marked {} inventory rows dirty for {} threshold dates, cleared {} past rows",
+                    marked, dates.size(), cleared);
+        });
+    }
+
+    private void markDirty(InventoryChangedEvent event) {
+        inventoryRepository.markPriceDirty(
+                event.getHotelId(), event.getRoomId(), event.getStartDate(), event.getEndDate());
+    }
+
+    private static boolean affectsOccupancy(InventoryChangedEvent event) {
+        return event.getChangeType() == InventoryChangeType.CONFIRMED
+                || event.getChangeType() == InventoryChangeType.CANCELLED;
+    }
+
+    private boolean isIncremental() {
+        return "incremental".equalsIgnoreCase(mode);
+    }
+
+    private BatchResult priceRows(List<Object[]> rows, long afterId, PricingContext context) {
+        //columns of the page, every strategy runs once over all of them
+        List<InventoryPricingWrapper> wrappers = new ArrayList<>(rows.size());
+        PricingBatch batch = new PricingBatch(rows.size());
+        for(Object[] row : rows){
+            InventoryPricingWrapper wrapper = InventoryPricingWrapper.fromRow(row);
+            wrappers.add(wrapper);
+            batch.add(wrapper.getDate().toEpochDay(), wrapper.getDate().getDayOfWeek(),
+                    wrapper.getBookedCount(), wrapper.getTotalCount(),
+                    wrapper.getSurgeBasisPoints(), wrapper.getBasePricePaise());
+        }
+        long start = System.nanoTime();
+        calculateDynamicPrices(batch, context);
+        meterRegistry.timer("livo.pricing.batch.duration").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        List<Object[]> changes = new ArrayList<>();
+        //rows whose price actually changed, one event per room
+        Map<Long, InventoryChangedEvent> repricedRooms = new HashMap<>();
+        long[] prices = batch.getPrices();
+        long[] basePrices = batch.getBasePrices();
+        for(int i = 0; i < wrappers.size(); i++){
+            InventoryPricingWrapper wrapper = wrappers.get(i);
+            //never below the base price
+            long newPaise = Math.max(prices[i], basePrices[i]);
+            if(newPaise != wrapper.getPricePaise()){
+                changes.add(new Object[]{Paise.toBigDecimal(newPaise), wrapper.getId(), Date.valueOf(wrapper.getDate())});
+                repricedRooms.merge(wrapper.getRoomId(), repricedEvent(wrapper), PricingServiceImpl::widen);
+            }
+        }
+
+        //one jdbc batch for the whole page, unchanged rows are not written at all
+        if(!changes.isEmpty()){
+            jdbcTemplate.batchUpdate(UPDATE_PRICE_SQL, changes);
+            repricedRooms.values().forEach(applicationEventPublisher::publishEvent);
+        }
+        long lastId = wrappers.isEmpty() ? afterId : wrappers.getLast().getId();
+        return new BatchResult(rows.size(), changes.size(), lastId);
+    }
+
+    //same decorator chain as calculateDynamicPrice in fixed point, one pass per strategy over the page
+    private void calculateDynamicPrices(PricingBatch batch, PricingContext context) {
+        for(PricingStrategy pricingStrategy : pricingStrategies){
+            pricingStrategy.calculatePrices(batch, context);
+        }
+    }
+
+    private static InventoryChangedEvent repricedEvent(InventoryPricingWrapper wrapper) {
+        return InventoryChangedEvent.builder()
+                .hotelId(wrapper.getHotelId())
+                .roomId(wrapper.getRoomId())
+                .city(wrapper.getCity())
+                .startDate(wrapper.getDate())
+                .endDate(wrapper.getDate())
+                .changeType(InventoryChangeType.REPRICED)
+                .build();
+    }
+
+    private static InventoryChangedEvent widen(InventoryChangedEvent current, InventoryChangedEvent next) {
+        if(next.getStartDate().isBefore(current.getStartDate())) current.setStartDate(next.getStartDate());
+        if(next.getEndDate().isAfter(current.getEndDate())) current.setEndDate(next.getEndDate());
+        return current;
+    }
+
+    private record BatchResult(int scanned, int updated, long lastId) {}
 }
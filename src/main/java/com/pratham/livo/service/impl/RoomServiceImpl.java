@@ -3,8 +3,12 @@ package com.pratham.livo.service.impl;
 import com.pratham.livo.dto.auth.AuthenticatedUser;
 import com.pratham.livo.dto.room.RoomRequestDto;
 import com.pratham.livo.dto.room.RoomResponseDto;
+import com.pratham.livo.entity.Booking;
 import com.pratham.livo.entity.Hotel;
 import com.pratham.livo.entity.Room;
+import com.pratham.livo.enums.BookingStatus;
+import com.pratham.livo.enums.InventoryChangeType;
+import com.pratham.livo.event.InventoryChangedEvent;
 import com.pratham.livo.exception.BadRequestException;
 import com.pratham.livo.exception.ResourceNotFoundException;
 import com.pratham.livo.exception.SessionNotFoundException;
@@ -15,9 +19,11 @@ import com.pratham.livo.repository.RoomRepository;
 import com.pratham.livo.security.SecurityHelper;
 import com.pratham.livo.service.InventoryService;
 import com.pratham.livo.service.RoomService;
+import com.pratham.livo.utils.BookingInventory;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -38,6 +44,8 @@ public class RoomServiceImpl implements RoomService {
     private final InventoryRepository inventoryRepository;
     private final BookingRepository bookingRepository;
     private final SecurityHelper securityHelper;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final BookingInventory bookingInventory;
     public static final int MAX_ROOMS_PER_HOTEL = 100;
     public static final int MAX_ROOM_CAPACITY = 6;
 
@@ -133,6 +141,14 @@ public class RoomServiceImpl implements RoomService {
 
         //hard delete inventory
         inventoryRepository.deleteByRoom(room);
+        applicationEventPublisher.publishEvent(
+                InventoryChangedEvent.forRoom(room, null, null, InventoryChangeType.REMOVED));
+
+        //a pending cart with this room gives its other rooms back before it expires
+        for(Booking cart : bookingRepository.findUnpaidCartsWithRoom(room)){
+            bookingInventory.release(cart);
+            cart.setBookingStatus(BookingStatus.EXPIRED);
+        }
 
         //delete pending bookings
         bookingRepository.expireBookingsForRoom(room);
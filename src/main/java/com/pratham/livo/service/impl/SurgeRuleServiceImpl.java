@@ -0,0 +1,265 @@
+package com.pratham.livo.service.impl;
+
+import com.pratham.livo.config.SchedulingConfig;
+import com.pratham.livo.dto.auth.AuthenticatedUser;
+import com.pratham.livo.dto.surge.SurgeRuleRequestDto;
+import com.pratham.livo.dto.surge.SurgeRuleResponseDto;
+import com.pratham.livo.entity.Hotel;
+import com.pratham.livo.entity.Room;
+import com.pratham.livo.entity.SurgeRule;
+import com.pratham.livo.enums.InventoryChangeType;
+import com.pratham.livo.event.InventoryChangedEvent;
+import com.pratham.livo.exception.BadRequestException;
+import com.pratham.livo.exception.ResourceNotFoundException;
+import com.pratham.livo.exception.SessionNotFoundException;
+import com.pratham.livo.projection.PriceCheckWrapper;
+import com.pratham.livo.repository.HotelRepository;
+import com.pratham.livo.repository.InventoryRepository;
+import com.pratham.livo.repository.RoomRepository;
+import com.pratham.livo.repository.SurgeRuleRepository;
+import com.pratham.livo.security.SecurityHelper;
+import com.pratham.livo.service.SurgeRuleService;
+import com.pratham.livo.strategy.PricingStrategyImpl.SurgePricingStrategy;
+import com.pratham.livo.utils.SurgeRuleIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+//surge rules are never written into inventory, every instance keeps them in memory
+//and applies them to the stored price wherever a price is read (search pages, hotel info, booking amount)
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SurgeRuleServiceImpl implements SurgeRuleService {
+
+    public static final BigDecimal MAX_FACTOR = new BigDecimal("5.00");
+    public static final long MAX_RULE_DAYS = 366;
+
+    private final SurgeRuleRepository surgeRuleRepository;
+    private final HotelRepository hotelRepository;
+    private final RoomRepository roomRepository;
+    private final InventoryRepository inventoryRepository;
+    private final SecurityHelper securityHelper;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    //replaced whole by refreshRules, readers take one reference and use it for the whole request
+    private volatile SurgeRuleIndex index = SurgeRuleIndex.EMPTY;
+    private final AtomicLong activeRules = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        meterRegistry.gauge("livo.pricing.surge.rules", activeRules);
+    }
+
+    @Override
+    @Transactional
+    public SurgeRuleResponseDto createRule(Long hotelId, SurgeRuleRequestDto surgeRuleRequestDto) {
+        log.info("Creating surge rule for hotel(id={}) room(id={})", hotelId, surgeRuleRequestDto.getRoomId());
+        BigDecimal factor = validate(surgeRuleRequestDto);
+
+        Hotel hotel = hotelRepository.findById(hotelId).orElseThrow(
+                ()->new ResourceNotFoundException("Hotel Not Found with id: "+hotelId)
+        );
+        verifyHotelOwner(hotel);
+        if(hotel.getDeleted()){
+            throw new BadRequestException("Cannot add surge rule to a deleted hotel");
+        }
+
+        //a room rule must name a live room of this hotel
+        Room room = null;
+        if(surgeRuleRequestDto.getRoomId()!=null){
+            room = roomRepository.findById(surgeRuleRequestDto.getRoomId()).orElseThrow(
+                    ()->new ResourceNotFoundException("Room Not Found with id: "+surgeRuleRequestDto.getRoomId())
+            );
+            if(!room.getHotel().getId().equals(hotelId) || room.getDeleted()){
+                throw new BadRequestException("Room does not belong to the hotel");
+            }
+        }
+
+        SurgeRule surgeRule = SurgeRule.builder()
+                .city(hotel.getCity())
+                .hotel(hotel)
+                .room(room)
+                .startDate(surgeRuleRequestDto.getStartDate())
+                .endDate(surgeRuleRequestDto.getEndDate())
+                .factor(factor)
+                .active(true)
+                .build();
+        SurgeRule savedRule = surgeRuleRepository.save(surgeRule);
+        onRulesChanged(savedRule);
+
+        log.info("Surge rule created with id: {}", savedRule.getId());
+        return toDto(savedRule);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<SurgeRuleResponseDto> getRulesForHotel(Long hotelId) {
+        log.info("Fetching surge rules for hotel(id={})", hotelId);
+        Hotel hotel = hotelRepository.findById(hotelId).orElseThrow(
+                ()->new ResourceNotFoundException("Hotel Not Found with id: "+hotelId)
+        );
+        verifyHotelOwner(hotel);
+        return surgeRuleRepository.findByHotelIdAndActiveTrueOrderByStartDateAsc(hotelId).stream()
+                .map(this::toDto)
+                .toList();
+    }
+
+    @Override
+    @Transactional
+    public void deleteRule(Long hotelId, Long ruleId) {
+        log.info("Deleting surge rule with id: {}", ruleId);
+        SurgeRule surgeRule = surgeRuleRepository.findById(ruleId)
+                .filter(rule -> rule.getHotel()!=null && rule.getHotel().getId().equals(hotelId))
+                .orElseThrow(()->new ResourceNotFoundException("Surge rule Not Found with id: "+ruleId));
+        verifyHotelOwner(surgeRule.getHotel());
+
+        //kept for history, an inactive rule is not loaded
+        surgeRule.setActive(false);
+        surgeRuleRepository.save(surgeRule);
+        onRulesChanged(surgeRule);
+        log.info("Surge rule with id: {} deleted", ruleId);
+    }
+
+    //every instance reloads the whole table, rules changed on another instance show up within one interval
+    @Override
+    @Scheduled(fixedDelayString = "${livo.pricing.surge.refresh-ms}", scheduler = SchedulingConfig.POLLING_SCHEDULER)
+    public void refreshRules() {
+        try{
+            List<SurgeRule> rules = surgeRuleRepository.findActiveRules(LocalDate.now());
+            index = SurgeRuleIndex.build(rules);
+            activeRules.set(rules.size());
+        }catch (Exception e){
+            //prices keep using the previous snapshot until the next refresh succeeds
+            log.error("Failed to refresh surge rules, keeping {} rules", index.size(), e);
+        }
+    }
+
+    @Override
+    public BigDecimal priceStay(Room room, LocalDate startDate, LocalDate endDate, BigDecimal amount) {
+        SurgeRuleIndex snapshot = index;
+        Long hotelId = room.getHotel().getId();
+        String city = room.getHotel().getCity();
+        if(!snapshot.covers(city, hotelId, room.getId(), startDate, endDate)) return amount;
+
+        BigDecimal total = BigDecimal.ZERO;
+        for(Object[] row : inventoryRepository.findNightlyPricesForRooms(List.of(room.getId()), startDate, endDate)){
+            BigDecimal factor = snapshot.factorFor(city, hotelId, room.getId(), (LocalDate) row[1]);
+            total = total.add(SurgePricingStrategy.applySurge((BigDecimal) row[2], factor));
+        }
+        return total;
+    }
+
+    @Override
+    public void applyToAveragePrices(String city, List<PriceCheckWrapper> priceCheckWrappers,
+                                     LocalDate startDate, LocalDate endDate) {
+        SurgeRuleIndex snapshot = index;
+        Map<Long, PriceCheckWrapper> surged = new HashMap<>();
+        for(PriceCheckWrapper wrapper : priceCheckWrappers){
+            if(snapshot.covers(city, wrapper.getHotelId(), wrapper.getRoomId(), startDate, endDate)){
+                surged.put(wrapper.getRoomId(), wrapper);
+            }
+        }
+        //the common case, no rule touches these rooms and the averages from the query stand
+        if(surged.isEmpty()) return;
+
+        Map<Long, BigDecimal> totals = new HashMap<>();
+        Map<Long, Long> nights = new HashMap<>();
+        for(Object[] row : inventoryRepository.findNightlyPricesForRooms(surged.keySet(), startDate, endDate)){
+            Long roomId = (Long) row[0];
+            BigDecimal factor = snapshot.factorFor(city, surged.get(roomId).getHotelId(), roomId, (LocalDate) row[1]);
+            totals.merge(roomId, SurgePricingStrategy.applySurge((BigDecimal) row[2], factor), BigDecimal::add);
+            nights.merge(roomId, 1L, Long::sum);
+        }
+        totals.forEach((roomId, total) -> surged.get(roomId).setAvgPrice(
+                total.divide(BigDecimal.valueOf(nights.get(roomId)), 2, RoundingMode.HALF_UP)));
+    }
+
+    @Override
+    public boolean coversHotel(String city, Long hotelId, LocalDate startDate, LocalDate endDate) {
+        return index.coversHotel(city, hotelId, startDate, endDate);
+    }
+
+    private BigDecimal validate(SurgeRuleRequestDto surgeRuleRequestDto) {
+        LocalDate startDate = surgeRuleRequestDto.getStartDate();
+        LocalDate endDate = surgeRuleRequestDto.getEndDate();
+        BigDecimal factor = surgeRuleRequestDto.getFactor();
+        if(startDate==null || endDate==null || factor==null){
+            throw new BadRequestException("Start date, end date and factor are required");
+        }
+        if(endDate.isBefore(startDate) || endDate.isBefore(LocalDate.now())){
+            throw new BadRequestException("Invalid surge rule dates");
+        }
+        if(ChronoUnit.DAYS.between(startDate, endDate) >= MAX_RULE_DAYS){
+            throw new BadRequestException("Surge rule cannot be longer than " + MAX_RULE_DAYS + " days");
+        }
+        if(factor.compareTo(BigDecimal.ONE) < 0 || factor.compareTo(MAX_FACTOR) > 0){
+            throw new BadRequestException("Surge factor must be between 1 and " + MAX_FACTOR);
+        }
+        //same precision as the surge factor of inventory
+        if(factor.stripTrailingZeros().scale() > 2){
+            throw new BadRequestException("Surge factor can have at most 2 decimals");
+        }
+        return factor.setScale(2, RoundingMode.UNNECESSARY);
+    }
+
+    //drops cached search pages for the rule's dates and reloads this instance's rules right after commit
+    private void onRulesChanged(SurgeRule surgeRule) {
+        applicationEventPublisher.publishEvent(InventoryChangedEvent.builder()
+                .hotelId(surgeRule.getHotel().getId())
+                .roomId(surgeRule.getRoom()==null ? null : surgeRule.getRoom().getId())
+                .city(surgeRule.getCity())
+                .startDate(surgeRule.getStartDate())
+                .endDate(surgeRule.getEndDate())
+                .changeType(InventoryChangeType.REPRICED)
+                .build());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refreshRules();
+            }
+        });
+    }
+
+    private SurgeRuleResponseDto toDto(SurgeRule surgeRule) {
+        return SurgeRuleResponseDto.builder()
+                .id(surgeRule.getId())
+                .hotelId(surgeRule.getHotel()==null ? null : surgeRule.getHotel().getId())
+                .roomId(surgeRule.getRoom()==null ? null : surgeRule.getRoom().getId())
+                .startDate(surgeRule.getStartDate())
+                .endDate(surgeRule.getEndDate())
+                .factor(surgeRule.getFactor())
+                .build();
+    }
+
+    private void verifyHotelOwner(Hotel hotel){
+        //check if hotel belongs to the authenticated user
+        AuthenticatedUser authenticatedUser = currentUser();
+        if(!authenticatedUser.getId().equals(hotel.getOwner().getId())){
+            throw new AccessDeniedException("Hotel does not belong to the authenticated user");
+        }
+    }
+
+    private AuthenticatedUser currentUser() {
+        return securityHelper.getCurrentAuthenticatedUser()
+                .orElseThrow(() -> new SessionNotFoundException("Cannot identify the authenticated user"));
+    }
+}
@@ -0,0 +1,42 @@
+package com.pratham.livo.strategy;
+
+import lombok.Getter;
+
+import java.time.DayOfWeek;
+
+//one page of inventory rows as primitive columns, strategies loop over them in place
+//prices starts as the base price of each row and every strategy rewrites it in paise
+@Getter
+public class PricingBatch {
+    private final long[] stayEpochDays;
+    private final DayOfWeek[] daysOfWeek;
+    private final int[] bookedCounts;
+    private final int[] totalCounts;
+    private final int[] surgeBasisPoints;
+    private final long[] basePrices;
+    private final long[] prices;
+    private int size;
+
+    public PricingBatch(int capacity) {
+        stayEpochDays = new long[capacity];
+        daysOfWeek = new DayOfWeek[capacity];
+        bookedCounts = new int[capacity];
+        totalCounts = new int[capacity];
+        surgeBasisPoints = new int[capacity];
+        basePrices = new long[capacity];
+        prices = new long[capacity];
+    }
+
+    public int add(long stayEpochDay, DayOfWeek dayOfWeek, int bookedCount, int totalCount,
+                   int surgeBasisPoint, long basePrice) {
+        int row = size++;
+        stayEpochDays[row] = stayEpochDay;
+        daysOfWeek[row] = dayOfWeek;
+        bookedCounts[row] = bookedCount;
+        totalCounts[row] = totalCount;
+        surgeBasisPoints[row] = surgeBasisPoint;
+        basePrices[row] = basePrice;
+        prices[row] = basePrice;
+        return row;
+    }
+}
@@ -0,0 +1,25 @@
+package com.pratham.livo.strategy;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+//fixed for one pricing run, built once instead of asking the clock for every row
+@Getter
+public class PricingContext {
+    private final LocalDate today;
+    private final long todayEpochDay;
+
+    private PricingContext(LocalDate today) {
+        this.today = today;
+        this.todayEpochDay = today.toEpochDay();
+    }
+
+    public static PricingContext of(LocalDate today) {
+        return new PricingContext(today);
+    }
+
+    public long daysUntil(long stayEpochDay) {
+        return stayEpochDay - todayEpochDay;
+    }
+}
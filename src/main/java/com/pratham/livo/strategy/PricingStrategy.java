@@ -1,9 +1,36 @@
 package com.pratham.livo.strategy;
 
 import com.pratham.livo.entity.Inventory;
+import com.pratham.livo.entity.Room;
+import com.pratham.livo.utils.Paise;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
 
 public interface PricingStrategy {
     BigDecimal calculatePrice(BigDecimal currentPrice, Inventory inventory);
+
+    //fixed point version of calculatePrice over a whole page, rewrites batch.prices in paise
+    //must give exactly the same result as calculatePrice for every row
+    //the default adapts the per row method, strategies override it with a loop over the columns
+    default void calculatePrices(PricingBatch batch, PricingContext context) {
+        long[] prices = batch.getPrices();
+        for(int row = 0; row < batch.getSize(); row++){
+            Inventory inventory = Inventory.builder()
+                    .date(LocalDate.ofEpochDay(batch.getStayEpochDays()[row]))
+                    .bookedCount(batch.getBookedCounts()[row])
+                    .totalCount(batch.getTotalCounts()[row])
+                    .surgeFactor(BigDecimal.valueOf(batch.getSurgeBasisPoints()[row], 4))
+                    .room(Room.builder().basePrice(Paise.toBigDecimal(batch.getBasePrices()[row])).build())
+                    .build();
+            prices[row] = Paise.of(calculatePrice(Paise.toBigDecimal(prices[row]), inventory));
+        }
+    }
+
+    //stay dates whose price from this strategy changes today although no row changed
+    //the incremental repricer marks them dirty just after midnight
+    default List<LocalDate> thresholdDates(LocalDate today) {
+        return List.of();
+    }
 }
@@ -1,7 +1,10 @@
 package com.pratham.livo.strategy.PricingStrategyImpl;
 
 import com.pratham.livo.entity.Inventory;
+import com.pratham.livo.strategy.PricingContext;
+import com.pratham.livo.strategy.PricingBatch;
 import com.pratham.livo.strategy.PricingStrategy;
+import com.pratham.livo.utils.Paise;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
@@ -12,6 +15,9 @@ import java.math.RoundingMode;
 @Order(2)
 public class OccupancyPricingStrategy implements PricingStrategy {
 
+    private static final int HIGH_OCCUPANCY_HIKE = Paise.basisPoints(BigDecimal.valueOf(1.4));
+    private static final int MEDIUM_OCCUPANCY_HIKE = Paise.basisPoints(BigDecimal.valueOf(1.1));
+
     @Override
     public BigDecimal calculatePrice(BigDecimal currentPrice, Inventory inventory) {
 
@@ -29,4 +35,20 @@ public class OccupancyPricingStrategy implements PricingStrategy {
         }
         return currentPrice;
     }
+
+    @Override
+    public void calculatePrices(PricingBatch batch, PricingContext context) {
+        long[] prices = batch.getPrices();
+        int[] bookedCounts = batch.getBookedCounts();
+        int[] totalCounts = batch.getTotalCounts();
+        for (int row = 0; row < batch.getSize(); row++) {
+            if (totalCounts[row] == 0) continue;
+            double filledRatio = (double) bookedCounts[row] / totalCounts[row];
+            if (filledRatio > 0.80) {
+                prices[row] = Paise.applyBasisPoints(prices[row], HIGH_OCCUPANCY_HIKE);
+            } else if (filledRatio > 0.50) {
+                prices[row] = Paise.applyBasisPoints(prices[row], MEDIUM_OCCUPANCY_HIKE);
+            }
+        }
+    }
 }
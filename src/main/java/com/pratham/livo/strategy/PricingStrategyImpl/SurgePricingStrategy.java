@@ -1,7 +1,10 @@
 package com.pratham.livo.strategy.PricingStrategyImpl;
 
 import com.pratham.livo.entity.Inventory;
+import com.pratham.livo.strategy.PricingContext;
+import com.pratham.livo.strategy.PricingBatch;
 import com.pratham.livo.strategy.PricingStrategy;
+import com.pratham.livo.utils.Paise;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
@@ -14,9 +17,25 @@ public class SurgePricingStrategy implements PricingStrategy {
 
     @Override
     public BigDecimal calculatePrice(BigDecimal currentPrice, Inventory inventory) {
-        if(inventory.getSurgeFactor()!=null){
-            return currentPrice.multiply(inventory.getSurgeFactor()).setScale(2, RoundingMode.HALF_UP);
+        return applySurge(currentPrice, inventory.getSurgeFactor());
+    }
+
+    //also used by SurgeRuleService to put surge rules on top of the stored price when it is read
+    //rules are not part of the stored price, so changing one never rewrites inventory rows
+    public static BigDecimal applySurge(BigDecimal price, BigDecimal factor) {
+        if(factor!=null){
+            return price.multiply(factor).setScale(2, RoundingMode.HALF_UP);
+        }
+        return price;
+    }
+
+    //surge factors have 2 decimals in the table, so basis points are exact
+    @Override
+    public void calculatePrices(PricingBatch batch, PricingContext context) {
+        long[] prices = batch.getPrices();
+        int[] surgeBasisPoints = batch.getSurgeBasisPoints();
+        for (int row = 0; row < batch.getSize(); row++) {
+            prices[row] = Paise.applyBasisPoints(prices[row], surgeBasisPoints[row]);
         }
-        return currentPrice;
     }
 }
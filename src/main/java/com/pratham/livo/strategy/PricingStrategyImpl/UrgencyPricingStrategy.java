@@ -1,18 +1,26 @@
 package com.pratham.livo.strategy.PricingStrategyImpl;
 
 import com.pratham.livo.entity.Inventory;
+import com.pratham.livo.strategy.PricingContext;
+import com.pratham.livo.strategy.PricingBatch;
 import com.pratham.livo.strategy.PricingStrategy;
+import com.pratham.livo.utils.Paise;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.util.List;
 
 @Component
 @Order(3)
 public class UrgencyPricingStrategy implements PricingStrategy {
 
+    private static final int EARLY_BOOKING_DISCOUNT = Paise.basisPoints(BigDecimal.valueOf(0.9));
+    private static final int LAST_WEEK_HIKE = Paise.basisPoints(BigDecimal.valueOf(1.15));
+    private static final int SECOND_LAST_WEEK_HIKE = Paise.basisPoints(BigDecimal.valueOf(1.05));
+
     @Override
     public BigDecimal calculatePrice(BigDecimal currentPrice, Inventory inventory) {
 
@@ -31,4 +39,26 @@ public class UrgencyPricingStrategy implements PricingStrategy {
         }
         return currentPrice;
     }
+
+    //the first day below 30, at or below 15 and at or below 7 days ahead moved into a new band today
+    @Override
+    public List<LocalDate> thresholdDates(LocalDate today) {
+        return List.of(today.plusDays(29), today.plusDays(15), today.plusDays(7));
+    }
+
+    @Override
+    public void calculatePrices(PricingBatch batch, PricingContext context) {
+        long[] prices = batch.getPrices();
+        long[] stayEpochDays = batch.getStayEpochDays();
+        for (int row = 0; row < batch.getSize(); row++) {
+            long daysUntilStay = context.daysUntil(stayEpochDays[row]);
+            if (daysUntilStay >= 30) {
+                prices[row] = Paise.applyBasisPoints(prices[row], EARLY_BOOKING_DISCOUNT);
+            } else if (daysUntilStay <= 7 && daysUntilStay >= 0) {
+                prices[row] = Paise.applyBasisPoints(prices[row], LAST_WEEK_HIKE);
+            } else if (daysUntilStay <= 15 && daysUntilStay > 7) {
+                prices[row] = Paise.applyBasisPoints(prices[row], SECOND_LAST_WEEK_HIKE);
+            }
+        }
+    }
 }
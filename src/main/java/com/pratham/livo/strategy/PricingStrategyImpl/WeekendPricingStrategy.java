@@ -1,7 +1,10 @@
 package com.pratham.livo.strategy.PricingStrategyImpl;
 
 import com.pratham.livo.entity.Inventory;
+import com.pratham.livo.strategy.PricingContext;
+import com.pratham.livo.strategy.PricingBatch;
 import com.pratham.livo.strategy.PricingStrategy;
+import com.pratham.livo.utils.Paise;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
@@ -13,6 +16,8 @@ import java.time.DayOfWeek;
 @Order(4)
 public class WeekendPricingStrategy implements PricingStrategy {
 
+    private static final int WEEKEND_HIKE = Paise.basisPoints(BigDecimal.valueOf(1.15));
+
     @Override
     public BigDecimal calculatePrice(BigDecimal currentPrice, Inventory inventory) {
         DayOfWeek day = inventory.getDate().getDayOfWeek();
@@ -23,4 +28,16 @@ public class WeekendPricingStrategy implements PricingStrategy {
         }
         return currentPrice;
     }
+
+    @Override
+    public void calculatePrices(PricingBatch batch, PricingContext context) {
+        long[] prices = batch.getPrices();
+        DayOfWeek[] daysOfWeek = batch.getDaysOfWeek();
+        for (int row = 0; row < batch.getSize(); row++) {
+            DayOfWeek day = daysOfWeek[row];
+            if (day == DayOfWeek.FRIDAY || day == DayOfWeek.SATURDAY || day==DayOfWeek.SUNDAY) {
+                prices[row] = Paise.applyBasisPoints(prices[row], WEEKEND_HIKE);
+            }
+        }
+    }
 }
@@ -0,0 +1,25 @@
+package com.pratham.livo.strategy;
+
+import com.pratham.livo.entity.Booking;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+//how inventory counters are moved during the booking lifecycle
+//one implementation is active, chosen with livo.booking.reservation-mode
+public interface ReservationStrategy {
+    //reserves the rooms on every night of the stay and returns the total amount, all nights or none
+    //holdId identifies the request (its idempotency key) until the booking exists
+    BigDecimal reserve(Long roomId, LocalDate startDate, LocalDate endDate, int roomsCount, long nights, String holdId);
+    //gives the reserved rooms of an unpaid booking back
+    void release(Booking booking);
+    //moves the reserved rooms of a paid booking to booked
+    void confirm(Booking booking);
+    //gives the booked rooms of a cancelled booking back
+    void cancel(Booking booking);
+    //true when the counters live only in the inventory table
+    //so expired bookings can be released by BulkBookingExpirer without calling release one by one
+    default boolean supportsBulkRelease() {
+        return true;
+    }
+}
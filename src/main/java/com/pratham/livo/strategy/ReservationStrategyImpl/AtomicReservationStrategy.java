@@ -0,0 +1,63 @@
+package com.pratham.livo.strategy.ReservationStrategyImpl;
+
+import com.pratham.livo.entity.Booking;
+import com.pratham.livo.exception.BadRequestException;
+import com.pratham.livo.exception.InventoryBusyException;
+import com.pratham.livo.repository.InventoryRepository;
+import com.pratham.livo.strategy.ReservationStrategy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+//every counter change is a single conditional UPDATE, rows are never loaded as entities
+//one round trip per booking step instead of a locking select plus batched writes
+@Component
+@ConditionalOnProperty(name = "livo.booking.reservation-mode", havingValue = "atomic")
+@RequiredArgsConstructor
+@Slf4j
+public class AtomicReservationStrategy implements ReservationStrategy {
+
+    private final InventoryRepository inventoryRepository;
+
+    @Override
+    public BigDecimal reserve(Long roomId, LocalDate startDate, LocalDate endDate, int roomsCount, long nights,
+                              String holdId) {
+        List<BigDecimal> prices;
+        try{
+            prices = inventoryRepository.reserveInventory(roomId, startDate, endDate, roomsCount);
+        }catch(PessimisticLockingFailureException e){
+            log.error("Failed to acquire lock for room {}", roomId);
+            throw new InventoryBusyException("Room is currently being booked by another user. Please try again later.");
+        }
+
+        //the nights that were reserved are undone by the rollback this exception causes
+        if(prices.size()!=nights){
+            throw new BadRequestException("Room is not available for all selected dates");
+        }
+        return prices.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Override
+    public void release(Booking booking) {
+        inventoryRepository.releaseReservedInventory(booking.getRoom().getId(),
+                booking.getStartDate(), booking.getEndDate(), booking.getRoomsCount());
+    }
+
+    @Override
+    public void confirm(Booking booking) {
+        inventoryRepository.confirmReservedInventory(booking.getRoom().getId(),
+                booking.getStartDate(), booking.getEndDate(), booking.getRoomsCount());
+    }
+
+    @Override
+    public void cancel(Booking booking) {
+        inventoryRepository.releaseBookedInventory(booking.getRoom().getId(),
+                booking.getStartDate(), booking.getEndDate(), booking.getRoomsCount());
+    }
+}
@@ -0,0 +1,157 @@
+package com.pratham.livo.strategy.ReservationStrategyImpl;
+
+import com.pratham.livo.config.SchedulingConfig;
+import com.pratham.livo.entity.Booking;
+import com.pratham.livo.enums.InventoryChangeType;
+import com.pratham.livo.enums.LedgerEntryType;
+import com.pratham.livo.event.InventoryChangedEvent;
+import com.pratham.livo.exception.BadRequestException;
+import com.pratham.livo.exception.InventoryBusyException;
+import com.pratham.livo.projection.CompactedLedgerWrapper;
+import com.pratham.livo.repository.InventoryLedgerRepository;
+import com.pratham.livo.repository.InventoryRepository;
+import com.pratham.livo.strategy.ReservationStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+//booking steps append rows to inventory_ledger instead of updating the inventory row of every night,
+//so confirmations, cancellations and expiries of a popular room never queue on its row locks.
+//only a hold has to check free rooms, it does so under a per room advisory lock. the lock is transaction
+//scoped, so holds of one room queue behind the whole booking transaction of the hold before them.
+//the compaction folds the ledger into reserved_count and booked_count every few seconds,
+//search and summaries read the inventory counters and catch up at that point
+@Component
+@ConditionalOnProperty(name = "livo.booking.reservation-mode", havingValue = "ledger")
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerReservationStrategy implements ReservationStrategy {
+
+    private final InventoryLedgerRepository inventoryLedgerRepository;
+    private final InventoryRepository inventoryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    //a hold waits for the booking transactions of the holds queued before it, not just one statement
+    @Value("${livo.booking.ledger.lock-timeout}")
+    private String lockTimeout;
+
+    @Value("${livo.booking.ledger.compaction-batch-size}")
+    private int compactionBatchSize;
+
+    //bounds one compaction run, whatever is left goes to the next one
+    @Value("${livo.booking.ledger.max-compaction-batches}")
+    private int maxCompactionBatches;
+
+    @Override
+    public BigDecimal reserve(Long roomId, LocalDate startDate, LocalDate endDate, int roomsCount, long nights,
+                              String holdId) {
+        //the timeout only bounds the wait for the room lock, the rest of the booking transaction
+        //goes back to the timeout it had before
+        String previousLockTimeout = inventoryLedgerRepository.getLockTimeout();
+        try{
+            inventoryLedgerRepository.setLockTimeout(lockTimeout);
+            inventoryLedgerRepository.lockRoom(roomId);
+        }catch(PessimisticLockingFailureException e){
+            log.error("Failed to acquire lock for room {}", roomId);
+            meterRegistry.counter("livo.booking.ledger.holds", "result", "busy").increment();
+            throw new InventoryBusyException("Room is currently being booked by another user. Please try again later.");
+        }
+        inventoryLedgerRepository.setLockTimeout(previousLockTimeout);
+
+        int held = inventoryLedgerRepository.holdInventory(roomId, startDate, endDate, roomsCount, nights, holdId);
+        if(held!=nights){
+            meterRegistry.counter("livo.booking.ledger.holds", "result", "rejected").increment();
+            throw new BadRequestException("Room is not available for all selected dates");
+        }
+        meterRegistry.counter("livo.booking.ledger.holds", "result", "reserved").increment();
+
+        //prices are read without locks, the pricing job only changes them
+        List<BigDecimal> prices = inventoryRepository.findPricesForRoom(roomId, startDate, endDate);
+        if(prices.size()!=nights){
+            throw new BadRequestException("Room is not available for all selected dates");
+        }
+        return prices.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Override
+    public void release(Booking booking) {
+        append(booking, LedgerEntryType.RELEASE, -booking.getRoomsCount(), 0);
+    }
+
+    @Override
+    public void confirm(Booking booking) {
+        append(booking, LedgerEntryType.COMMIT, -booking.getRoomsCount(), booking.getRoomsCount());
+    }
+
+    @Override
+    public void cancel(Booking booking) {
+        append(booking, LedgerEntryType.CANCEL, 0, -booking.getRoomsCount());
+    }
+
+    @Override
+    public boolean supportsBulkRelease() {
+        //the bulk expiry writes reserved_count directly, here the release has to go through the ledger
+        return false;
+    }
+
+    //fires on every instance, the batch that does not get the compaction lock ends the run
+    @Scheduled(fixedDelayString = "${livo.booking.ledger.compaction-interval-ms}", scheduler = SchedulingConfig.POLLING_SCHEDULER)
+    public void compactLedger() {
+        try{
+            for(int batch = 0; batch < maxCompactionBatches; batch++){
+                Integer rooms = transactionTemplate.execute(status -> compactBatch());
+                if(rooms == null || rooms == 0) return;
+            }
+        }catch (Exception e){
+            log.error("Inventory ledger compaction failed, will retry", e);
+        }
+    }
+
+    private int compactBatch() {
+        if(!inventoryLedgerRepository.tryLockCompaction()){
+            meterRegistry.counter("livo.booking.ledger.compaction.skipped").increment();
+            return 0;
+        }
+        List<CompactedLedgerWrapper> compacted = inventoryLedgerRepository.compactLedger(compactionBatchSize).stream()
+                .map(CompactedLedgerWrapper::fromRow)
+                .toList();
+        //postgres counters only change now, search, summaries and occupancy pricing refresh on this commit
+        for(CompactedLedgerWrapper room : compacted){
+            if(room.isHeld()) publish(room, InventoryChangeType.RESERVED);
+            if(room.isReleased()) publish(room, InventoryChangeType.RELEASED);
+            if(room.isCommitted()) publish(room, InventoryChangeType.CONFIRMED);
+            if(room.isCancelled()) publish(room, InventoryChangeType.CANCELLED);
+        }
+        meterRegistry.counter("livo.booking.ledger.compacted.rooms").increment(compacted.size());
+        return compacted.size();
+    }
+
+    private void append(Booking booking, LedgerEntryType entryType, int reservedDelta, int bookedDelta) {
+        inventoryLedgerRepository.appendEntries(booking.getRoom().getId(), booking.getId(),
+                booking.getStartDate(), booking.getEndDate(), entryType.name(), reservedDelta, bookedDelta);
+    }
+
+    private void publish(CompactedLedgerWrapper room, InventoryChangeType changeType) {
+        applicationEventPublisher.publishEvent(InventoryChangedEvent.builder()
+                .hotelId(room.getHotelId())
+                .roomId(room.getRoomId())
+                .city(room.getCity())
+                .startDate(room.getStartDate())
+                .endDate(room.getEndDate())
+                .changeType(changeType)
+                .build());
+    }
+}
@@ -0,0 +1,141 @@
+package com.pratham.livo.strategy.ReservationStrategyImpl;
+
+import com.pratham.livo.entity.Booking;
+import com.pratham.livo.exception.BadRequestException;
+import com.pratham.livo.exception.InventoryBusyException;
+import com.pratham.livo.projection.InventoryVersionWrapper;
+import com.pratham.livo.repository.InventoryRepository;
+import com.pratham.livo.strategy.ReservationStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+//the stay is read and checked without locks and reserved with one versioned update per night,
+//a night another booking changed in between fails its version check and the whole attempt is retried.
+//rows are only locked from the update on, contention shows up as bounded retries instead of lock waits
+@Component
+@ConditionalOnProperty(name = "livo.booking.reservation-mode", havingValue = "optimistic")
+@RequiredArgsConstructor
+@Slf4j
+public class OptimisticReservationStrategy implements ReservationStrategy {
+
+    //partition pruning needs the date next to the id
+    private static final String RESERVE_SQL = """
+            UPDATE inventory
+            SET reserved_count = reserved_count + ?, version = version + 1, updated_at = NOW()
+            WHERE id = ? AND date = ? AND version = ?
+            """;
+
+    private final InventoryRepository inventoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${livo.booking.optimistic.max-attempts}")
+    private int maxAttempts;
+
+    //full jitter: attempt n sleeps a random time up to min(max, base * 2^(n-1))
+    @Value("${livo.booking.optimistic.base-backoff-ms}")
+    private long baseBackoffMs;
+
+    @Value("${livo.booking.optimistic.max-backoff-ms}")
+    private long maxBackoffMs;
+
+    //every attempt runs in a savepoint of the booking transaction
+    //so a conflict undoes the nights the attempt already reserved and drops their row locks
+    private TransactionTemplate attemptTemplate;
+
+    @PostConstruct
+    void init() {
+        attemptTemplate = new TransactionTemplate(transactionManager);
+        attemptTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+    }
+
+    @Override
+    public BigDecimal reserve(Long roomId, LocalDate startDate, LocalDate endDate, int roomsCount, long nights,
+                              String holdId) {
+        for(int attempt = 1; ; attempt++){
+            List<InventoryVersionWrapper> stay = inventoryRepository
+                    .findInventoryVersionsForRoom(roomId, startDate, endDate).stream()
+                    .map(InventoryVersionWrapper::fromRow)
+                    .toList();
+
+            //a full room is not a conflict, retrying would not change the answer
+            if(stay.size()!=nights || stay.stream().anyMatch(night -> night.getFreeCount() < roomsCount)){
+                throw new BadRequestException("Room is not available for all selected dates");
+            }
+
+            if(Boolean.TRUE.equals(attemptTemplate.execute(status -> {
+                if(reserveVersioned(stay, roomsCount)) return true;
+                status.setRollbackOnly();
+                return false;
+            }))){
+                meterRegistry.counter("livo.booking.optimistic.attempts", "result", "reserved").increment();
+                meterRegistry.summary("livo.booking.optimistic.retries").record(attempt - 1);
+                return stay.stream().map(InventoryVersionWrapper::getPrice).reduce(BigDecimal.ZERO, BigDecimal::add);
+            }
+
+            meterRegistry.counter("livo.booking.optimistic.attempts", "result", "conflict").increment();
+            if(attempt >= maxAttempts){
+                log.warn("Giving up on room {} after {} conflicting attempts", roomId, attempt);
+                meterRegistry.counter("livo.booking.optimistic.exhausted").increment();
+                throw new InventoryBusyException("Room is currently being booked by another user. Please try again later.");
+            }
+            backOff(attempt);
+        }
+    }
+
+    //giving rooms back never depends on what was read, so these are plain updates that only bump the version
+    @Override
+    public void release(Booking booking) {
+        inventoryRepository.releaseReservedInventory(booking.getRoom().getId(),
+                booking.getStartDate(), booking.getEndDate(), booking.getRoomsCount());
+    }
+
+    @Override
+    public void confirm(Booking booking) {
+        inventoryRepository.confirmReservedInventory(booking.getRoom().getId(),
+                booking.getStartDate(), booking.getEndDate(), booking.getRoomsCount());
+    }
+
+    @Override
+    public void cancel(Booking booking) {
+        inventoryRepository.releaseBookedInventory(booking.getRoom().getId(),
+                booking.getStartDate(), booking.getEndDate(), booking.getRoomsCount());
+    }
+
+    private boolean reserveVersioned(List<InventoryVersionWrapper> stay, int roomsCount) {
+        int[] updated = jdbcTemplate.batchUpdate(RESERVE_SQL, stay, stay.size(), (ps, night) -> {
+            ps.setInt(1, roomsCount);
+            ps.setLong(2, night.getId());
+            ps.setDate(3, Date.valueOf(night.getDate()));
+            ps.setLong(4, night.getVersion());
+        })[0];
+        return Arrays.stream(updated).allMatch(count -> count == 1);
+    }
+
+    private void backOff(int attempt) {
+        long cap = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt - 1, 20));
+        try{
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new InventoryBusyException("Room is currently being booked by another user. Please try again later.");
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.pratham.livo.strategy.ReservationStrategyImpl;
+
+import com.pratham.livo.entity.Booking;
+import com.pratham.livo.entity.Inventory;
+import com.pratham.livo.exception.BadRequestException;
+import com.pratham.livo.exception.InventoryBusyException;
+import com.pratham.livo.repository.InventoryRepository;
+import com.pratham.livo.service.InventoryService;
+import com.pratham.livo.strategy.ReservationStrategy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+//loads the inventory rows with SELECT FOR UPDATE, changes them as entities and writes them back
+@Component
+@ConditionalOnProperty(name = "livo.booking.reservation-mode", havingValue = "pessimistic", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class PessimisticReservationStrategy implements ReservationStrategy {
+
+    private final InventoryRepository inventoryRepository;
+    private final InventoryService inventoryService;
+
+    @Override
+    public BigDecimal reserve(Long roomId, LocalDate startDate, LocalDate endDate, int roomsCount, long nights,
+                              String holdId) {
+        //retrieve inventory for the room over the requested dates with pessimistic write lock
+        List<Inventory> inventoryList;
+        try{
+            inventoryList = inventoryRepository.findInventoriesForRoom(roomId, startDate, endDate, roomsCount);
+        //if timeout while acquiring lock
+        }catch(PessimisticLockingFailureException e){
+            log.error("Failed to acquire lock for room {}", roomId);
+            throw new InventoryBusyException("Room is currently being booked by another user. Please try again later.");
+        }
+
+        if(inventoryList.size()!=nights){
+            throw new BadRequestException("Room is not available for all selected dates");
+        }
+
+        //calculate amount
+        BigDecimal amount = inventoryService.calculateTotalAmount(inventoryList);
+
+        //reserve rooms in the inventories
+        for(Inventory i : inventoryList){
+            i.setReservedCount(i.getReservedCount() + roomsCount);
+        }
+
+        //save inventories
+        inventoryRepository.saveAll(inventoryList);
+        return amount;
+    }
+
+    @Override
+    public void release(Booking booking) {
+        //find inventory list corresponding to the booking with locks
+        List<Inventory> inventoryList = inventoryRepository.findInventoriesForCleanup(
+                booking.getRoom(), booking.getStartDate(), booking.getEndDate());
+
+        //reset the reserved count in inventories
+        for (Inventory i : inventoryList) {
+            int newReserved = i.getReservedCount() - booking.getRoomsCount();
+            i.setReservedCount(Math.max(0, newReserved));
+        }
+
+        //saving inventories
+        inventoryRepository.saveAll(inventoryList);
+    }
+
+    @Override
+    public void confirm(Booking booking) {
+        //get inventory list to be updated
+        List<Inventory> inventoryList = inventoryRepository.findInventoriesForBooking(
+                booking.getRoom().getId(),
+                booking.getStartDate(),
+                booking.getEndDate()
+        );
+
+        for(Inventory i : inventoryList){
+            //move room from reserved to booked
+            int reserved = i.getReservedCount() - booking.getRoomsCount();
+            int booked = i.getBookedCount() + booking.getRoomsCount();
+            i.setReservedCount(Math.max(0,reserved));
+            i.setBookedCount(booked);
+        }
+
+        //save inventory list
+        inventoryRepository.saveAll(inventoryList);
+    }
+
+    @Override
+    public void cancel(Booking booking) {
+        //get inventory list to be updated
+        List<Inventory> inventoryList = inventoryRepository.findInventoriesForBooking(
+                booking.getRoom().getId(),
+                booking.getStartDate(),
+                booking.getEndDate()
+        );
+
+        for(Inventory i : inventoryList){
+            //remove rooms from booked count
+            int booked = i.getBookedCount()-booking.getRoomsCount();
+            i.setBookedCount(Math.max(0,booked));
+        }
+
+        //save inventory list
+        inventoryRepository.saveAllAndFlush(inventoryList);
+    }
+}
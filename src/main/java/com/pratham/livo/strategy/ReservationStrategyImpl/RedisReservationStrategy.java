@@ -0,0 +1,325 @@
+package com.pratham.livo.strategy.ReservationStrategyImpl;
+
+import com.pratham.livo.config.SchedulingConfig;
+import com.pratham.livo.entity.Booking;
+import com.pratham.livo.entity.Room;
+import com.pratham.livo.enums.InventoryChangeType;
+import com.pratham.livo.event.InventoryChangedEvent;
+import com.pratham.livo.exception.BadRequestException;
+import com.pratham.livo.exception.InventoryBusyException;
+import com.pratham.livo.repository.HotelRepository;
+import com.pratham.livo.repository.InventoryRepository;
+import com.pratham.livo.repository.RoomRepository;
+import com.pratham.livo.strategy.ReservationStrategy;
+import com.pratham.livo.utils.InventoryHoldStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+//holds live in redis: a lua script checks and decrements the free counters of every night at once,
+//so booking no longer waits on inventory row locks. unpaid holds never touch postgres,
+//confirmed and cancelled rooms are written to booked_count in batches by the write-behind flush
+@Component
+@ConditionalOnProperty(name = "livo.booking.reservation-mode", havingValue = "redis")
+@RequiredArgsConstructor
+@Slf4j
+public class RedisReservationStrategy implements ReservationStrategy {
+
+    private static final String CONFIRM = "CONFIRM";
+    private static final String CANCEL = "CANCEL";
+
+    private final InventoryHoldStore inventoryHoldStore;
+    private final InventoryRepository inventoryRepository;
+    private final RoomRepository roomRepository;
+    private final HotelRepository hotelRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final RedissonClient redissonClient;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${livo.booking.redis.write-behind-batch-size}")
+    private int writeBehindBatchSize;
+
+    //pending operations older than this are from a crashed instance and no longer block reloads
+    @Value("${livo.booking.redis.stale-pending-minutes}")
+    private long stalePendingMinutes;
+
+    //how long applied write-behind entries are remembered to skip their replays
+    @Value("${livo.booking.redis.applied-retention-days}")
+    private long appliedRetentionDays;
+
+    @Override
+    public BigDecimal reserve(Long roomId, LocalDate startDate, LocalDate endDate, int roomsCount, long nights,
+                              String holdId) {
+        requireTransaction();
+        List<LocalDate> dates = startDate.datesUntil(endDate.plusDays(1)).toList();
+        String member = "reserve:" + holdId;
+
+        long result = inventoryHoldStore.reserve(roomId, dates, roomsCount, member);
+        if(result == InventoryHoldStore.NOT_LOADED){
+            //first booking of this room since startup, or new days were appended
+            if(!loadRoom(roomId)){
+                throw new InventoryBusyException("Room is currently being booked by another user. Please try again later.");
+            }
+            result = inventoryHoldStore.reserve(roomId, dates, roomsCount, member);
+        }
+        if(result != InventoryHoldStore.RESERVED){
+            meterRegistry.counter("livo.booking.redis.holds", "result", "rejected").increment();
+            throw new BadRequestException("Room is not available for all selected dates");
+        }
+        meterRegistry.counter("livo.booking.redis.holds", "result", "reserved").increment();
+
+        //the hold settles when the booking commits and is given back if it rolls back
+        afterCompletion(committed -> {
+            if(committed) inventoryHoldStore.settle(roomId, member);
+            else inventoryHoldStore.release(roomId, dates, roomsCount, member);
+        });
+
+        //prices are read without locks, the pricing job only changes them
+        List<BigDecimal> prices = inventoryRepository.findPricesForRoom(roomId, startDate, endDate);
+        if(prices.size()!=nights){
+            throw new BadRequestException("Room is not available for all selected dates");
+        }
+        return prices.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Override
+    public void release(Booking booking) {
+        requireTransaction();
+        Long roomId = booking.getRoom().getId();
+        String member = "release:" + booking.getId();
+        //pending until the counters are given back, a reload in between would count the rooms twice
+        inventoryHoldStore.begin(roomId, member);
+        afterCompletion(committed -> {
+            if(committed) inventoryHoldStore.release(roomId, datesOf(booking), booking.getRoomsCount(), member);
+            else inventoryHoldStore.settle(roomId, member);
+        });
+    }
+
+    @Override
+    public void confirm(Booking booking) {
+        requireTransaction();
+        //the held rooms become booked rooms, redis free counters stay the same
+        String entry = writeBehindEntry(CONFIRM, booking);
+        inventoryHoldStore.begin(booking.getRoom().getId(), pendingMember(CONFIRM, booking.getId()));
+        afterCompletion(committed -> {
+            if(committed) inventoryHoldStore.pushWriteBehind(entry);
+            else inventoryHoldStore.settle(booking.getRoom().getId(), pendingMember(CONFIRM, booking.getId()));
+        });
+    }
+
+    @Override
+    public void cancel(Booking booking) {
+        requireTransaction();
+        Long roomId = booking.getRoom().getId();
+        String entry = writeBehindEntry(CANCEL, booking);
+        inventoryHoldStore.begin(roomId, pendingMember(CANCEL, booking.getId()));
+        afterCompletion(committed -> {
+            if(committed){
+                //the rooms are free again right away, booked_count follows with the write-behind
+                inventoryHoldStore.release(roomId, datesOf(booking), booking.getRoomsCount(), null);
+                inventoryHoldStore.pushWriteBehind(entry);
+            }else{
+                inventoryHoldStore.settle(roomId, pendingMember(CANCEL, booking.getId()));
+            }
+        });
+    }
+
+    @Override
+    public boolean supportsBulkRelease() {
+        //the free counters in redis have to move too
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${livo.booking.redis.write-behind-interval-ms}", scheduler = SchedulingConfig.POLLING_SCHEDULER)
+    public void flushWriteBehind() {
+        //one flusher at a time keeps the entries in order
+        RLock lock = redissonClient.getLock("inventory:writebehind:lock");
+        if(!lock.tryLock()) return;
+        try{
+            int flushed;
+            do{
+                flushed = flushBatch();
+            }while(flushed == writeBehindBatchSize);
+        }catch (Exception e){
+            log.error("Inventory write-behind flush failed, will retry", e);
+        }finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(cron = "${livo.booking.redis.applied-prune-cron}")
+    public void pruneAppliedWriteBehind() {
+        try{
+            Integer deleted = transactionTemplate.execute(status -> inventoryRepository.deleteWriteBehindAppliedBefore(
+                    LocalDateTime.now().minusDays(appliedRetentionDays)));
+            log.info("Pruned {} applied write-behind entries", deleted);
+        }catch (Exception e){
+            log.error("Failed to prune applied write-behind entries", e);
+        }
+    }
+
+    //redis counters may have drifted while no instance was running (lost releases, expired keys)
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        log.info("Starting Redis Inventory Reconciliation");
+        flushWriteBehind();
+        int reloaded = 0;
+        int skipped = 0;
+        for(Long roomId : inventoryHoldStore.findLoadedRoomIds()){
+            if(loadRoom(roomId)) reloaded++;
+            else skipped++;
+        }
+        log.info("Redis Inventory Reconciliation finished, reloaded {} rooms, {} busy rooms left as they are",
+                reloaded, skipped);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if(event.getChangeType() != InventoryChangeType.REMOVED) return;
+        if(event.getRoomId() != null){
+            inventoryHoldStore.remove(event.getRoomId());
+            return;
+        }
+        roomRepository.findByHotel(hotelRepository.getReferenceById(event.getHotelId()))
+                .forEach(room -> inventoryHoldStore.remove(room.getId()));
+    }
+
+    private int flushBatch() {
+        List<String> entries = inventoryHoldStore.peekWriteBehind(writeBehindBatchSize);
+        if(entries.isEmpty()) return 0;
+
+        List<WriteBehindEntry> parsed = entries.stream().map(WriteBehindEntry::parse).toList();
+        //the list is trimmed only after this commit, a crash in between replays the batch
+        //so every entry is marked applied in the same transaction and skipped the second time
+        transactionTemplate.executeWithoutResult(status -> {
+            for(WriteBehindEntry entry : parsed){
+                if(inventoryRepository.markWriteBehindApplied(entry.bookingId(), entry.roomId(), entry.operation()) == 0){
+                    meterRegistry.counter("livo.booking.redis.write-behind.replayed").increment();
+                    continue;
+                }
+                if(CONFIRM.equals(entry.operation())){
+                    inventoryRepository.addBookedInventory(entry.roomId(), entry.startDate(), entry.endDate(), entry.roomsCount());
+                }else{
+                    inventoryRepository.releaseBookedInventory(entry.roomId(), entry.startDate(), entry.endDate(), entry.roomsCount());
+                }
+                //postgres free counts only change now, search and summaries refresh on this commit
+                applicationEventPublisher.publishEvent(InventoryChangedEvent.builder()
+                        .hotelId(entry.hotelId())
+                        .roomId(entry.roomId())
+                        .city(entry.city())
+                        .startDate(entry.startDate())
+                        .endDate(entry.endDate())
+                        .changeType(CONFIRM.equals(entry.operation()) ? InventoryChangeType.RESERVED : InventoryChangeType.CANCELLED)
+                        .build());
+                //booked_count too, occupancy pricing has to see the committed count
+                if(CONFIRM.equals(entry.operation())){
+                    applicationEventPublisher.publishEvent(InventoryChangedEvent.builder()
+                            .hotelId(entry.hotelId())
+                            .roomId(entry.roomId())
+                            .city(entry.city())
+                            .startDate(entry.startDate())
+                            .endDate(entry.endDate())
+                            .changeType(InventoryChangeType.CONFIRMED)
+                            .build());
+                }
+            }
+        });
+        inventoryHoldStore.trimWriteBehind(entries.size());
+        for(WriteBehindEntry entry : parsed){
+            inventoryHoldStore.settle(entry.roomId(), pendingMember(entry.operation(), entry.bookingId()));
+        }
+        meterRegistry.counter("livo.booking.redis.write-behind").increment(entries.size());
+        return entries.size();
+    }
+
+    private boolean loadRoom(Long roomId) {
+        //read the sequence first, the load is dropped if anything touched the room meanwhile
+        String seq = inventoryHoldStore.readSeq(roomId);
+        Map<LocalDate, Integer> freeCounts = new LinkedHashMap<>();
+        for(Object[] row : inventoryRepository.findFreeCountsForHolds(roomId, LocalDate.now())){
+            LocalDate date = row[0] instanceof Date sqlDate ? sqlDate.toLocalDate() : (LocalDate) row[0];
+            freeCounts.put(date, ((Number) row[1]).intValue());
+        }
+        long staleBefore = System.currentTimeMillis() - Duration.ofMinutes(stalePendingMinutes).toMillis();
+        boolean loaded = inventoryHoldStore.load(roomId, seq, staleBefore, freeCounts);
+        meterRegistry.counter("livo.booking.redis.loads", "result", loaded ? "loaded" : "busy").increment();
+        return loaded;
+    }
+
+    private void requireTransaction() {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()){
+            throw new IllegalStateException("Redis holds must be changed inside a transaction");
+        }
+    }
+
+    private void afterCompletion(Consumer<Boolean> action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try{
+                    action.accept(status == STATUS_COMMITTED);
+                }catch (Exception e){
+                    //left pending, the next reconciliation treats it as stale
+                    log.error("Failed to settle redis inventory hold", e);
+                }
+            }
+        });
+    }
+
+    private static List<LocalDate> datesOf(Booking booking) {
+        return booking.getStartDate().datesUntil(booking.getEndDate().plusDays(1)).toList();
+    }
+
+    private static String pendingMember(String operation, Long bookingId) {
+        return operation.toLowerCase() + ":" + bookingId;
+    }
+
+    private static String writeBehindEntry(String operation, Booking booking) {
+        Room room = booking.getRoom();
+        return new WriteBehindEntry(operation, booking.getId(), booking.getHotel().getId(), room.getId(),
+                booking.getStartDate(), booking.getEndDate(), booking.getRoomsCount(),
+                booking.getHotel().getCity()).format();
+    }
+
+    private record WriteBehindEntry(String operation, Long bookingId, Long hotelId, Long roomId,
+                                    LocalDate startDate, LocalDate endDate, int roomsCount, String city) {
+
+        //city goes last so it may contain the separator
+        String format() {
+            return String.join("|", operation, String.valueOf(bookingId), String.valueOf(hotelId),
+                    String.valueOf(roomId), startDate.toString(), endDate.toString(),
+                    String.valueOf(roomsCount), city);
+        }
+
+        static WriteBehindEntry parse(String value) {
+            String[] parts = value.split("\\|", 8);
+            return new WriteBehindEntry(parts[0], Long.valueOf(parts[1]), Long.valueOf(parts[2]),
+                    Long.valueOf(parts[3]), LocalDate.parse(parts[4]), LocalDate.parse(parts[5]),
+                    Integer.parseInt(parts[6]), parts[7]);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.pratham.livo.utils;
+
+import com.pratham.livo.enums.BookingStatus;
+import com.pratham.livo.repository.BookingRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//drains expired bookings with several workers running BulkBookingExpirer batches side by side
+//SKIP LOCKED hands every worker a disjoint batch, so they never wait on each other's bookings
+//each worker grows its batch while batches are fast and shrinks it when they get slow
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class BookingExpirySweeper {
+
+    private static final List<BookingStatus> UNPAID_STATUSES = List.of(
+            BookingStatus.RESERVED,
+            BookingStatus.GUESTS_ADDED,
+            BookingStatus.PAYMENT_PENDING
+    );
+
+    private final BulkBookingExpirer bulkBookingExpirer;
+    private final BookingRepository bookingRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${livo.booking.expiry.workers}")
+    private int workers;
+
+    @Value("${livo.booking.expiry.batch-size}")
+    private int initialBatchSize;
+
+    @Value("${livo.booking.expiry.min-batch-size}")
+    private int minBatchSize;
+
+    @Value("${livo.booking.expiry.max-batch-size}")
+    private int maxBatchSize;
+
+    @Value("${livo.booking.expiry.target-batch-ms}")
+    private long targetBatchMillis;
+
+    @Value("${livo.booking.expiry.max-run-seconds}")
+    private long maxRunSeconds;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private ExecutorService executor;
+    private Timer batchTimer;
+    private DistributionSummary batchSizes;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "booking-expiry-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        //backlog: unpaid bookings past their session, lag: how long the oldest of them has been waiting
+        meterRegistry.gauge("livo.booking.expiry.backlog", backlog);
+        meterRegistry.gauge("livo.booking.expiry.lag.seconds", lagSeconds);
+        batchTimer = meterRegistry.timer("livo.booking.expiry.batch.duration");
+        batchSizes = meterRegistry.summary("livo.booking.expiry.batch.size");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    //expires every booking whose session ended before the threshold, returns how many were expired
+    //stops early when the run budget is used up, the next run carries on
+    public long sweep(LocalDateTime threshold) {
+        measureBacklog(threshold);
+        if(backlog.get() == 0) return 0;
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(maxRunSeconds);
+        //no point starting more workers than there are batches
+        int workerCount = (int) Math.max(1, Math.min(workers, backlog.get() / minBatchSize));
+
+        List<Future<Long>> futures = new ArrayList<>();
+        for(int i = 0; i < workerCount; i++){
+            futures.add(executor.submit(() -> drain(threshold, deadline)));
+        }
+
+        long expired = 0;
+        for(Future<Long> future : futures){
+            try{
+                expired += future.get();
+            }catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                break;
+            }catch (ExecutionException e){
+                //the other workers carry on, the failed worker's batch was rolled back
+                log.error("Booking expiry worker failed", e.getCause());
+            }
+        }
+
+        measureBacklog(threshold);
+        return expired;
+    }
+
+    //one worker, runs batches until nothing unlocked is left or the deadline passes
+    private long drain(LocalDateTime threshold, long deadline) {
+        int batchSize = initialBatchSize;
+        long expired = 0;
+        while(System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()){
+            int size = batchSize;
+            long start = System.nanoTime();
+            Integer count = transactionTemplate.execute(status -> bulkBookingExpirer.expireBatch(threshold, size));
+            long elapsed = System.nanoTime() - start;
+            batchTimer.record(elapsed, TimeUnit.NANOSECONDS);
+
+            if(count == null || count == 0) break;
+            batchSizes.record(count);
+            expired += count;
+
+            //additive increase while well under the target, halve when over it
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+            if(elapsedMillis > targetBatchMillis){
+                batchSize = Math.max(minBatchSize, batchSize / 2);
+            }else if(elapsedMillis < targetBatchMillis / 2 && count == size){
+                batchSize = Math.min(maxBatchSize, batchSize + initialBatchSize);
+            }
+        }
+        return expired;
+    }
+
+    private void measureBacklog(LocalDateTime threshold) {
+        backlog.set(bookingRepository.countByBookingStatusInAndUpdatedAtBefore(UNPAID_STATUSES, threshold));
+        lagSeconds.set(bookingRepository.findOldestUpdatedAt(UNPAID_STATUSES, threshold)
+                .map(oldest -> Duration.between(oldest, threshold).toSeconds())
+                .orElse(0L));
+    }
+}
@@ -0,0 +1,69 @@
+package com.pratham.livo.utils;
+
+import com.pratham.livo.entity.Booking;
+import com.pratham.livo.entity.BookingItem;
+import com.pratham.livo.enums.InventoryChangeType;
+import com.pratham.livo.event.InventoryChangedEvent;
+import com.pratham.livo.strategy.ReservationStrategy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+
+//moves the counters of every room of a booking through the active reservation strategy
+//a cart booking is handed to the strategy one room at a time, in ascending room id order
+//like its reservation, so two bookings never lock the same rows in opposite order
+@Component
+@RequiredArgsConstructor
+public class BookingInventory {
+
+    private final ReservationStrategy reservationStrategy;
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    public void release(Booking booking) {
+        for(Booking part : perRoom(booking)){
+            reservationStrategy.release(part);
+            applicationEventPublisher.publishEvent(
+                    InventoryChangedEvent.forBooking(part, InventoryChangeType.RELEASED));
+        }
+    }
+
+    public void confirm(Booking booking) {
+        for(Booking part : perRoom(booking)){
+            reservationStrategy.confirm(part);
+            applicationEventPublisher.publishEvent(
+                    InventoryChangedEvent.forBooking(part, InventoryChangeType.CONFIRMED));
+        }
+    }
+
+    public void cancel(Booking booking) {
+        for(Booking part : perRoom(booking)){
+            reservationStrategy.cancel(part);
+            applicationEventPublisher.publishEvent(
+                    InventoryChangedEvent.forBooking(part, InventoryChangeType.CANCELLED));
+        }
+    }
+
+    //the booking itself for a single room, else a detached copy per item that carries its room and count
+    //the copies keep the booking id, strategies that key their entries by booking stay per room unique
+    public List<Booking> perRoom(Booking booking) {
+        List<BookingItem> items = booking.getItems();
+        if(items == null || items.isEmpty()) return List.of(booking);
+        return items.stream()
+                .sorted(Comparator.comparing(item -> item.getRoom().getId()))
+                .map(item -> Booking.builder()
+                        .id(booking.getId())
+                        .hotel(booking.getHotel())
+                        .room(item.getRoom())
+                        .user(booking.getUser())
+                        .roomsCount(item.getRoomsCount())
+                        .startDate(booking.getStartDate())
+                        .endDate(booking.getEndDate())
+                        .amount(item.getAmount())
+                        .bookingStatus(booking.getBookingStatus())
+                        .build())
+                .toList();
+    }
+}
@@ -0,0 +1,50 @@
+package com.pratham.livo.utils;
+
+import com.pratham.livo.enums.InventoryChangeType;
+import com.pratham.livo.event.InventoryChangedEvent;
+import com.pratham.livo.projection.ExpiredBookingWrapper;
+import com.pratham.livo.repository.BookingRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+//expires unpaid bookings and releases their inventory with one set based statement per batch
+//no Booking or Inventory entities are loaded, a batch costs one round trip instead of one lock per booking
+@Component
+@RequiredArgsConstructor
+public class BulkBookingExpirer {
+
+    private final BookingRepository bookingRepository;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    //returns the number of bookings expired, 0 when nothing unlocked was left
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int expireBatch(LocalDateTime threshold, int batchSize) {
+        List<Object[]> rows = bookingRepository.expireUnpaidBookings(threshold, batchSize);
+        //a cart booking comes back once per room
+        Set<Long> bookingIds = new HashSet<>();
+        for(Object[] row : rows){
+            ExpiredBookingWrapper expired = ExpiredBookingWrapper.fromRow(row);
+            bookingIds.add(expired.getBookingId());
+            applicationEventPublisher.publishEvent(InventoryChangedEvent.builder()
+                    .hotelId(expired.getHotelId())
+                    .roomId(expired.getRoomId())
+                    .city(expired.getCity())
+                    .startDate(expired.getStartDate())
+                    .endDate(expired.getEndDate())
+                    .changeType(InventoryChangeType.RELEASED)
+                    .build());
+        }
+        meterRegistry.counter("livo.booking.expiry.bulk.bookings").increment(bookingIds.size());
+        return bookingIds.size();
+    }
+}
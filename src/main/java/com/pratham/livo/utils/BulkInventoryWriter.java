@@ -0,0 +1,71 @@
+package com.pratham.livo.utils;
+
+import com.pratham.livo.enums.InventoryChangeType;
+import com.pratham.livo.event.InventoryChangedEvent;
+import com.pratham.livo.projection.InventoryExtensionWrapper;
+import com.pratham.livo.repository.InventoryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+//writes inventory rows with set based inserts generated inside postgres
+//no Inventory entities are built or managed, a 100 room hotel year is a single statement
+@Component
+@RequiredArgsConstructor
+public class BulkInventoryWriter {
+
+    private final InventoryRepository inventoryRepository;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    //bounds the rows a single statement writes (rooms * days)
+    @Value("${livo.inventory.bulk.rooms-per-statement}")
+    private int roomsPerStatement;
+
+    //creates every day between the dates for the rooms, days that already exist are skipped
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long createInventory(List<Long> roomIds, LocalDate startDate, LocalDate endDate) {
+        long created = 0;
+        for(int from = 0; from < roomIds.size(); from += roomsPerStatement){
+            List<Long> chunk = roomIds.subList(from, Math.min(from + roomsPerStatement, roomIds.size()));
+            created += publishCreated(inventoryRepository.insertInventoryForRooms(chunk, startDate, endDate));
+        }
+        return created;
+    }
+
+    //appends the days after each room's last inventory day up to the horizon
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long extendInventory(List<Long> roomIds, LocalDate fromDate, LocalDate horizonDate) {
+        long created = 0;
+        for(int from = 0; from < roomIds.size(); from += roomsPerStatement){
+            List<Long> chunk = roomIds.subList(from, Math.min(from + roomsPerStatement, roomIds.size()));
+            created += publishCreated(inventoryRepository.extendInventoryForRooms(chunk, fromDate, horizonDate));
+        }
+        return created;
+    }
+
+    //one event per hotel instead of one per room, listeners refresh the whole created range
+    private long publishCreated(List<Object[]> rows) {
+        long created = 0;
+        for(Object[] row : rows){
+            InventoryExtensionWrapper extension = InventoryExtensionWrapper.fromRow(row);
+            created += extension.getCreatedCount();
+            applicationEventPublisher.publishEvent(InventoryChangedEvent.builder()
+                    .hotelId(extension.getHotelId())
+                    .city(extension.getCity())
+                    .startDate(extension.getStartDate())
+                    .endDate(extension.getEndDate())
+                    .changeType(InventoryChangeType.CREATED)
+                    .build());
+        }
+        meterRegistry.counter("livo.inventory.bulk.rows").increment(created);
+        return created;
+    }
+}
@@ -0,0 +1,170 @@
+package com.pratham.livo.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+
+//per room free counters for the redis hold layer, every change is one lua script so it is atomic
+//keys of one room share a hash tag so they live on the same slot
+//  inventory:{roomId}:free     hash date -> free rooms
+//  inventory:{roomId}:pending  zset of operations that changed or will change the db but are not settled yet
+//  inventory:{roomId}:seq      bumped by every change, a reload only wins if nothing changed while it read the db
+@Component
+@ConditionalOnProperty(name = "livo.booking.reservation-mode", havingValue = "redis")
+@RequiredArgsConstructor
+public class InventoryHoldStore {
+
+    public static final long RESERVED = 1;
+    public static final long NOT_AVAILABLE = 0;
+    public static final long NOT_LOADED = -1;
+
+    private static final String WRITE_BEHIND_KEY = "inventory:writebehind";
+
+    //ARGV: rooms, pending member, now, dates...
+    private static final RedisScript<Long> RESERVE_SCRIPT = new DefaultRedisScript<>("""
+            local n = tonumber(ARGV[1])
+            for i = 4, #ARGV do
+                local free = redis.call('HGET', KEYS[1], ARGV[i])
+                if not free then return -1 end
+                if tonumber(free) < n then return 0 end
+            end
+            for i = 4, #ARGV do
+                redis.call('HINCRBY', KEYS[1], ARGV[i], -n)
+            end
+            redis.call('ZADD', KEYS[2], ARGV[3], ARGV[2])
+            redis.call('INCR', KEYS[3])
+            return 1
+            """, Long.class);
+
+    //ARGV: rooms, pending member to settle or empty, dates...
+    //days that are not loaded are skipped, a later load reads them from the db
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>("""
+            local n = tonumber(ARGV[1])
+            for i = 3, #ARGV do
+                if redis.call('HEXISTS', KEYS[1], ARGV[i]) == 1 then
+                    redis.call('HINCRBY', KEYS[1], ARGV[i], n)
+                end
+            end
+            if ARGV[2] ~= '' then redis.call('ZREM', KEYS[2], ARGV[2]) end
+            redis.call('INCR', KEYS[3])
+            return 1
+            """, Long.class);
+
+    //ARGV: pending member, now
+    private static final RedisScript<Long> BEGIN_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('ZADD', KEYS[2], ARGV[2], ARGV[1])
+            redis.call('INCR', KEYS[3])
+            return 1
+            """, Long.class);
+
+    //ARGV: pending member
+    private static final RedisScript<Long> SETTLE_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('ZREM', KEYS[2], ARGV[1])
+            redis.call('INCR', KEYS[3])
+            return 1
+            """, Long.class);
+
+    //ARGV: seq read before the db, stale cutoff, date, free, date, free...
+    //operations older than the cutoff are treated as lost (crashed instance) and dropped
+    private static final RedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', ARGV[2])
+            if redis.call('ZCARD', KEYS[2]) > 0 then return 0 end
+            if (redis.call('GET', KEYS[3]) or '0') ~= ARGV[1] then return 0 end
+            redis.call('DEL', KEYS[1])
+            for i = 3, #ARGV, 2 do
+                redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+            end
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    public long reserve(Long roomId, List<LocalDate> dates, int rooms, String member) {
+        List<String> args = new ArrayList<>(List.of(
+                String.valueOf(rooms), member, String.valueOf(System.currentTimeMillis())));
+        dates.forEach(date -> args.add(date.toString()));
+        return run(RESERVE_SCRIPT, roomId, args);
+    }
+
+    public void release(Long roomId, List<LocalDate> dates, int rooms, String member) {
+        List<String> args = new ArrayList<>(List.of(String.valueOf(rooms), member == null ? "" : member));
+        dates.forEach(date -> args.add(date.toString()));
+        run(RELEASE_SCRIPT, roomId, args);
+    }
+
+    public void begin(Long roomId, String member) {
+        run(BEGIN_SCRIPT, roomId, List.of(member, String.valueOf(System.currentTimeMillis())));
+    }
+
+    public void settle(Long roomId, String member) {
+        run(SETTLE_SCRIPT, roomId, List.of(member));
+    }
+
+    public String readSeq(Long roomId) {
+        String seq = stringRedisTemplate.opsForValue().get(seqKey(roomId));
+        return seq == null ? "0" : seq;
+    }
+
+    public boolean load(Long roomId, String seq, long staleBeforeMillis, Map<LocalDate, Integer> freeCounts) {
+        List<String> args = new ArrayList<>(List.of(seq, String.valueOf(staleBeforeMillis)));
+        freeCounts.forEach((date, free) -> {
+            args.add(date.toString());
+            args.add(String.valueOf(free));
+        });
+        return run(LOAD_SCRIPT, roomId, args) == 1;
+    }
+
+    public void remove(Long roomId) {
+        stringRedisTemplate.delete(freeKey(roomId));
+        stringRedisTemplate.opsForValue().increment(seqKey(roomId));
+    }
+
+    public Set<Long> findLoadedRoomIds() {
+        Set<Long> roomIds = new HashSet<>();
+        ScanOptions options = ScanOptions.scanOptions().match("inventory:{*}:free").count(500).build();
+        try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+            cursor.forEachRemaining(key ->
+                    roomIds.add(Long.valueOf(key.substring(key.indexOf('{') + 1, key.indexOf('}')))));
+        }
+        return roomIds;
+    }
+
+    public void pushWriteBehind(String entry) {
+        stringRedisTemplate.opsForList().rightPush(WRITE_BEHIND_KEY, entry);
+    }
+
+    public List<String> peekWriteBehind(int count) {
+        List<String> entries = stringRedisTemplate.opsForList().range(WRITE_BEHIND_KEY, 0, count - 1);
+        return entries == null ? List.of() : entries;
+    }
+
+    public void trimWriteBehind(int count) {
+        stringRedisTemplate.opsForList().trim(WRITE_BEHIND_KEY, count, -1);
+    }
+
+    private long run(RedisScript<Long> script, Long roomId, List<String> args) {
+        Long result = stringRedisTemplate.execute(script,
+                List.of(freeKey(roomId), pendingKey(roomId), seqKey(roomId)), args.toArray());
+        return result == null ? 0 : result;
+    }
+
+    private String freeKey(Long roomId) {
+        return "inventory:{" + roomId + "}:free";
+    }
+
+    private String pendingKey(Long roomId) {
+        return "inventory:{" + roomId + "}:pending";
+    }
+
+    private String seqKey(Long roomId) {
+        return "inventory:{" + roomId + "}:seq";
+    }
+}
@@ -0,0 +1,220 @@
+package com.pratham.livo.utils;
+
+import com.pratham.livo.dto.job.JobRunDto;
+import com.pratham.livo.exception.LeaseLostException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RFencedLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+//makes every replica's @Scheduled trigger count once across the cluster
+//a job (or one partition of it) runs on whichever instance takes its lease first
+//the others skip it, as do instances firing late after the run already finished
+//  job:{name}:lock    fenced redisson lock, renewed by the watchdog while the job runs
+//  job:{name}:done    marker set after a successful run, lives for the run window
+//  job:{name}:runs    the last runs, newest first
+//writes of a job are fenced in postgres, see JobLease.fence and db/job_fence.sql
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class JobCoordinator {
+
+    private static final String JOB_NAMES_KEY = "job:names";
+    private static final String INSTANCE = ManagementFactory.getRuntimeMXBean().getName();
+
+    private final RedissonClient redissonClient;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    //replicas fire the same cron within seconds of each other, one run per window counts for all of them
+    @Value("${livo.jobs.run-window}")
+    private Duration runWindow;
+
+    @Value("${livo.jobs.history-size}")
+    private int historySize;
+
+    //runs the job on one instance only
+    public void runOnce(String jobName, Consumer<JobLease> task) {
+        run(jobName, null, task);
+    }
+
+    //splits the job into partitions, every instance takes whichever partitions are still free
+    //starting at a random partition spreads the replicas over the key space
+    public void runPartitioned(String jobName, int partitions, BiConsumer<JobLease, Integer> task) {
+        int first = ThreadLocalRandom.current().nextInt(partitions);
+        for(int i = 0; i < partitions; i++){
+            int partition = (first + i) % partitions;
+            run(jobName, partition, lease -> task.accept(lease, partition));
+        }
+    }
+
+    //same as above with the partitions running side by side on the executor
+    //each lease is taken and released by the pool thread that runs its partition
+    public void runPartitioned(String jobName, int partitions, ExecutorService executor,
+                               BiConsumer<JobLease, Integer> task) {
+        int first = ThreadLocalRandom.current().nextInt(partitions);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int i = 0; i < partitions; i++){
+            int partition = (first + i) % partitions;
+            futures.add(executor.submit(() -> run(jobName, partition, lease -> task.accept(lease, partition))));
+        }
+        for(Future<?> future : futures){
+            try{
+                future.get();
+            }catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                return;
+            }catch (ExecutionException e){
+                //run() records its own failures, this only happens when the lease could not be taken
+                log.error("Job {} partition could not run", jobName, e.getCause());
+            }
+        }
+    }
+
+    //the fence row is locked until the caller's transaction ends, so two holders of one job
+    //never write at the same time and the older token can never write after the newer one
+    void fence(JobLease lease) {
+        if(!TransactionSynchronizationManager.isActualTransactionActive()){
+            throw new IllegalStateException("Job " + lease.getKey() + " has to be fenced inside its write transaction");
+        }
+        int fenced = jdbcTemplate.update("""
+                INSERT INTO job_fence (job_key, token, fenced_at) VALUES (?, ?, NOW())
+                ON CONFLICT (job_key) DO UPDATE SET token = EXCLUDED.token, fenced_at = EXCLUDED.fenced_at
+                WHERE job_fence.token <= EXCLUDED.token
+                """, lease.getKey(), lease.getFencingToken());
+        if(fenced == 0){
+            throw new LeaseLostException("Job " + lease.getKey() + " holds stale token " + lease.getFencingToken());
+        }
+    }
+
+    public Set<String> getJobNames() {
+        Set<String> names = stringRedisTemplate.opsForSet().members(JOB_NAMES_KEY);
+        return names == null ? Set.of() : new TreeSet<>(names);
+    }
+
+    public List<JobRunDto> getRecentRuns(String jobName) {
+        List<String> entries = stringRedisTemplate.opsForList().range(runsKey(jobName), 0, historySize - 1);
+        if(entries == null) return List.of();
+        return entries.stream().map(entry -> toRun(jobName, entry)).toList();
+    }
+
+    private void run(String jobName, Integer partition, Consumer<JobLease> task) {
+        String key = partition == null ? jobName : jobName + ":" + partition;
+        if(Boolean.TRUE.equals(stringRedisTemplate.hasKey(doneKey(key)))){
+            skipped(jobName, "recent");
+            return;
+        }
+
+        RFencedLock lock = redissonClient.getFencedLock("job:" + key + ":lock");
+        Long token = lock.tryLockAndGetToken(0, TimeUnit.SECONDS);
+        if(token == null){
+            skipped(jobName, "locked");
+            return;
+        }
+
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+        JobLease lease = new JobLease(jobName, partition, key, token, lock, this);
+        String status = "SUCCEEDED";
+        String error = null;
+        try{
+            //checked again under the lock, the previous holder may have finished just now
+            if(Boolean.TRUE.equals(stringRedisTemplate.hasKey(doneKey(key)))){
+                skipped(jobName, "recent");
+                return;
+            }
+            task.accept(lease);
+            if(lease.isCurrent()){
+                stringRedisTemplate.opsForValue().set(doneKey(key), INSTANCE, runWindow);
+            }else{
+                status = "FENCED";
+                log.warn("Job {} lost its lease while running (token {})", key, token);
+            }
+        }catch (LeaseLostException e){
+            status = "FENCED";
+            error = e.getMessage();
+            log.warn("Job {} was fenced off by a newer holder (token {})", key, token);
+        }catch (Exception e){
+            status = "FAILED";
+            error = e.getMessage();
+            log.error("Job {} failed", key, e);
+        }finally{
+            if(lock.isHeldByCurrentThread()) lock.unlock();
+        }
+
+        long durationNanos = System.nanoTime() - start;
+        meterRegistry.timer("livo.jobs.duration", "job", jobName, "status", status)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        record(JobRunDto.builder()
+                .jobName(jobName)
+                .partition(partition)
+                .instance(INSTANCE)
+                .fencingToken(token)
+                .startedAt(startedAt)
+                .durationMs(TimeUnit.NANOSECONDS.toMillis(durationNanos))
+                .status(status)
+                .error(error)
+                .build());
+    }
+
+    private void skipped(String jobName, String reason) {
+        meterRegistry.counter("livo.jobs.skipped", "job", jobName, "reason", reason).increment();
+    }
+
+    //entry: partition|instance|token|startedAt|durationMs|status|error
+    private void record(JobRunDto run) {
+        String entry = String.join("|",
+                run.getPartition() == null ? "" : String.valueOf(run.getPartition()),
+                run.getInstance(),
+                String.valueOf(run.getFencingToken()),
+                run.getStartedAt().toString(),
+                String.valueOf(run.getDurationMs()),
+                run.getStatus(),
+                run.getError() == null ? "" : run.getError().replace('|', '/'));
+        try{
+            stringRedisTemplate.opsForSet().add(JOB_NAMES_KEY, run.getJobName());
+            stringRedisTemplate.opsForList().leftPush(runsKey(run.getJobName()), entry);
+            stringRedisTemplate.opsForList().trim(runsKey(run.getJobName()), 0, historySize - 1);
+        }catch (Exception e){
+            //history is best effort, the run itself already happened
+            log.warn("Could not record run of job {}", run.getJobName(), e);
+        }
+    }
+
+    private JobRunDto toRun(String jobName, String entry) {
+        String[] parts = entry.split("\\|", -1);
+        return JobRunDto.builder()
+                .jobName(jobName)
+                .partition(parts[0].isEmpty() ? null : Integer.valueOf(parts[0]))
+                .instance(parts[1])
+                .fencingToken(Long.valueOf(parts[2]))
+                .startedAt(LocalDateTime.parse(parts[3]))
+                .durationMs(Long.valueOf(parts[4]))
+                .status(parts[5])
+                .error(parts[6].isEmpty() ? null : parts[6])
+                .build();
+    }
+
+    private String doneKey(String key) {
+        return "job:" + key + ":done";
+    }
+
+    private String runsKey(String jobName) {
+        return "job:" + jobName + ":runs";
+    }
+}
@@ -0,0 +1,35 @@
+package com.pratham.livo.utils;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.redisson.api.RFencedLock;
+
+//the lease a scheduled job holds while it runs, renewed by the redisson watchdog
+//the fencing token grows with every acquisition, a holder that paused past its lease holds an older token
+@Getter
+@RequiredArgsConstructor
+public class JobLease {
+    private final String jobName;
+    private final Integer partition; //null when the job runs once cluster wide
+    private final String key;
+    private final long fencingToken;
+    private final RFencedLock lock;
+    @Getter(AccessLevel.NONE)
+    private final JobCoordinator jobCoordinator;
+
+    //long running jobs check this between batches and stop when another instance took over
+    //only a cheap early exit, fence() is what keeps a stale holder's writes out
+    public boolean isCurrent() {
+        Long current = lock.getToken();
+        return current != null && current == fencingToken && lock.isHeldByCurrentThread();
+    }
+
+    //call inside every transaction that writes on behalf of the job, before its writes.
+    //records the token on the job's fence row, which stays locked until the transaction ends:
+    //a newer holder waits for this transaction and then raises the token, after which fence()
+    //throws LeaseLostException here and the stale holder's transaction rolls back
+    public void fence() {
+        jobCoordinator.fence(this);
+    }
+}
@@ -0,0 +1,33 @@
+package com.pratham.livo.utils;
+
+import com.pratham.livo.dto.job.JobRunDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//run history of the coordinated scheduled jobs at /actuator/jobs and /actuator/jobs/{jobName}
+@Component
+@Endpoint(id = "jobs")
+@RequiredArgsConstructor
+public class JobRunsEndpoint {
+
+    private final JobCoordinator jobCoordinator;
+
+    @ReadOperation
+    public Map<String, List<JobRunDto>> jobs() {
+        Map<String, List<JobRunDto>> runs = new LinkedHashMap<>();
+        jobCoordinator.getJobNames().forEach(jobName -> runs.put(jobName, jobCoordinator.getRecentRuns(jobName)));
+        return runs;
+    }
+
+    @ReadOperation
+    public List<JobRunDto> job(@Selector String jobName) {
+        return jobCoordinator.getRecentRuns(jobName);
+    }
+}
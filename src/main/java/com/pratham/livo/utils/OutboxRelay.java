@@ -0,0 +1,139 @@
+package com.pratham.livo.utils;
+
+import com.pratham.livo.config.SchedulingConfig;
+import com.pratham.livo.entity.OutboxMessage;
+import com.pratham.livo.projection.OutboxBacklogWrapper;
+import com.pratham.livo.repository.OutboxMessageRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//sends the outbox to rabbitmq in batches: a batch is locked, published on one channel,
+//confirmed by the broker and deleted in the same transaction.
+//delivery is at least once, a crash between the confirm and the commit sends the batch again.
+//runs on every instance, skip locked hands each of them different messages
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    //publishes on the connection factory in confirm mode, see RabbitMQConfig
+    @Qualifier("outboxRabbitTemplate")
+    private final RabbitTemplate rabbitTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${livo.messaging.outbox.batch-size}")
+    private int batchSize;
+
+    //bounds one relay run, whatever is left goes to the next one
+    @Value("${livo.messaging.outbox.max-batches}")
+    private int maxBatches;
+
+    @Value("${livo.messaging.outbox.confirm-timeout-ms}")
+    private long confirmTimeoutMs;
+
+    //a message that failed waits min(max, base * 2^attempts) before the next send
+    @Value("${livo.messaging.outbox.base-backoff-ms}")
+    private long baseBackoffMs;
+
+    @Value("${livo.messaging.outbox.max-backoff-ms}")
+    private long maxBackoffMs;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong oldestAgeMs = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        meterRegistry.gauge("livo.messaging.outbox.pending", pending);
+        meterRegistry.gauge("livo.messaging.outbox.oldest.age.ms", oldestAgeMs);
+    }
+
+    @Scheduled(fixedDelayString = "${livo.messaging.outbox.relay-interval-ms}", scheduler = SchedulingConfig.POLLING_SCHEDULER)
+    public void relay() {
+        try{
+            for(int batch = 0; batch < maxBatches; batch++){
+                Integer sent = transactionTemplate.execute(status -> relayBatch());
+                if(sent == null || sent < batchSize) return;
+            }
+        }catch (Exception e){
+            log.error("Outbox relay failed, will retry", e);
+        }
+    }
+
+    //the backlog is read on its own schedule, the relay itself only touches due rows
+    @Scheduled(fixedDelayString = "${livo.messaging.outbox.backlog-refresh-ms}", scheduler = SchedulingConfig.POLLING_SCHEDULER)
+    public void refreshBacklog() {
+        try{
+            OutboxBacklogWrapper backlog = OutboxBacklogWrapper.fromRow(outboxMessageRepository.findBacklog().getFirst());
+            pending.set(backlog.getPending());
+            oldestAgeMs.set(backlog.getOldestCreatedAt() == null ? 0
+                    : Math.max(0, Duration.between(backlog.getOldestCreatedAt(), LocalDateTime.now()).toMillis()));
+        }catch (Exception e){
+            log.error("Failed to read the outbox backlog", e);
+        }
+    }
+
+    private int relayBatch() {
+        List<OutboxMessage> batch = outboxMessageRepository.claimBatch(batchSize);
+        if(batch.isEmpty()) return 0;
+        List<Long> ids = batch.stream().map(OutboxMessage::getId).toList();
+
+        try{
+            //one dedicated channel, the whole batch is confirmed with a single wait
+            rabbitTemplate.invoke(operations -> {
+                for(OutboxMessage outboxMessage : batch){
+                    operations.send(outboxMessage.getExchange(), outboxMessage.getRoutingKey(), toMessage(outboxMessage));
+                }
+                operations.waitForConfirmsOrDie(confirmTimeoutMs);
+                return null;
+            });
+        }catch (Exception e){
+            //nacked, timed out or no connection, some messages may have arrived and come again later
+            log.warn("Failed to publish {} outbox messages, backing off", batch.size(), e);
+            outboxMessageRepository.deferMessages(ids, baseBackoffMs, maxBackoffMs);
+            meterRegistry.counter("livo.messaging.outbox.failed").increment(batch.size());
+            return 0;
+        }
+
+        outboxMessageRepository.deleteAllByIdInBatch(ids);
+        //from the write in the producing transaction to the broker confirm
+        LocalDateTime now = LocalDateTime.now();
+        for(OutboxMessage outboxMessage : batch){
+            meterRegistry.timer("livo.messaging.outbox.lag", "routing_key", outboxMessage.getRoutingKey())
+                    .record(Math.max(0, Duration.between(outboxMessage.getCreatedAt(), now).toMillis()), TimeUnit.MILLISECONDS);
+        }
+        meterRegistry.counter("livo.messaging.outbox.published").increment(batch.size());
+        return batch.size();
+    }
+
+    //same properties the json converter sets, consumers cannot tell it from a direct send
+    private Message toMessage(OutboxMessage outboxMessage) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setContentEncoding(StandardCharsets.UTF_8.name());
+        properties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, outboxMessage.getPayloadType());
+        properties.setMessageId("outbox-" + outboxMessage.getId());
+        byte[] body = outboxMessage.getPayload().getBytes(StandardCharsets.UTF_8);
+        properties.setContentLength(body.length);
+        return new Message(body, properties);
+    }
+}
@@ -0,0 +1,49 @@
+package com.pratham.livo.utils;
+
+import com.pratham.livo.entity.OutboxMessage;
+import com.pratham.livo.repository.OutboxMessageRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+//stores messages in outbox_message, the body is converted here exactly as the template would send it
+@Component
+@RequiredArgsConstructor
+public class OutboxWriter {
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final RabbitTemplate rabbitTemplate;
+
+    //part of the caller's transaction, the message exists only if it commits
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(String exchange, String routingKey, Object payload) {
+        outboxMessageRepository.save(toOutboxMessage(exchange, routingKey, payload));
+    }
+
+    //in a transaction of its own, for messages that have to go out although the caller rolls back
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void appendDetached(String exchange, String routingKey, Object payload) {
+        outboxMessageRepository.save(toOutboxMessage(exchange, routingKey, payload));
+    }
+
+    private OutboxMessage toOutboxMessage(String exchange, String routingKey, Object payload) {
+        Message message = rabbitTemplate.getMessageConverter().toMessage(payload, new MessageProperties());
+        return OutboxMessage.builder()
+                .exchange(exchange)
+                .routingKey(routingKey)
+                .payloadType(message.getMessageProperties()
+                        .getHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME).toString())
+                .payload(new String(message.getBody(), StandardCharsets.UTF_8))
+                .attempts(0)
+                .availableAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,38 @@
+package com.pratham.livo.utils;
+
+import java.math.BigDecimal;
+
+//fixed point money for the pricing hot path, amounts are whole paise and factors are basis points
+//applyBasisPoints rounds exactly like amount.multiply(factor).setScale(2, RoundingMode.HALF_UP)
+//as long as the amount has at most 2 and the factor at most 4 decimals
+public final class Paise {
+
+    public static final int ONE = 10_000; //a factor of 1 in basis points
+
+    private Paise() {}
+
+    //throws ArithmeticException when the amount has more than 2 decimals
+    public static long of(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long paise) {
+        return BigDecimal.valueOf(paise, 2);
+    }
+
+    //throws ArithmeticException when the factor has more than 4 decimals
+    public static int basisPoints(BigDecimal factor) {
+        return factor.movePointRight(4).intValueExact();
+    }
+
+    //half up means half away from zero, the same as BigDecimal
+    public static long applyBasisPoints(long paise, int basisPoints) {
+        long product = Math.multiplyExact(paise, basisPoints);
+        long quotient = product / ONE;
+        long remainder = product % ONE;
+        if(Math.abs(remainder) * 2 >= ONE){
+            quotient += Long.signum(product);
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,115 @@
+package com.pratham.livo.utils;
+
+import com.pratham.livo.exception.InventoryBusyException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+//in-process admission in front of the inventory row locks, taken before the booking transaction
+//so a request that would only queue on the rows of a hot room never takes a connection from the pool.
+//rooms are hashed onto a fixed set of fair semaphores, waiters are served in arrival order.
+//a stripe whose queue is already full rejects at once, a waiter that runs out of time gives up.
+//only bounds this instance, postgres still decides what is actually free
+@Component
+@RequiredArgsConstructor
+public class RoomLockManager {
+
+    private static final String BUSY_MESSAGE = "Room is currently being booked by another user. Please try again later.";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${livo.booking.lock.enabled}")
+    private boolean enabled;
+
+    @Value("${livo.booking.lock.stripes}")
+    private int stripeCount;
+
+    //requests of one stripe allowed into the database at once
+    @Value("${livo.booking.lock.permits}")
+    private int permits;
+
+    @Value("${livo.booking.lock.max-queue-depth}")
+    private int maxQueueDepth;
+
+    @Value("${livo.booking.lock.wait-timeout-ms}")
+    private long waitTimeoutMs;
+
+    private Semaphore[] stripes;
+    private AtomicInteger[] queueDepths;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    @PostConstruct
+    void init() {
+        stripes = new Semaphore[stripeCount];
+        queueDepths = new AtomicInteger[stripeCount];
+        for(int i = 0; i < stripeCount; i++){
+            stripes[i] = new Semaphore(permits, true);
+            queueDepths[i] = new AtomicInteger();
+        }
+        meterRegistry.gauge("livo.booking.lock.queue.depth", waiting);
+    }
+
+    public <T> T withRoom(Long roomId, Supplier<T> action) {
+        return withRooms(List.of(roomId), action);
+    }
+
+    //stripes are taken in ascending order, two requests for overlapping rooms never wait on each other in a cycle
+    public <T> T withRooms(Collection<Long> roomIds, Supplier<T> action) {
+        if(!enabled) return action.get();
+
+        int[] order = roomIds.stream().mapToInt(this::stripeOf).distinct().sorted().toArray();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTimeoutMs);
+        int acquired = 0;
+        try{
+            for(int stripe : order){
+                acquire(stripe, deadline);
+                acquired++;
+            }
+            return action.get();
+        }finally {
+            for(int i = 0; i < acquired; i++){
+                stripes[order[i]].release();
+            }
+        }
+    }
+
+    private void acquire(int stripe, long deadline) {
+        AtomicInteger queueDepth = queueDepths[stripe];
+        if(queueDepth.incrementAndGet() > maxQueueDepth){
+            queueDepth.decrementAndGet();
+            meterRegistry.counter("livo.booking.lock.rejected", "reason", "queue_full").increment();
+            throw new InventoryBusyException(BUSY_MESSAGE);
+        }
+        waiting.incrementAndGet();
+        long start = System.nanoTime();
+        boolean granted = false;
+        try{
+            //the timed tryAcquire keeps the fairness of the semaphore, the untimed one would barge
+            granted = stripes[stripe].tryAcquire(Math.max(0, deadline - start), TimeUnit.NANOSECONDS);
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }finally {
+            queueDepth.decrementAndGet();
+            waiting.decrementAndGet();
+            meterRegistry.timer("livo.booking.lock.wait", "result", granted ? "acquired" : "timeout")
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if(!granted){
+            meterRegistry.counter("livo.booking.lock.rejected", "reason", "timeout").increment();
+            throw new InventoryBusyException(BUSY_MESSAGE);
+        }
+    }
+
+    private int stripeOf(Long roomId) {
+        return Math.floorMod(roomId.hashCode(), stripeCount);
+    }
+}
@@ -0,0 +1,155 @@
+package com.pratham.livo.utils;
+
+import com.pratham.livo.dto.hotel.HotelSearchCacheEntry;
+import com.pratham.livo.dto.hotel.HotelSearchRequestDto;
+import com.pratham.livo.dto.hotel.HotelSearchResponseDto;
+import com.pratham.livo.enums.InventoryChangeType;
+import com.pratham.livo.event.InventoryChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.web.PagedModel;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+//search pages are cached under the normalized request
+//every (city, date) has a generation counter, bumped whenever inventory in that slice changes
+//an entry is served only if the generations it was computed with are still current
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SearchResultCache {
+
+    private final String entryPrefix = "search:result:";
+    private final String generationPrefix = "search:gen:";
+    //wider changes bump the city wide generation instead of one key per date
+    private final long MAX_DATES_PER_INVALIDATION = 31;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${livo.search.cache.enabled}")
+    private boolean enabled;
+
+    @Value("${livo.search.cache.ttl-seconds}")
+    private long ttlSeconds; //staleness bound for an entry
+
+    public PagedModel<HotelSearchResponseDto> getOrLoad(HotelSearchRequestDto request, int page, int size,
+                                                        Supplier<PagedModel<HotelSearchResponseDto>> loader) {
+        if(!enabled){
+            return loader.get();
+        }
+
+        String entryKey = entryKey(request, page, size);
+        List<String> keys = new ArrayList<>();
+        keys.add(entryKey);
+        keys.addAll(generationKeys(request.getCity(), request.getStartDate(), request.getEndDate()));
+
+        //read the entry and all the generations in a single round trip
+        List<String> generations;
+        try {
+            List<Object> values = redisTemplate.opsForValue().multiGet(keys);
+            generations = new ArrayList<>();
+            for(int i = 1; i < keys.size(); i++){
+                Object value = values == null ? null : values.get(i);
+                generations.add(value == null ? "0" : value.toString());
+            }
+            Object cached = values == null ? null : values.getFirst();
+            if(cached instanceof HotelSearchCacheEntry entry && generations.equals(entry.getGenerations())){
+                meterRegistry.counter("livo.search.cache", "result", "hit").increment();
+                return new PagedModel<>(new PageImpl<>(
+                        entry.getContent(), PageRequest.of(page, size), entry.getTotalElements()));
+            }
+        } catch (Exception e) {
+            //never fail a search because of the cache
+            log.error("Search cache read failed for key {}. Bypassing cache. Error: {}", entryKey, e.getMessage());
+            meterRegistry.counter("livo.search.cache", "result", "error").increment();
+            return loader.get();
+        }
+
+        meterRegistry.counter("livo.search.cache", "result", "miss").increment();
+        //generations were read before the load, so a change racing with it invalidates this entry
+        PagedModel<HotelSearchResponseDto> result = loader.get();
+        try {
+            HotelSearchCacheEntry entry = HotelSearchCacheEntry.builder()
+                    .generations(generations)
+                    .content(new ArrayList<>(result.getContent()))
+                    .totalElements(result.getMetadata() == null ? 0 : result.getMetadata().totalElements())
+                    .build();
+            redisTemplate.opsForValue().set(entryKey, entry, ttlSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.error("Search cache write failed for key {}. Error: {}", entryKey, e.getMessage());
+        }
+        return result;
+    }
+
+    //runs after the inventory transaction commits
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if(!enabled || event.getCity() == null) return;
+        //a confirmation moves rooms from reserved to booked, free count and price stay the same
+        if(!event.getChangeType().affectsAvailability()
+                && event.getChangeType() != InventoryChangeType.REPRICED) return;
+
+        List<String> keys = invalidationKeys(event);
+        try {
+            redisTemplate.executePipelined(new SessionCallback<>() {
+                @Override
+                public Object execute(@NonNull RedisOperations operations) throws DataAccessException {
+                    for (String key : keys) {
+                        operations.opsForValue().increment(key);
+                        //a generation only has to outlive the entries that captured it
+                        operations.expire(key, ttlSeconds * 2, TimeUnit.SECONDS);
+                    }
+                    return null;
+                }
+            });
+            meterRegistry.counter("livo.search.cache.invalidations").increment(keys.size());
+        } catch (Exception e) {
+            //entries expire on their own within the staleness bound
+            log.error("Search cache invalidation failed for city {}. Error: {}", event.getCity(), e.getMessage());
+        }
+    }
+
+    private String entryKey(HotelSearchRequestDto request, int page, int size) {
+        return entryPrefix + request.getCity() + ":" + request.getStartDate() + ":" + request.getEndDate()
+                + ":" + request.getRoomsCount() + ":" + page + ":" + size;
+    }
+
+    private List<String> generationKeys(String city, LocalDate startDate, LocalDate endDate) {
+        List<String> keys = new ArrayList<>();
+        keys.add(generationPrefix + city);
+        for(LocalDate d = startDate; !d.isAfter(endDate); d = d.plusDays(1)){
+            keys.add(generationPrefix + city + ":" + d);
+        }
+        return keys;
+    }
+
+    private List<String> invalidationKeys(InventoryChangedEvent event) {
+        String city = event.getCity();
+        if(event.getStartDate() == null || event.getEndDate() == null
+                || ChronoUnit.DAYS.between(event.getStartDate(), event.getEndDate()) >= MAX_DATES_PER_INVALIDATION){
+            return List.of(generationPrefix + city);
+        }
+        List<String> keys = new ArrayList<>();
+        for(LocalDate d = event.getStartDate(); !d.isAfter(event.getEndDate()); d = d.plusDays(1)){
+            keys.add(generationPrefix + city + ":" + d);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,172 @@
+package com.pratham.livo.utils;
+
+import com.pratham.livo.entity.SurgeRule;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+//immutable snapshot of the surge rules, replaced whole on every refresh so readers never lock
+//rules are grouped by scope and every scope is a static interval tree over epoch days
+//  room:{id}         rules of one room
+//  hotel:{id}        rules of every room of a hotel
+//  city:{name}       rules of every hotel in a city
+//  hotel-rooms:{id}  room rules again under their hotel, only to answer "does any room of this hotel surge"
+public final class SurgeRuleIndex {
+
+    public static final SurgeRuleIndex EMPTY = new SurgeRuleIndex(Map.of(), 0);
+
+    private final Map<String, IntervalTree> trees;
+    private final int size;
+
+    private SurgeRuleIndex(Map<String, IntervalTree> trees, int size) {
+        this.trees = trees;
+        this.size = size;
+    }
+
+    public static SurgeRuleIndex build(List<SurgeRule> rules) {
+        Map<String, List<Interval>> grouped = new HashMap<>();
+        for (SurgeRule rule : rules) {
+            Interval interval = new Interval(rule.getStartDate().toEpochDay(), rule.getEndDate().toEpochDay(),
+                    rule.getFactor());
+            if (rule.getRoom() != null) {
+                grouped.computeIfAbsent(roomKey(rule.getRoom().getId()), k -> new ArrayList<>()).add(interval);
+                grouped.computeIfAbsent(hotelRoomsKey(rule.getHotel().getId()), k -> new ArrayList<>()).add(interval);
+            } else if (rule.getHotel() != null) {
+                grouped.computeIfAbsent(hotelKey(rule.getHotel().getId()), k -> new ArrayList<>()).add(interval);
+            } else {
+                grouped.computeIfAbsent(cityKey(rule.getCity()), k -> new ArrayList<>()).add(interval);
+            }
+        }
+        Map<String, IntervalTree> trees = new HashMap<>();
+        grouped.forEach((key, intervals) -> trees.put(key, new IntervalTree(intervals)));
+        return new SurgeRuleIndex(trees, rules.size());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    //factor of the most specific scope with a rule on that night, the highest one if rules of a scope overlap
+    //null when no rule applies
+    public BigDecimal factorFor(String city, Long hotelId, Long roomId, LocalDate date) {
+        if (size == 0) return null;
+        long day = date.toEpochDay();
+        for (String key : scopeKeys(city, hotelId, roomId)) {
+            IntervalTree tree = trees.get(key);
+            BigDecimal factor = tree == null ? null : tree.maxFactorAt(day);
+            if (factor != null) return factor;
+        }
+        return null;
+    }
+
+    //true if a rule of any scope of the room touches a night of the stay
+    public boolean covers(String city, Long hotelId, Long roomId, LocalDate startDate, LocalDate endDate) {
+        if (size == 0) return false;
+        long from = startDate.toEpochDay();
+        long to = endDate.toEpochDay();
+        for (String key : scopeKeys(city, hotelId, roomId)) {
+            IntervalTree tree = trees.get(key);
+            if (tree != null && tree.overlaps(from, to)) return true;
+        }
+        return false;
+    }
+
+    //true if a rule touches a night of the stay for the hotel or for any one of its rooms
+    public boolean coversHotel(String city, Long hotelId, LocalDate startDate, LocalDate endDate) {
+        if (size == 0) return false;
+        if (covers(city, hotelId, null, startDate, endDate)) return true;
+        IntervalTree tree = trees.get(hotelRoomsKey(hotelId));
+        return tree != null && tree.overlaps(startDate.toEpochDay(), endDate.toEpochDay());
+    }
+
+    private static List<String> scopeKeys(String city, Long hotelId, Long roomId) {
+        List<String> keys = new ArrayList<>(3);
+        if (roomId != null) keys.add(roomKey(roomId));
+        if (hotelId != null) keys.add(hotelKey(hotelId));
+        if (city != null) keys.add(cityKey(city));
+        return keys;
+    }
+
+    private static String roomKey(Long roomId) {
+        return "room:" + roomId;
+    }
+
+    private static String hotelKey(Long hotelId) {
+        return "hotel:" + hotelId;
+    }
+
+    private static String hotelRoomsKey(Long hotelId) {
+        return "hotel-rooms:" + hotelId;
+    }
+
+    private static String cityKey(String city) {
+        return "city:" + city;
+    }
+
+    private record Interval(long start, long end, BigDecimal factor) {}
+
+    //intervals sorted by start and laid out as an implicit balanced tree, the middle of a range is its root
+    //maxEnds holds the latest end in each subtree so whole subtrees that end before the query are skipped
+    private static final class IntervalTree {
+        private final long[] starts;
+        private final long[] ends;
+        private final long[] maxEnds;
+        private final BigDecimal[] factors;
+
+        private IntervalTree(List<Interval> intervals) {
+            List<Interval> sorted = new ArrayList<>(intervals);
+            sorted.sort(Comparator.comparingLong(Interval::start));
+            int n = sorted.size();
+            starts = new long[n];
+            ends = new long[n];
+            maxEnds = new long[n];
+            factors = new BigDecimal[n];
+            for (int i = 0; i < n; i++) {
+                starts[i] = sorted.get(i).start();
+                ends[i] = sorted.get(i).end();
+                factors[i] = sorted.get(i).factor();
+            }
+            fillMaxEnds(0, n - 1);
+        }
+
+        private long fillMaxEnds(int lo, int hi) {
+            if (lo > hi) return Long.MIN_VALUE;
+            int mid = (lo + hi) >>> 1;
+            long max = Math.max(ends[mid], Math.max(fillMaxEnds(lo, mid - 1), fillMaxEnds(mid + 1, hi)));
+            maxEnds[mid] = max;
+            return max;
+        }
+
+        private BigDecimal maxFactorAt(long day) {
+            return maxFactorAt(day, 0, starts.length - 1, null);
+        }
+
+        private BigDecimal maxFactorAt(long day, int lo, int hi, BigDecimal best) {
+            if (lo > hi) return best;
+            int mid = (lo + hi) >>> 1;
+            if (maxEnds[mid] < day) return best;
+            best = maxFactorAt(day, lo, mid - 1, best);
+            //everything right of mid starts after day
+            if (starts[mid] > day) return best;
+            if (ends[mid] >= day && (best == null || factors[mid].compareTo(best) > 0)) {
+                best = factors[mid];
+            }
+            return maxFactorAt(day, mid + 1, hi, best);
+        }
+
+        private boolean overlaps(long from, long to) {
+            return overlaps(from, to, 0, starts.length - 1);
+        }
+
+        private boolean overlaps(long from, long to, int lo, int hi) {
+            if (lo > hi) return false;
+            int mid = (lo + hi) >>> 1;
+            if (maxEnds[mid] < from) return false;
+            if (overlaps(from, to, lo, mid - 1)) return true;
+            if (starts[mid] > to) return false;
+            if (ends[mid] >= from) return true;
+            return overlaps(from, to, mid + 1, hi);
+        }
+    }
+}
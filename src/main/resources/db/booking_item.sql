@@ -0,0 +1,18 @@
+-- room types of a cart booking, booking.room_id keeps the first of them
+-- run before deploying the version that maps BookingItem
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS booking_item (
+    id BIGSERIAL PRIMARY KEY,
+    booking_id BIGINT NOT NULL REFERENCES booking (id),
+    room_id BIGINT NOT NULL REFERENCES room (id),
+    rooms_count INTEGER NOT NULL,
+    amount NUMERIC(10, 2) NOT NULL,
+    CONSTRAINT uk_booking_item_room UNIQUE (booking_id, room_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_booking_item_booking ON booking_item (booking_id);
+CREATE INDEX IF NOT EXISTS idx_booking_item_room ON booking_item (room_id);
+
+COMMIT;
@@ -0,0 +1,19 @@
+-- per hotel per day availability summary, derived from inventory
+-- run before deploying the version that maps HotelDaySummary, the app fills it on startup
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS hotel_day_summary (
+    hotel_id BIGINT NOT NULL REFERENCES hotel (id),
+    date DATE NOT NULL,
+    city VARCHAR(255) NOT NULL,
+    max_free_count INTEGER NOT NULL,
+    min_price NUMERIC(10, 2),
+    updated_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (hotel_id, date)
+);
+
+-- search prefilter: city and date range, then the free count
+CREATE INDEX IF NOT EXISTS idx_summary_city_date ON hotel_day_summary (city, date, max_free_count);
+
+COMMIT;
@@ -0,0 +1,21 @@
+-- counter changes of livo.booking.reservation-mode=ledger, compacted into inventory every few seconds
+-- run before deploying the version that maps InventoryLedger
+-- before switching to another reservation mode let the compaction drain this table
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS inventory_ledger (
+    id BIGSERIAL PRIMARY KEY,
+    room_id BIGINT NOT NULL,
+    date DATE NOT NULL,
+    hold_id VARCHAR(255),
+    booking_id BIGINT,
+    entry_type VARCHAR(255) NOT NULL CHECK (entry_type IN ('HOLD', 'RELEASE', 'COMMIT', 'CANCEL')),
+    reserved_delta INTEGER NOT NULL,
+    booked_delta INTEGER NOT NULL,
+    created_at TIMESTAMP(6)
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_room_date ON inventory_ledger (room_id, date);
+
+COMMIT;
@@ -0,0 +1,50 @@
+-- one time conversion of inventory into a table range partitioned by month on date
+-- run in a maintenance window with the application stopped, afterwards the application
+-- keeps creating future months and dropping old ones (InventoryPartitionServiceImpl)
+-- primary and unique keys of a partitioned table must contain the partition key,
+-- so the primary key becomes (id, date), ids still come from inventory_seq and stay unique
+
+BEGIN;
+
+ALTER TABLE inventory RENAME TO inventory_old;
+ALTER TABLE inventory_old RENAME CONSTRAINT inventory_pkey TO inventory_old_pkey;
+ALTER TABLE inventory_old RENAME CONSTRAINT uniq_hotel_room_date TO uniq_hotel_room_date_old;
+ALTER INDEX idx_city_date RENAME TO idx_city_date_old;
+ALTER INDEX idx_hotel_date RENAME TO idx_hotel_date_old;
+ALTER INDEX idx_room_date RENAME TO idx_room_date_old;
+
+CREATE TABLE inventory (LIKE inventory_old INCLUDING DEFAULTS INCLUDING CONSTRAINTS)
+    PARTITION BY RANGE (date);
+
+ALTER TABLE inventory ADD CONSTRAINT inventory_pkey PRIMARY KEY (id, date);
+ALTER TABLE inventory ADD CONSTRAINT uniq_hotel_room_date UNIQUE (hotel_id, room_id, date);
+ALTER TABLE inventory ADD CONSTRAINT fk_inventory_hotel FOREIGN KEY (hotel_id) REFERENCES hotel (id);
+ALTER TABLE inventory ADD CONSTRAINT fk_inventory_room FOREIGN KEY (room_id) REFERENCES room (id);
+
+-- created on the parent, postgres creates the matching index on every partition
+CREATE INDEX idx_city_date ON inventory (city, date);
+CREATE INDEX idx_hotel_date ON inventory (hotel_id, date);
+CREATE INDEX idx_room_date ON inventory (room_id, date);
+
+-- one partition per month covering the existing rows and the next 15 months
+DO $$
+DECLARE
+    month DATE;
+BEGIN
+    FOR month IN
+        SELECT generate_series(
+            date_trunc('month', LEAST(COALESCE(MIN(date), CURRENT_DATE), CURRENT_DATE)),
+            date_trunc('month', GREATEST(COALESCE(MAX(date), CURRENT_DATE), CURRENT_DATE + INTERVAL '15 months')),
+            INTERVAL '1 month')::DATE
+        FROM inventory_old
+    LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF inventory FOR VALUES FROM (%L) TO (%L)',
+            'inventory_p' || to_char(month, 'YYYY_MM'), month, (month + INTERVAL '1 month')::DATE);
+    END LOOP;
+END $$;
+
+INSERT INTO inventory SELECT * FROM inventory_old;
+
+DROP TABLE inventory_old;
+
+COMMIT;
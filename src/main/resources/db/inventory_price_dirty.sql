@@ -0,0 +1,12 @@
+-- flag read by the incremental repricer (livo.pricing.mode=incremental)
+-- adding a column with a constant default is a catalog change, existing rows are not rewritten
+-- run before deploying the version that maps Inventory.priceDirty
+
+BEGIN;
+
+ALTER TABLE inventory ADD COLUMN IF NOT EXISTS price_dirty BOOLEAN NOT NULL DEFAULT FALSE;
+
+-- only the few dirty rows are indexed, created on the parent so every partition gets it
+CREATE INDEX IF NOT EXISTS idx_inventory_price_dirty ON inventory (id) WHERE price_dirty;
+
+COMMIT;
@@ -0,0 +1,9 @@
+-- optimistic lock column read by livo.booking.reservation-mode=optimistic
+-- adding a column with a constant default is a catalog change, existing rows are not rewritten
+-- run before deploying the version that maps Inventory.version
+
+BEGIN;
+
+ALTER TABLE inventory ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+COMMIT;
@@ -0,0 +1,17 @@
+-- redis write-behind entries already applied to inventory (livo.booking.reservation-mode=redis)
+-- a flush that crashes after its commit replays the batch, entries found here are skipped
+-- run before deploying the version that reads it
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS inventory_write_behind_applied (
+    booking_id BIGINT NOT NULL,
+    room_id BIGINT NOT NULL,
+    operation VARCHAR(16) NOT NULL CHECK (operation IN ('CONFIRM', 'CANCEL')),
+    applied_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (booking_id, room_id, operation)
+);
+
+CREATE INDEX IF NOT EXISTS idx_write_behind_applied_at ON inventory_write_behind_applied (applied_at);
+
+COMMIT;
@@ -0,0 +1,13 @@
+-- highest fencing token that wrote for each scheduled job lease (JobLease.fence)
+-- a write carrying an older token finds a newer one here and its transaction is rolled back
+-- run before deploying the version that reads it
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS job_fence (
+    job_key VARCHAR(128) PRIMARY KEY,
+    token BIGINT NOT NULL,
+    fenced_at TIMESTAMP(6) NOT NULL
+);
+
+COMMIT;
@@ -0,0 +1,19 @@
+-- messages waiting for OutboxRelay, rows live from the commit of their transaction until the broker confirms them
+-- run before deploying the version that maps OutboxMessage
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS outbox_message (
+    id BIGSERIAL PRIMARY KEY,
+    exchange VARCHAR(255) NOT NULL,
+    routing_key VARCHAR(255) NOT NULL,
+    payload_type VARCHAR(255) NOT NULL,
+    payload TEXT NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    available_at TIMESTAMP(6) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_outbox_available ON outbox_message (available_at, id);
+
+COMMIT;
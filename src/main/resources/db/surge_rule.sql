@@ -0,0 +1,25 @@
+-- surge rules read into memory by SurgeRuleService, a few rows per hotel at most
+-- run before deploying the version that maps SurgeRule
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS surge_rule (
+    id BIGSERIAL PRIMARY KEY,
+    city VARCHAR(255) NOT NULL,
+    hotel_id BIGINT REFERENCES hotel (id),
+    room_id BIGINT REFERENCES room (id),
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
+    factor NUMERIC(5, 2) NOT NULL,
+    active BOOLEAN NOT NULL DEFAULT TRUE,
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    CONSTRAINT chk_surge_rule_dates CHECK (end_date >= start_date),
+    CONSTRAINT chk_surge_rule_factor CHECK (factor >= 1),
+    -- a room rule always names its hotel
+    CONSTRAINT chk_surge_rule_scope CHECK (room_id IS NULL OR hotel_id IS NOT NULL)
+);
+
+CREATE INDEX IF NOT EXISTS idx_surge_rule_hotel ON surge_rule (hotel_id, start_date);
+
+COMMIT;
@@ -0,0 +1,333 @@
+package com.pratham.livo.service.impl;
+
+import com.pratham.livo.dto.auth.AuthenticatedUser;
+import com.pratham.livo.dto.booking.CartBookingRequestDto;
+import com.pratham.livo.dto.booking.CartItemDto;
+import com.pratham.livo.entity.Booking;
+import com.pratham.livo.entity.Hotel;
+import com.pratham.livo.entity.Room;
+import com.pratham.livo.entity.User;
+import com.pratham.livo.exception.BadRequestException;
+import com.pratham.livo.exception.InventoryBusyException;
+import com.pratham.livo.repository.*;
+import com.pratham.livo.security.SecurityHelper;
+import com.pratham.livo.service.MessagePublisher;
+import com.pratham.livo.service.SurgeRuleService;
+import com.pratham.livo.strategy.ReservationStrategy;
+import com.pratham.livo.utils.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+//carts sharing rooms are booked at the same time against row locks that wait like postgres,
+//a lock wait that never ends is what postgres would report as a deadlock
+class CartBookingConcurrencyTest {
+
+    private static final int ROOMS = 6;
+    private static final int TOTAL_COUNT = 8;
+    private static final int CARTS = 60;
+    private static final int[] THREADS = {1, 2, 4, 8};
+    private static final int CARTS_PER_THREAD = 30;
+    private static final LocalDate START_DATE = LocalDate.now().plusDays(10);
+    private static final LocalDate END_DATE = START_DATE.plusDays(3);
+
+    private RowLockedInventory inventory;
+    private BookingServiceImpl bookingService;
+    private final Map<Long, Room> rooms = new ConcurrentHashMap<>();
+    private Hotel hotel;
+
+    private BookingRepository bookingRepository;
+    private RoomRepository roomRepository;
+    private EntityManager entityManager;
+    private SecurityHelper securityHelper;
+    private IdempotencyUtil idempotencyUtil;
+    private SurgeRuleService surgeRuleService;
+
+    @BeforeEach
+    void setUp() {
+        hotel = Hotel.builder().id(1L).name("Cart Hotel").city("Testville").build();
+        for(long roomId = 1; roomId <= ROOMS; roomId++){
+            addRoom(roomId, TOTAL_COUNT);
+        }
+
+        bookingRepository = mock(BookingRepository.class);
+        AtomicLong bookingIds = new AtomicLong();
+        when(bookingRepository.save(any())).thenAnswer(invocation -> {
+            Booking booking = invocation.getArgument(0);
+            booking.setId(bookingIds.incrementAndGet());
+            return booking;
+        });
+        roomRepository = mock(RoomRepository.class);
+        when(roomRepository.findAllById(any())).thenAnswer(invocation -> {
+            List<Room> found = new ArrayList<>();
+            for(Long roomId : invocation.<Iterable<Long>>getArgument(0)) found.add(rooms.get(roomId));
+            return found;
+        });
+        entityManager = mock(EntityManager.class);
+        when(entityManager.getReference(any(), any())).thenAnswer(invocation -> User.builder().id(invocation.getArgument(1)).build());
+        securityHelper = mock(SecurityHelper.class);
+        when(securityHelper.getCurrentAuthenticatedUser()).thenReturn(Optional.of(AuthenticatedUser.builder().id(7L).build()));
+        idempotencyUtil = mock(IdempotencyUtil.class);
+        when(idempotencyUtil.acquireLock(anyString(), any())).thenReturn(true);
+        surgeRuleService = mock(SurgeRuleService.class);
+        when(surgeRuleService.priceStay(any(), any(), any(), any())).thenAnswer(invocation -> invocation.getArgument(3));
+
+        inventory = new RowLockedInventory(TOTAL_COUNT, START_DATE, END_DATE);
+        bookingService = bookingService(inventory);
+    }
+
+    private BookingServiceImpl bookingService(RowLockedInventory inventory) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        //no permits in front, the carts meet on the row locks themselves
+        RoomLockManager roomLockManager = new RoomLockManager(meterRegistry);
+        ReflectionTestUtils.setField(roomLockManager, "enabled", false);
+
+        BookingServiceImpl bookingService = new BookingServiceImpl(bookingRepository, roomRepository, mock(GuestRepository.class),
+                new ModelMapper(), new DateValidator(), inventory.transactionTemplate(), entityManager, securityHelper,
+                idempotencyUtil, mock(PaymentRepository.class), mock(MessagePublisher.class),
+                mock(ApplicationEventPublisher.class), inventory, mock(BookingExpirySweeper.class),
+                mock(JobCoordinator.class), surgeRuleService, meterRegistry, roomLockManager,
+                mock(BookingInventory.class));
+        ReflectionTestUtils.setField(bookingService, "reservationMode", "atomic");
+        return bookingService;
+    }
+
+    private void addRoom(long roomId, int totalCount) {
+        rooms.put(roomId, Room.builder().id(roomId).hotel(hotel).type("Type " + roomId)
+                .basePrice(new BigDecimal("1000.00")).totalCount(totalCount).capacity(2).build());
+    }
+
+    @Test
+    void overlappingCartsNeitherOversellNorDeadlock() throws Exception {
+        //fixed seed so a failure can be reproduced, items are listed in random order on purpose
+        Random random = new Random(24);
+        List<CartBookingRequestDto> carts = new ArrayList<>();
+        for(int i = 0; i < CARTS; i++){
+            List<Long> roomIds = new ArrayList<>(rooms.keySet());
+            Collections.shuffle(roomIds, random);
+            List<CartItemDto> items = roomIds.subList(0, random.nextInt(2, 5)).stream()
+                    .map(roomId -> new CartItemDto(roomId, random.nextInt(1, 3)))
+                    .toList();
+            carts.add(new CartBookingRequestDto(UUID.randomUUID(), START_DATE, END_DATE, items));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(CARTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for(CartBookingRequestDto cart : carts){
+            results.add(executor.submit(() -> {
+                start.await();
+                try{
+                    bookingService.initCartBooking(cart);
+                    return true;
+                }catch (BadRequestException | InventoryBusyException e){
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+
+        //what the committed carts booked, per room
+        Map<Long, Integer> sold = new HashMap<>();
+        int booked = 0;
+        for(int i = 0; i < CARTS; i++){
+            if(!results.get(i).get(60, TimeUnit.SECONDS)) continue;
+            booked++;
+            for(CartItemDto item : carts.get(i).getItems()){
+                sold.merge(item.getRoomId(), item.getRoomsCount(), Integer::sum);
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(0, inventory.deadlocks.get(), "lock waits that never ended");
+        assertTrue(booked > 0 && booked < CARTS, "booked " + booked + " of " + CARTS);
+        for(long roomId = 1; roomId <= ROOMS; roomId++){
+            int expected = sold.getOrDefault(roomId, 0);
+            assertTrue(expected <= TOTAL_COUNT, "room " + roomId + " sold " + expected);
+            for(int reserved : inventory.reservedCounts(roomId)){
+                //a cart that failed half way gave back the rooms it had already reserved
+                assertEquals(expected, reserved, "room " + roomId);
+            }
+        }
+    }
+
+    @Test
+    void cartsOverDisjointRoomsScaleWithThreads() throws Exception {
+        //every thread books its own two rooms, so nothing but the booking path itself is shared
+        Map<Integer, Double> cartsPerSecond = new LinkedHashMap<>();
+        measureThroughput(THREADS[THREADS.length - 1]); //warm up
+        for(int threads : THREADS){
+            cartsPerSecond.put(threads, measureThroughput(threads));
+        }
+        System.out.println("Cart bookings per second by threads: " + cartsPerSecond);
+
+        //the row waits sleep instead of spinning, so the path should scale close to the thread count
+        //half of linear leaves room for a busy machine
+        double single = cartsPerSecond.get(1);
+        for(int threads : THREADS){
+            assertTrue(cartsPerSecond.get(threads) >= single * threads / 2,
+                    threads + " threads booked " + cartsPerSecond.get(threads) + " carts/sec, 1 thread " + single);
+        }
+    }
+
+    private double measureThroughput(int threads) throws Exception {
+        RowLockedInventory inventory = new RowLockedInventory(threads * CARTS_PER_THREAD, START_DATE, END_DATE);
+        BookingServiceImpl bookingService = bookingService(inventory);
+        List<List<CartBookingRequestDto>> cartsByThread = new ArrayList<>();
+        for(int thread = 0; thread < threads; thread++){
+            long firstRoomId = 1_000L * (thread + 1);
+            addRoom(firstRoomId, threads * CARTS_PER_THREAD);
+            addRoom(firstRoomId + 1, threads * CARTS_PER_THREAD);
+            List<CartBookingRequestDto> carts = new ArrayList<>();
+            for(int i = 0; i < CARTS_PER_THREAD; i++){
+                carts.add(new CartBookingRequestDto(UUID.randomUUID(), START_DATE, END_DATE,
+                        List.of(new CartItemDto(firstRoomId, 1), new CartItemDto(firstRoomId + 1, 1))));
+            }
+            cartsByThread.add(carts);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for(List<CartBookingRequestDto> carts : cartsByThread){
+            results.add(executor.submit(() -> {
+                start.await();
+                for(CartBookingRequestDto cart : carts){
+                    bookingService.initCartBooking(cart);
+                }
+                return carts.size();
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        int booked = 0;
+        for(Future<Integer> result : results){
+            booked += result.get(60, TimeUnit.SECONDS);
+        }
+        long elapsedNanos = System.nanoTime() - begin;
+        executor.shutdown();
+
+        assertEquals(0, inventory.deadlocks.get());
+        return booked * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    //the inventory rows of every room and night: reserving a room locks its nights in date order
+    //until the booking transaction ends, like the conditional update of the atomic mode.
+    //the reservation either takes every night or throws and leaves the rollback to the transaction
+    private static class RowLockedInventory implements ReservationStrategy {
+
+        private static final long LOCK_WAIT_SECONDS = 10;
+
+        private final int totalCount;
+        private final List<LocalDate> stay;
+        private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+        private final Map<String, Integer> reserved = new ConcurrentHashMap<>();
+        private final ThreadLocal<Map<String, Integer>> transaction = new ThreadLocal<>();
+        private final AtomicInteger deadlocks = new AtomicInteger();
+
+        RowLockedInventory(int totalCount, LocalDate startDate, LocalDate endDate) {
+            this.totalCount = totalCount;
+            this.stay = startDate.datesUntil(endDate.plusDays(1)).toList();
+        }
+
+        @Override
+        public BigDecimal reserve(Long roomId, LocalDate startDate, LocalDate endDate, int roomsCount, long nights,
+                                  String holdId) {
+            Map<String, Integer> written = transaction.get();
+            for(LocalDate night : stay){
+                String row = roomId + ":" + night;
+                lock(row);
+                int free = totalCount - reserved.getOrDefault(row, 0);
+                if(free < roomsCount){
+                    throw new BadRequestException("Room is not available for all selected dates");
+                }
+                reserved.merge(row, roomsCount, Integer::sum);
+                written.merge(row, roomsCount, Integer::sum);
+            }
+            return BigDecimal.valueOf(1000L * nights * roomsCount);
+        }
+
+        private void lock(String row) {
+            ReentrantLock lock = locks.computeIfAbsent(row, key -> new ReentrantLock());
+            if(lock.isHeldByCurrentThread()) return;
+            try{
+                //give the other carts time to take their next rows, so a wrong order would show
+                Thread.sleep(1);
+                if(!lock.tryLock(LOCK_WAIT_SECONDS, TimeUnit.SECONDS)){
+                    deadlocks.incrementAndGet();
+                    throw new InventoryBusyException("deadlock detected on " + row);
+                }
+            }catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new InventoryBusyException("interrupted waiting for " + row);
+            }
+            transaction.get().putIfAbsent(row, 0);
+        }
+
+        private void end(boolean committed) {
+            Map<String, Integer> written = transaction.get();
+            transaction.remove();
+            for(Map.Entry<String, Integer> row : written.entrySet()){
+                if(!committed) reserved.merge(row.getKey(), -row.getValue(), Integer::sum);
+                locks.get(row.getKey()).unlock();
+            }
+        }
+
+        List<Integer> reservedCounts(long roomId) {
+            return stay.stream().map(night -> reserved.getOrDefault(roomId + ":" + night, 0)).toList();
+        }
+
+        //commits when the booking callback returns, rolls back when it throws
+        TransactionTemplate transactionTemplate() {
+            return new TransactionTemplate() {
+                @Override
+                public <T> T execute(TransactionCallback<T> action) {
+                    transaction.set(new HashMap<>());
+                    try{
+                        T result = action.doInTransaction(new SimpleTransactionStatus());
+                        end(true);
+                        return result;
+                    }catch (RuntimeException e){
+                        end(false);
+                        throw e;
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void release(Booking booking) {}
+
+        @Override
+        public void confirm(Booking booking) {}
+
+        @Override
+        public void cancel(Booking booking) {}
+
+        @Override
+        public boolean supportsBulkRelease() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.pratham.livo.strategy;
+
+import com.pratham.livo.entity.Inventory;
+import com.pratham.livo.utils.Paise;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//one page of livo.pricing.batch-size rows through the BigDecimal chain and the fixed point chain
+//run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.pratham.livo.strategy.PricingBenchmark
+//the gc profiler reports the allocation per page next to the time
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PricingBenchmark {
+
+    @Param("2000")
+    private int rows;
+
+    //the old path priced loaded entities, the new one gets paise and basis points from the query
+    private List<Inventory> page;
+    private long[] stayEpochDays;
+    private int[] bookedCounts;
+    private int[] totalCounts;
+    private int[] surgeBasisPoints;
+    private long[] basePrices;
+    private PricingContext context;
+
+    @Setup
+    public void setUp() {
+        LocalDate today = LocalDate.now();
+        context = PricingContext.of(today);
+        Random random = new Random(17);
+        page = new ArrayList<>(rows);
+        for(int i = 0; i < rows; i++){
+            int totalCount = random.nextInt(1, 50);
+            page.add(PricingChainTest.row(today.plusDays(random.nextInt(0, 366)),
+                    random.nextInt(0, totalCount + 1), totalCount,
+                    BigDecimal.valueOf(random.nextInt(80, 201), 2).toPlainString(),
+                    BigDecimal.valueOf(random.nextLong(100_000, 2_000_000), 2).toPlainString()));
+        }
+        stayEpochDays = new long[rows];
+        bookedCounts = new int[rows];
+        totalCounts = new int[rows];
+        surgeBasisPoints = new int[rows];
+        basePrices = new long[rows];
+        for(int i = 0; i < rows; i++){
+            Inventory inventory = page.get(i);
+            stayEpochDays[i] = inventory.getDate().toEpochDay();
+            bookedCounts[i] = inventory.getBookedCount();
+            totalCounts[i] = inventory.getTotalCount();
+            surgeBasisPoints[i] = Paise.basisPoints(inventory.getSurgeFactor());
+            basePrices[i] = Paise.of(inventory.getRoom().getBasePrice());
+        }
+    }
+
+    @Benchmark
+    public void decimalChain(Blackhole blackhole) {
+        for(Inventory inventory : page){
+            blackhole.consume(PricingChainTest.decimalChain(inventory));
+        }
+    }
+
+    //includes filling the columns, as priceRows does for every page
+    @Benchmark
+    public long[] fixedChain() {
+        PricingBatch batch = new PricingBatch(rows);
+        for(int i = 0; i < rows; i++){
+            long stayEpochDay = stayEpochDays[i];
+            batch.add(stayEpochDay, LocalDate.ofEpochDay(stayEpochDay).getDayOfWeek(),
+                    bookedCounts[i], totalCounts[i], surgeBasisPoints[i], basePrices[i]);
+        }
+        for(PricingStrategy pricingStrategy : PricingChainTest.STRATEGIES){
+            pricingStrategy.calculatePrices(batch, context);
+        }
+        return batch.getPrices();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PricingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,108 @@
+package com.pratham.livo.strategy;
+
+import com.pratham.livo.entity.Inventory;
+import com.pratham.livo.entity.Room;
+import com.pratham.livo.strategy.PricingStrategyImpl.OccupancyPricingStrategy;
+import com.pratham.livo.strategy.PricingStrategyImpl.SurgePricingStrategy;
+import com.pratham.livo.strategy.PricingStrategyImpl.UrgencyPricingStrategy;
+import com.pratham.livo.strategy.PricingStrategyImpl.WeekendPricingStrategy;
+import com.pratham.livo.utils.Paise;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//the fixed point batch loops of every strategy against their per row BigDecimal versions
+class PricingChainTest {
+
+    //same order as the @Order of the beans
+    static final List<PricingStrategy> STRATEGIES = List.of(
+            new SurgePricingStrategy(),
+            new OccupancyPricingStrategy(),
+            new UrgencyPricingStrategy(),
+            new WeekendPricingStrategy());
+
+    //every urgency band edge, past days included
+    private static final int[] DAYS_AHEAD = {-2, -1, 0, 1, 6, 7, 8, 14, 15, 16, 28, 29, 30, 31, 200, 366};
+
+    @Test
+    void fixedChainMatchesTheDecimalChainOnEveryBandEdge() {
+        LocalDate today = LocalDate.now();
+        List<Inventory> rows = new ArrayList<>();
+        for(int daysAhead : DAYS_AHEAD){
+            //booked exactly at 50% and 80% stays in the lower band
+            for(int[] counts : new int[][]{{0, 0}, {0, 10}, {5, 10}, {6, 10}, {8, 10}, {9, 10}, {10, 10}, {4, 5}, {1, 1}}){
+                for(String surge : new String[]{"1.00", "0.75", "1.25", "2.50"}){
+                    for(String basePrice : new String[]{"0.01", "0.07", "999.99", "2499.50", "99999.95"}){
+                        rows.add(row(today.plusDays(daysAhead), counts[0], counts[1], surge, basePrice));
+                    }
+                }
+            }
+        }
+        assertChainsMatch(rows, today);
+    }
+
+    @Test
+    void fixedChainMatchesTheDecimalChainOnRandomRows() {
+        LocalDate today = LocalDate.now();
+        //fixed seed so a failure can be reproduced
+        Random random = new Random(17);
+        List<Inventory> rows = new ArrayList<>();
+        for(int i = 0; i < 200_000; i++){
+            int totalCount = random.nextInt(0, 50);
+            rows.add(row(today.plusDays(random.nextInt(-3, 400)),
+                    totalCount == 0 ? 0 : random.nextInt(0, totalCount + 1), totalCount,
+                    BigDecimal.valueOf(random.nextInt(50, 301), 2).toPlainString(),
+                    BigDecimal.valueOf(random.nextLong(1, 10_000_000), 2).toPlainString()));
+        }
+        assertChainsMatch(rows, today);
+    }
+
+    private static void assertChainsMatch(List<Inventory> rows, LocalDate today) {
+        long[] fixed = fixedChain(rows, PricingContext.of(today));
+        for(int row = 0; row < rows.size(); row++){
+            Inventory inventory = rows.get(row);
+            assertEquals(Paise.of(decimalChain(inventory)), fixed[row],
+                    "date " + inventory.getDate() + " booked " + inventory.getBookedCount() + "/" + inventory.getTotalCount()
+                            + " surge " + inventory.getSurgeFactor() + " base " + inventory.getRoom().getBasePrice());
+        }
+    }
+
+    //PricingServiceImpl.calculateDynamicPrice, the path every row took before
+    static BigDecimal decimalChain(Inventory inventory) {
+        BigDecimal currentPrice = inventory.getRoom().getBasePrice();
+        for(PricingStrategy pricingStrategy : STRATEGIES){
+            currentPrice = pricingStrategy.calculatePrice(currentPrice, inventory);
+        }
+        return currentPrice;
+    }
+
+    //the batch path of PricingServiceImpl.priceRows
+    static long[] fixedChain(List<Inventory> rows, PricingContext context) {
+        PricingBatch batch = new PricingBatch(rows.size());
+        for(Inventory inventory : rows){
+            batch.add(inventory.getDate().toEpochDay(), inventory.getDate().getDayOfWeek(),
+                    inventory.getBookedCount(), inventory.getTotalCount(),
+                    Paise.basisPoints(inventory.getSurgeFactor()), Paise.of(inventory.getRoom().getBasePrice()));
+        }
+        for(PricingStrategy pricingStrategy : STRATEGIES){
+            pricingStrategy.calculatePrices(batch, context);
+        }
+        return batch.getPrices();
+    }
+
+    static Inventory row(LocalDate date, int bookedCount, int totalCount, String surgeFactor, String basePrice) {
+        return Inventory.builder()
+                .date(date)
+                .bookedCount(bookedCount)
+                .totalCount(totalCount)
+                .surgeFactor(new BigDecimal(surgeFactor))
+                .room(Room.builder().basePrice(new BigDecimal(basePrice)).build())
+                .build();
+    }
+}
@@ -0,0 +1,145 @@
+package com.pratham.livo.strategy.ReservationStrategyImpl;
+
+import com.pratham.livo.entity.Hotel;
+import com.pratham.livo.entity.Room;
+import com.pratham.livo.entity.User;
+import com.pratham.livo.enums.LedgerEntryType;
+import com.pratham.livo.enums.Role;
+import com.pratham.livo.repository.HotelRepository;
+import com.pratham.livo.repository.InventoryLedgerRepository;
+import com.pratham.livo.repository.RoomRepository;
+import com.pratham.livo.repository.UserRepository;
+import com.pratham.livo.utils.BulkInventoryWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//two compactors running next to a stream of booking steps have to leave the counters where
+//a single compactor would. runs against the configured database, the rows are removed afterwards
+@SpringBootTest(properties = "livo.booking.reservation-mode=ledger")
+class LedgerCompactionTest {
+
+    private static final int BOOKINGS = 150;
+    private static final LocalDate START_DATE = LocalDate.now().plusDays(20);
+    private static final LocalDate END_DATE = START_DATE.plusDays(2);
+
+    @Autowired private LedgerReservationStrategy ledgerReservationStrategy;
+    @Autowired private InventoryLedgerRepository inventoryLedgerRepository;
+    @Autowired private BulkInventoryWriter bulkInventoryWriter;
+    @Autowired private UserRepository userRepository;
+    @Autowired private HotelRepository hotelRepository;
+    @Autowired private RoomRepository roomRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+    private Hotel hotel;
+    private Room room;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(User.builder()
+                .email(UUID.randomUUID() + "@livo.test")
+                .passwordHash("hash")
+                .name("Owner")
+                .roles(Set.of(Role.HOTEL_MANAGER))
+                .build());
+        hotel = hotelRepository.save(Hotel.builder()
+                .name("Ledger Hotel")
+                .city("Testville")
+                .owner(owner)
+                .popularityScore(0.0)
+                .build());
+        room = roomRepository.save(Room.builder()
+                .hotel(hotel)
+                .type("Deluxe")
+                .basePrice(new BigDecimal("2499.50"))
+                .totalCount(7)
+                .capacity(2)
+                .build());
+        transactionTemplate.executeWithoutResult(status ->
+                bulkInventoryWriter.createInventory(List.of(room.getId()), START_DATE, END_DATE));
+        //small batches so a hold and the steps that follow it often land in different batches
+        ReflectionTestUtils.setField(ledgerReservationStrategy, "compactionBatchSize", 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM inventory_ledger WHERE room_id = ?", room.getId());
+        jdbcTemplate.update("DELETE FROM inventory WHERE room_id = ?", room.getId());
+        jdbcTemplate.update("DELETE FROM hotel_day_summary WHERE hotel_id = ?", hotel.getId());
+        roomRepository.deleteById(room.getId());
+        hotelRepository.deleteById(hotel.getId());
+        userRepository.deleteById(owner.getId());
+    }
+
+    @Test
+    void concurrentCompactorsFoldEveryBookingBackToZero() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        AtomicBoolean appending = new AtomicBoolean(true);
+
+        //every booking is held and then released, or held, confirmed and cancelled, each step committed on its own
+        Future<?> bookings = executor.submit(() -> {
+            try{
+                for(long bookingId = 1; bookingId <= BOOKINGS; bookingId++){
+                    append(bookingId, LedgerEntryType.HOLD, 1, 0);
+                    if(bookingId % 2 == 0){
+                        append(bookingId, LedgerEntryType.RELEASE, -1, 0);
+                    }else{
+                        append(bookingId, LedgerEntryType.COMMIT, -1, 1);
+                        append(bookingId, LedgerEntryType.CANCEL, 0, -1);
+                    }
+                }
+            }finally {
+                appending.set(false);
+            }
+        });
+        List<Future<?>> compactors = new ArrayList<>();
+        for(int i = 0; i < 2; i++){
+            compactors.add(executor.submit(() -> {
+                while(appending.get() || ledgerEntries() > 0){
+                    ledgerReservationStrategy.compactLedger();
+                }
+            }));
+        }
+
+        bookings.get(60, TimeUnit.SECONDS);
+        for(Future<?> compactor : compactors){
+            compactor.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(0, ledgerEntries());
+        List<String> counters = jdbcTemplate.query(
+                "SELECT reserved_count, booked_count FROM inventory WHERE room_id = ? ORDER BY date",
+                (rs, rowNum) -> rs.getInt("reserved_count") + "/" + rs.getInt("booked_count"), room.getId());
+        assertEquals(List.of("0/0", "0/0", "0/0"), counters);
+    }
+
+    private void append(long bookingId, LedgerEntryType entryType, int reservedDelta, int bookedDelta) {
+        transactionTemplate.executeWithoutResult(status -> inventoryLedgerRepository.appendEntries(
+                room.getId(), bookingId, START_DATE, END_DATE, entryType.name(), reservedDelta, bookedDelta));
+    }
+
+    private int ledgerEntries() {
+        Integer entries = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM inventory_ledger WHERE room_id = ?", Integer.class, room.getId());
+        return entries == null ? 0 : entries;
+    }
+}
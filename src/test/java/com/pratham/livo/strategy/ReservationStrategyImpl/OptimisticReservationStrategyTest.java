@@ -0,0 +1,281 @@
+package com.pratham.livo.strategy.ReservationStrategyImpl;
+
+import com.pratham.livo.exception.BadRequestException;
+import com.pratham.livo.exception.InventoryBusyException;
+import com.pratham.livo.projection.InventoryVersionWrapper;
+import com.pratham.livo.repository.InventoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OptimisticReservationStrategyTest {
+
+    private static final long ROOM_ID = 1L;
+    private static final int TOTAL_COUNT = 10;
+    private static final LocalDate START_DATE = LocalDate.of(2030, 1, 10);
+    private static final LocalDate END_DATE = START_DATE.plusDays(2);
+    private static final long NIGHTS = 3;
+
+    private VersionedInventory inventory;
+    private SimpleMeterRegistry meterRegistry;
+    private OptimisticReservationStrategy strategy;
+    private final AtomicInteger reads = new AtomicInteger();
+    private final AtomicInteger updates = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        inventory = new VersionedInventory(START_DATE, NIGHTS, TOTAL_COUNT);
+        meterRegistry = new SimpleMeterRegistry();
+
+        InventoryRepository inventoryRepository = mock(InventoryRepository.class);
+        when(inventoryRepository.findInventoryVersionsForRoom(anyLong(), any(), any())).thenAnswer(invocation -> {
+            reads.incrementAndGet();
+            return inventory.read();
+        });
+        //every booking of these tests takes one room, so the count is not read back from the setter
+        JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+            @Override
+            public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                           ParameterizedPreparedStatementSetter<T> pss) {
+                updates.incrementAndGet();
+                int[] counts = batchArgs.stream()
+                        .map(InventoryVersionWrapper.class::cast)
+                        .mapToInt(night -> inventory.update(night.getId(), night.getVersion(), 1))
+                        .toArray();
+                return new int[][]{counts};
+            }
+        };
+
+        strategy = new OptimisticReservationStrategy(inventoryRepository, jdbcTemplate, inventory, meterRegistry);
+        ReflectionTestUtils.setField(strategy, "baseBackoffMs", 1L);
+        ReflectionTestUtils.setField(strategy, "maxBackoffMs", 5L);
+        strategy.init();
+    }
+
+    @Test
+    void concurrentReservationsSellExactlyTheFreeRooms() throws Exception {
+        //enough attempts that no booking gives up, every one either gets a room or sees the room full
+        ReflectionTestUtils.setField(strategy, "maxAttempts", 1_000);
+        int bookings = 40;
+        ExecutorService executor = Executors.newFixedThreadPool(bookings);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for(int i = 0; i < bookings; i++){
+            String holdId = "hold-" + i;
+            results.add(executor.submit(() -> {
+                start.await();
+                return book(holdId);
+            }));
+        }
+        start.countDown();
+
+        Map<String, Integer> outcomes = new HashMap<>();
+        for(Future<String> result : results){
+            outcomes.merge(result.get(30, TimeUnit.SECONDS), 1, Integer::sum);
+        }
+        executor.shutdown();
+
+        assertEquals(Map.of("reserved", TOTAL_COUNT, "full", bookings - TOTAL_COUNT), outcomes);
+        for(int reserved : inventory.committedReservedCounts()){
+            assertEquals(TOTAL_COUNT, reserved);
+        }
+    }
+
+    @Test
+    void retriesStopAtMaxAttempts() {
+        int maxAttempts = 4;
+        ReflectionTestUtils.setField(strategy, "maxAttempts", maxAttempts);
+        //another booking commits on the first night between every read and the update
+        inventory.onRead(() -> inventory.bumpVersion(0));
+
+        inventory.begin();
+        assertThrows(InventoryBusyException.class,
+                () -> strategy.reserve(ROOM_ID, START_DATE, END_DATE, 1, NIGHTS, "hold"));
+        inventory.rollback();
+
+        assertEquals(maxAttempts, reads.get());
+        assertEquals(maxAttempts, updates.get());
+        assertEquals((double) maxAttempts, meterRegistry.counter("livo.booking.optimistic.attempts", "result", "conflict").count());
+        assertEquals(1.0, meterRegistry.counter("livo.booking.optimistic.exhausted").count());
+        //the conflicting attempts left nothing behind
+        for(int reserved : inventory.committedReservedCounts()){
+            assertEquals(0, reserved);
+        }
+    }
+
+    @Test
+    void fullRoomIsRejectedWithoutRetrying() {
+        ReflectionTestUtils.setField(strategy, "maxAttempts", 5);
+        for(int i = 0; i < TOTAL_COUNT; i++){
+            assertEquals("reserved", book("hold-" + i));
+        }
+
+        assertEquals("full", book("one-too-many"));
+        assertEquals(TOTAL_COUNT + 1, reads.get());
+        assertEquals(TOTAL_COUNT, updates.get());
+    }
+
+    //one booking transaction: reserve, then commit, or roll back when reserve throws
+    private String book(String holdId) {
+        inventory.begin();
+        try{
+            BigDecimal amount = strategy.reserve(ROOM_ID, START_DATE, END_DATE, 1, NIGHTS, holdId);
+            assertEquals(new BigDecimal("3000.00"), amount);
+            //a little work after the reservation keeps the rows held while others try
+            Thread.sleep(1);
+            inventory.commit();
+            return "reserved";
+        }catch (BadRequestException e){
+            inventory.rollback();
+            return "full";
+        }catch (InventoryBusyException e){
+            inventory.rollback();
+            return "busy";
+        }catch (InterruptedException e){
+            inventory.rollback();
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        }
+    }
+
+    //the nights of one room as postgres shows them to concurrent transactions under read committed:
+    //reads see committed rows, an update holds its row until its transaction ends. an update of a row
+    //held by another transaction waits for it and then checks the version of the row it left behind,
+    //so it matches after a rollback and not after a commit. attempts are savepoints that give their rows back
+    private static class VersionedInventory implements PlatformTransactionManager {
+
+        private final List<Night> nights = new ArrayList<>();
+        private final Map<Thread, List<Night>> writes = new HashMap<>();
+        private Runnable onRead = () -> {};
+
+        VersionedInventory(LocalDate startDate, long nights, int totalCount) {
+            for(int i = 0; i < nights; i++){
+                this.nights.add(new Night(i + 1L, startDate.plusDays(i), totalCount));
+            }
+        }
+
+        synchronized List<Object[]> read() {
+            List<Object[]> rows = nights.stream()
+                    .map(night -> new Object[]{night.id, night.date, night.totalCount - night.reserved,
+                            new BigDecimal("1000.00"), night.version})
+                    .toList();
+            onRead.run();
+            return rows;
+        }
+
+        synchronized int update(long id, long version, int roomsCount) {
+            Night night = nights.get((int) id - 1);
+            //every batch updates the nights in id order, so two waiting transactions never form a cycle
+            while(night.owner != null && night.owner != Thread.currentThread()){
+                try{
+                    wait();
+                }catch (InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    return 0;
+                }
+            }
+            if(night.version != version) return 0;
+            night.owner = Thread.currentThread();
+            night.pendingReserved = night.reserved + roomsCount;
+            writes.get(Thread.currentThread()).add(night);
+            return 1;
+        }
+
+        synchronized void begin() {
+            writes.put(Thread.currentThread(), new ArrayList<>());
+        }
+
+        synchronized void commit() {
+            for(Night night : writes.remove(Thread.currentThread())){
+                night.reserved = night.pendingReserved;
+                night.version++;
+                night.owner = null;
+            }
+            notifyAll();
+        }
+
+        synchronized void rollback() {
+            rollbackTo(0);
+            writes.remove(Thread.currentThread());
+        }
+
+        synchronized void rollbackTo(int savepoint) {
+            List<Night> written = writes.get(Thread.currentThread());
+            while(written.size() > savepoint){
+                written.removeLast().owner = null;
+            }
+            notifyAll();
+        }
+
+        synchronized void bumpVersion(int night) {
+            nights.get(night).version++;
+        }
+
+        synchronized void onRead(Runnable onRead) {
+            this.onRead = onRead;
+        }
+
+        synchronized List<Integer> committedReservedCounts() {
+            return nights.stream().map(night -> night.reserved).toList();
+        }
+
+        //the attempt template of the strategy, every attempt is a savepoint of the booking transaction
+        @Override
+        public synchronized TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new Savepoint(writes.get(Thread.currentThread()).size());
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            if(status.isRollbackOnly()) rollback(status);
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            rollbackTo(((Savepoint) status).mark);
+        }
+
+        private static class Savepoint extends SimpleTransactionStatus {
+            private final int mark;
+
+            Savepoint(int mark) {
+                this.mark = mark;
+            }
+        }
+
+        private static class Night {
+            private final long id;
+            private final LocalDate date;
+            private final int totalCount;
+            private int reserved;
+            private long version;
+            private Thread owner;
+            private int pendingReserved;
+
+            Night(long id, LocalDate date, int totalCount) {
+                this.id = id;
+                this.date = date;
+                this.totalCount = totalCount;
+            }
+        }
+    }
+}
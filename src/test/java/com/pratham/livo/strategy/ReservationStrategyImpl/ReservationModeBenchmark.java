@@ -0,0 +1,155 @@
+package com.pratham.livo.strategy.ReservationStrategyImpl;
+
+import com.pratham.livo.LivoApplication;
+import com.pratham.livo.entity.Hotel;
+import com.pratham.livo.entity.Room;
+import com.pratham.livo.entity.User;
+import com.pratham.livo.enums.Role;
+import com.pratham.livo.exception.BadRequestException;
+import com.pratham.livo.exception.InventoryBusyException;
+import com.pratham.livo.repository.HotelRepository;
+import com.pratham.livo.repository.RoomRepository;
+import com.pratham.livo.repository.UserRepository;
+import com.pratham.livo.strategy.ReservationStrategy;
+import com.pratham.livo.utils.BulkInventoryWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+//concurrent reservations of the same nights through each reservation mode
+//every booking transaction is rolled back after its reservation, so the rooms never run out and
+//the threads keep meeting on the same rows. runs against the configured database
+//run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.pratham.livo.strategy.ReservationStrategyImpl.ReservationModeBenchmark
+//the threads stay below the hikari pool, a booking holds one connection for its whole transaction
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(8)
+@Fork(1)
+public class ReservationModeBenchmark {
+
+    private static final LocalDate START_DATE = LocalDate.now().plusDays(30);
+    private static final LocalDate END_DATE = START_DATE.plusDays(2);
+    private static final long NIGHTS = 3;
+
+    @Param({"pessimistic", "atomic", "optimistic"})
+    private String mode;
+
+    //1 puts every thread on the same rows, 8 spreads them over the room types of a hotel
+    @Param({"1", "8"})
+    private int rooms;
+
+    private ConfigurableApplicationContext context;
+    private ReservationStrategy reservationStrategy;
+    private TransactionTemplate transactionTemplate;
+    private Long ownerId;
+    private Long hotelId;
+    private List<Long> roomIds;
+    private final AtomicLong busy = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(LivoApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--livo.booking.reservation-mode=" + mode);
+        reservationStrategy = context.getBean(ReservationStrategy.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+
+        User owner = context.getBean(UserRepository.class).save(User.builder()
+                .email(UUID.randomUUID() + "@livo.test")
+                .passwordHash("hash")
+                .name("Owner")
+                .roles(Set.of(Role.HOTEL_MANAGER))
+                .build());
+        Hotel hotel = context.getBean(HotelRepository.class).save(Hotel.builder()
+                .name("Reservation Mode Benchmark")
+                .city("Benchville")
+                .owner(owner)
+                .popularityScore(0.0)
+                .active(true)
+                .deleted(false)
+                .build());
+        ownerId = owner.getId();
+        hotelId = hotel.getId();
+        RoomRepository roomRepository = context.getBean(RoomRepository.class);
+        roomIds = IntStream.range(0, rooms)
+                .mapToObj(i -> roomRepository.save(Room.builder()
+                        .hotel(hotel)
+                        .type("Type " + i)
+                        .basePrice(new BigDecimal("2499.50"))
+                        .totalCount(50)
+                        .capacity(2)
+                        .active(true)
+                        .deleted(false)
+                        .build()).getId())
+                .toList();
+        BulkInventoryWriter bulkInventoryWriter = context.getBean(BulkInventoryWriter.class);
+        transactionTemplate.executeWithoutResult(status ->
+                bulkInventoryWriter.createInventory(roomIds, START_DATE, END_DATE));
+    }
+
+    @Benchmark
+    public boolean reserve() {
+        Long roomId = roomIds.get(ThreadLocalRandom.current().nextInt(rooms));
+        try{
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                reservationStrategy.reserve(roomId, START_DATE, END_DATE, 1, NIGHTS, UUID.randomUUID().toString());
+                status.setRollbackOnly();
+                return true;
+            }));
+        }catch (InventoryBusyException | BadRequestException e){
+            busy.incrementAndGet();
+            return false;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        //the throughput above counts rejected reservations too, these tell them apart
+        MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+        System.out.printf("%n%s on %d rooms: %d rejected, optimistic conflicts %.0f, exhausted %.0f%n",
+                mode, rooms, busy.get(),
+                count(meterRegistry.find("livo.booking.optimistic.attempts").tag("result", "conflict").counter()),
+                count(meterRegistry.find("livo.booking.optimistic.exhausted").counter()));
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM inventory WHERE hotel_id = ?", hotelId);
+            jdbcTemplate.update("DELETE FROM hotel_day_summary WHERE hotel_id = ?", hotelId);
+            context.getBean(RoomRepository.class).deleteAllById(roomIds);
+            context.getBean(HotelRepository.class).deleteById(hotelId);
+            context.getBean(UserRepository.class).deleteById(ownerId);
+        });
+        context.close();
+    }
+
+    private static double count(Counter counter) {
+        return counter == null ? 0 : counter.count();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ReservationModeBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,145 @@
+package com.pratham.livo.utils;
+
+import com.pratham.livo.entity.Hotel;
+import com.pratham.livo.entity.Room;
+import com.pratham.livo.entity.User;
+import com.pratham.livo.enums.Role;
+import com.pratham.livo.repository.HotelRepository;
+import com.pratham.livo.repository.RoomRepository;
+import com.pratham.livo.repository.UserRepository;
+import com.pratham.livo.service.InventoryService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+//the bulk writer has to produce the same rows as the entity path it replaced
+//runs against the configured database, every test rolls back
+@SpringBootTest
+@Transactional
+class BulkInventoryWriterTest {
+
+    @Autowired private BulkInventoryWriter bulkInventoryWriter;
+    @Autowired private InventoryService inventoryService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private HotelRepository hotelRepository;
+    @Autowired private RoomRepository roomRepository;
+    @Autowired private EntityManager entityManager;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void bulkWriterCreatesTheSameRowsAsTheEntityPath() {
+        Hotel hotel = saveHotel();
+        Room bulkRoom = saveRoom(hotel);
+        Room entityRoom = saveRoom(hotel);
+        LocalDate startDate = LocalDate.now();
+        LocalDate endDate = startDate.plusYears(1);
+
+        long created = bulkInventoryWriter.createInventory(List.of(bulkRoom.getId()), startDate, endDate);
+        withEntityWriter(() -> inventoryService.initRoomsFor1Year(List.of(entityRoom)));
+        entityManager.flush();
+
+        List<String> bulkRows = rowsOf(bulkRoom);
+        List<String> entityRows = rowsOf(entityRoom);
+        assertEquals(startDate.datesUntil(endDate.plusDays(1)).count(), created);
+        assertEquals(created, bulkRows.size());
+        assertEquals(entityRows, bulkRows);
+    }
+
+    @Test
+    void bulkWriterSkipsDaysThatAlreadyExist() {
+        Hotel hotel = saveHotel();
+        Room room = saveRoom(hotel);
+        LocalDate startDate = LocalDate.now();
+
+        bulkInventoryWriter.createInventory(List.of(room.getId()), startDate, startDate.plusDays(9));
+        long created = bulkInventoryWriter.createInventory(List.of(room.getId()), startDate, startDate.plusDays(19));
+
+        assertEquals(10, created);
+        assertEquals(20, rowsOf(room).size());
+    }
+
+    @Test
+    void bulkWriterSplitsLargeRoomListsIntoStatements() {
+        Hotel hotel = saveHotel();
+        int rooms = (Integer) ReflectionTestUtils.getField(bulkInventoryWriter, "roomsPerStatement") + 1;
+        List<Long> roomIds = IntStream.range(0, rooms)
+                .mapToObj(i -> saveRoom(hotel).getId())
+                .toList();
+        LocalDate startDate = LocalDate.now();
+
+        long created = bulkInventoryWriter.createInventory(roomIds, startDate, startDate.plusDays(2));
+
+        assertEquals(3L * rooms, created);
+    }
+
+    //every column except the generated id, the room and the timestamps, one line per day
+    private List<String> rowsOf(Room room) {
+        List<String> rows = jdbcTemplate.query("""
+                SELECT hotel_id, date, city, price, surge_factor, total_count, booked_count,
+                    reserved_count, closed, price_dirty, version
+                FROM inventory WHERE room_id = ? ORDER BY date
+                """, (rs, rowNum) -> String.join("|",
+                rs.getString("hotel_id"),
+                rs.getString("date"),
+                rs.getString("city"),
+                rs.getBigDecimal("price").stripTrailingZeros().toPlainString(),
+                rs.getBigDecimal("surge_factor").stripTrailingZeros().toPlainString(),
+                rs.getString("total_count"),
+                rs.getString("booked_count"),
+                rs.getString("reserved_count"),
+                rs.getString("closed"),
+                rs.getString("price_dirty"),
+                rs.getString("version")), room.getId());
+        assertFalse(rows.isEmpty());
+        return rows;
+    }
+
+    private void withEntityWriter(Runnable runnable) {
+        Object enabled = ReflectionTestUtils.getField(inventoryService, "bulkWriterEnabled");
+        ReflectionTestUtils.setField(inventoryService, "bulkWriterEnabled", false);
+        try{
+            runnable.run();
+        }finally {
+            ReflectionTestUtils.setField(inventoryService, "bulkWriterEnabled", enabled);
+        }
+    }
+
+    private Hotel saveHotel() {
+        User owner = userRepository.save(User.builder()
+                .email(UUID.randomUUID() + "@livo.test")
+                .passwordHash("hash")
+                .name("Owner")
+                .roles(Set.of(Role.HOTEL_MANAGER))
+                .build());
+        return hotelRepository.save(Hotel.builder()
+                .name("Bulk Writer Hotel")
+                .city("Testville")
+                .owner(owner)
+                .popularityScore(0.0)
+                .build());
+    }
+
+    private Room saveRoom(Hotel hotel) {
+        return roomRepository.save(Room.builder()
+                .hotel(hotel)
+                .type("Deluxe")
+                .basePrice(new BigDecimal("2499.50"))
+                .totalCount(7)
+                .capacity(2)
+                .build());
+    }
+}
@@ -0,0 +1,127 @@
+package com.pratham.livo.utils;
+
+import com.pratham.livo.LivoApplication;
+import com.pratham.livo.entity.Hotel;
+import com.pratham.livo.entity.Room;
+import com.pratham.livo.entity.User;
+import com.pratham.livo.enums.Role;
+import com.pratham.livo.repository.HotelRepository;
+import com.pratham.livo.repository.RoomRepository;
+import com.pratham.livo.repository.UserRepository;
+import com.pratham.livo.service.InventoryService;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+//a year of inventory for a 100 room hotel through the bulk writer and through the entity saveAll path
+//runs against the configured database, every run is rolled back after its rows were written
+//run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.pratham.livo.utils.InventoryWriterBenchmark
+//the gc profiler reports the allocation per run next to the time
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InventoryWriterBenchmark {
+
+    @Param("100")
+    private int rooms;
+
+    private ConfigurableApplicationContext context;
+    private InventoryService inventoryService;
+    private RoomRepository roomRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+    private Long ownerId;
+    private Long hotelId;
+    private List<Long> roomIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(LivoApplication.class)
+                .web(WebApplicationType.NONE)
+                .run();
+        inventoryService = context.getBean(InventoryService.class);
+        roomRepository = context.getBean(RoomRepository.class);
+        entityManager = context.getBean(EntityManager.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+
+        User owner = context.getBean(UserRepository.class).save(User.builder()
+                .email(UUID.randomUUID() + "@livo.test")
+                .passwordHash("hash")
+                .name("Owner")
+                .roles(Set.of(Role.HOTEL_MANAGER))
+                .build());
+        Hotel hotel = context.getBean(HotelRepository.class).save(Hotel.builder()
+                .name("Inventory Writer Benchmark")
+                .city("Benchville")
+                .owner(owner)
+                .popularityScore(0.0)
+                .build());
+        ownerId = owner.getId();
+        hotelId = hotel.getId();
+        roomIds = IntStream.range(0, rooms)
+                .mapToObj(i -> roomRepository.save(Room.builder()
+                        .hotel(hotel)
+                        .type("Type " + i)
+                        .basePrice(new BigDecimal("2499.50"))
+                        .totalCount(7)
+                        .capacity(2)
+                        .build()).getId())
+                .toList();
+    }
+
+    @Benchmark
+    public void bulkWriter() {
+        createInventory(true);
+    }
+
+    @Benchmark
+    public void entityWriter() {
+        createInventory(false);
+    }
+
+    //both paths load the rooms and flush their rows before the rollback, only the writer differs
+    private void createInventory(boolean bulkWriterEnabled) {
+        ReflectionTestUtils.setField(inventoryService, "bulkWriterEnabled", bulkWriterEnabled);
+        transactionTemplate.executeWithoutResult(status -> {
+            inventoryService.initRoomsFor1Year(roomRepository.findAllById(roomIds));
+            entityManager.flush();
+            entityManager.clear();
+            status.setRollbackOnly();
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            roomRepository.deleteAllById(roomIds);
+            context.getBean(HotelRepository.class).deleteById(hotelId);
+            context.getBean(UserRepository.class).deleteById(ownerId);
+        });
+        context.close();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(InventoryWriterBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
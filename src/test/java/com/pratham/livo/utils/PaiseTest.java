@@ -0,0 +1,94 @@
+package com.pratham.livo.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+//applyBasisPoints has to round exactly like the BigDecimal chain it replaced
+class PaiseTest {
+
+    @ParameterizedTest(name = "{0} x {1} = {2}")
+    @CsvSource({
+            //half a paisa rounds up
+            "0.05, 1.1, 0.06",
+            "0.15, 1.1, 0.17",
+            "0.01, 0.5, 0.01",
+            "0.03, 0.5, 0.02",
+            "100.10, 1.05, 105.11",
+            "2499.50, 1.15, 2874.43",
+            //just below half rounds down
+            "0.01, 0.4999, 0.00",
+            "999.99, 0.9, 899.99",
+            "0.07, 1.15, 0.08",
+            //half away from zero for negative amounts
+            "-0.01, 0.5, -0.01",
+            "-0.03, 0.5, -0.02",
+            "-2499.50, 1.15, -2874.43",
+            //zero, the smallest factor and the largest numeric(10,2) price
+            "0.00, 1.4, 0.00",
+            "1234.56, 0, 0.00",
+            "1234.56, 0.0001, 0.12",
+            "99999999.99, 1.4, 139999999.99"
+    })
+    void roundsLikeTheBigDecimalChain(String amount, String factor, String expected) {
+        long paise = Paise.of(new BigDecimal(amount));
+        int basisPoints = Paise.basisPoints(new BigDecimal(factor));
+
+        assertEquals(new BigDecimal(expected), decimalChain(new BigDecimal(amount), new BigDecimal(factor)));
+        assertEquals(Paise.of(new BigDecimal(expected)), Paise.applyBasisPoints(paise, basisPoints));
+    }
+
+    @Test
+    void matchesTheBigDecimalChainOnRandomPrices() {
+        //fixed seed so a failure can be reproduced
+        Random random = new Random(17);
+        for(int i = 0; i < 1_000_000; i++){
+            long paise = random.nextLong(-10_000_000_000L, 10_000_000_000L);
+            int basisPoints = random.nextInt(0, 30_001);
+            BigDecimal expected = decimalChain(Paise.toBigDecimal(paise), BigDecimal.valueOf(basisPoints, 4));
+
+            assertEquals(Paise.of(expected), Paise.applyBasisPoints(paise, basisPoints),
+                    "paise " + paise + " basis points " + basisPoints);
+        }
+    }
+
+    @Test
+    void matchesTheBigDecimalChainOnEveryRemainder() {
+        //every remainder of product / 10000 around the rounding point, for both signs
+        for(int basisPoints = 1; basisPoints <= 20_000; basisPoints += 7){
+            for(long paise = -300; paise <= 300; paise++){
+                BigDecimal expected = decimalChain(Paise.toBigDecimal(paise), BigDecimal.valueOf(basisPoints, 4));
+                assertEquals(Paise.of(expected), Paise.applyBasisPoints(paise, basisPoints),
+                        "paise " + paise + " basis points " + basisPoints);
+            }
+        }
+    }
+
+    @Test
+    void convertsWithoutLoss() {
+        assertEquals(249950L, Paise.of(new BigDecimal("2499.50")));
+        assertEquals(249950L, Paise.of(new BigDecimal("2499.5")));
+        assertEquals(new BigDecimal("2499.50"), Paise.toBigDecimal(249950L));
+        assertEquals(11_500, Paise.basisPoints(BigDecimal.valueOf(1.15)));
+        assertEquals(Paise.ONE, Paise.basisPoints(BigDecimal.ONE));
+    }
+
+    @Test
+    void rejectsValuesItCannotRepresent() {
+        assertThrows(ArithmeticException.class, () -> Paise.of(new BigDecimal("0.001")));
+        assertThrows(ArithmeticException.class, () -> Paise.basisPoints(new BigDecimal("1.00001")));
+        assertThrows(ArithmeticException.class, () -> Paise.applyBasisPoints(Long.MAX_VALUE / 2, 30_000));
+    }
+
+    //what every pricing strategy did before, one multiply and setScale per step
+    private static BigDecimal decimalChain(BigDecimal amount, BigDecimal factor) {
+        return amount.multiply(factor).setScale(2, RoundingMode.HALF_UP);
+    }
+}